@@ -25,12 +25,15 @@ import com.google.common.primitives.Doubles;
 ////CHECKSTYLE:ON
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.PercentileHistogramBuckets;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.micrometer.prometheus.PrometheusConfig;
 import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.prometheus.client.CollectorRegistry;
+import org.openjdk.jol.info.GraphLayout;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 import org.openjdk.jmh.runner.Runner;
@@ -118,6 +121,44 @@ public class CompareHistogramsWithOtherLibraries {
         }
     }
 
+    /**
+     * Compares the HdrHistogram-based percentile engine with the compact log-linear one, and prints the memory
+     * retained by each summary.
+     */
+    @State(Scope.Benchmark)
+    public static class MicrometerPercentilesState {
+
+        @Param({"false", "true"})
+        boolean compact;
+
+        io.micrometer.core.instrument.MeterRegistry registry;
+        io.micrometer.core.instrument.DistributionSummary summary;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            registry = new SimpleMeterRegistry();
+            registry.config().meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                    return DistributionStatisticConfig.builder()
+                            .compactPercentiles(compact)
+                            .build()
+                            .merge(config);
+                }
+            });
+            summary = DistributionSummary.builder("summary")
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown(Blackhole hole) {
+            hole.consume(summary.takeSnapshot().percentileValues());
+            System.out.println("Retained size of summary (compact=" + compact + "): " +
+                    GraphLayout.parseInstance(summary).totalSize() + " bytes");
+        }
+    }
+
     @State(Scope.Benchmark)
     public static class MicrometerPlainSummaryState {
 
@@ -167,6 +208,16 @@ public class CompareHistogramsWithOtherLibraries {
         state.summary.record(data.dataIterator.next());
     }
 
+    @Benchmark
+    public void micrometerPercentiles(MicrometerPercentilesState state, Data data) {
+        state.summary.record(data.dataIterator.next());
+    }
+
+    @Benchmark
+    public void micrometerPercentilesSnapshot(MicrometerPercentilesState state, Blackhole hole) {
+        hole.consume(state.summary.takeSnapshot());
+    }
+
     //    @Benchmark
     public void dropwizardHistogram(DropwizardState state, Data data) {
         state.histogram.update(data.dataIterator.next());
@@ -15,6 +15,7 @@
  */
 package io.micrometer.benchmark.core;
 
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.openjdk.jmh.annotations.*;
@@ -24,6 +25,7 @@ import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @State(Scope.Benchmark)
 @OutputTimeUnit(TimeUnit.MICROSECONDS)
@@ -44,6 +46,14 @@ public class MeterRegistrationBenchmark {
     private int x = 923;
     private int y = 123;
 
+    private MeterRegistry sharedRegistry;
+    private final AtomicInteger distinctIds = new AtomicInteger();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        sharedRegistry = new SimpleMeterRegistry();
+    }
+
     @Benchmark
     public int insert10_000() {
         MeterRegistry registry = new SimpleMeterRegistry();
@@ -53,6 +63,12 @@ public class MeterRegistrationBenchmark {
         return sum();
     }
 
+    @Threads(16)
+    @Benchmark
+    public Counter registerDistinctIdsConcurrently() {
+        return sharedRegistry.counter("my.counter", "k", Integer.toString(distinctIds.incrementAndGet()));
+    }
+
     @Benchmark
     public int sum() {
         return x + y;
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TagInterner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers meters whose tags repeat a small set of keys and values, the way request metrics do, and reports
+ * the retained size of the registry with and without a {@link TagInterner}.
+ */
+@Fork(1)
+@Measurement(iterations = 2)
+@Warmup(iterations = 1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class TagInterningFootprintBenchmark {
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE"};
+    private static final String[] STATUSES = {"200", "201", "400", "404", "500"};
+
+    @Param({"true", "false"})
+    private boolean intern;
+
+    @Param({"200000"})
+    private int meters;
+
+    private MeterRegistry registry;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        if (intern) {
+            registry.config().tagInterner(new TagInterner());
+        }
+    }
+
+    @Benchmark
+    public MeterRegistry register() {
+        for (int i = 0; i < meters; i++) {
+            // build each string anew, as request-derived tag values are
+            registry.counter(new String("http.server.requests"),
+                    new String("uri"), "/api/resource/" + (i % 500),
+                    new String("method"), new String(METHODS[i % METHODS.length]),
+                    new String("status"), new String(STATUSES[(i / 500) % STATUSES.length]),
+                    new String("tenant"), "tenant-" + (i / 2500));
+        }
+        return registry;
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportFootprint() {
+        System.out.println();
+        System.out.println("Retained size of " + registry.getMeters().size() + " meters (intern=" + intern + "): "
+                + GraphLayout.parseInstance(registry).totalSize() / 1024 / 1024 + " MB");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(TagInterningFootprintBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -17,6 +17,7 @@ package io.micrometer.benchmark.core;
 
 import io.micrometer.core.instrument.Tags;
 import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
@@ -29,7 +30,11 @@ import java.util.concurrent.TimeUnit;
 @Warmup(iterations = 2)
 @BenchmarkMode(Mode.AverageTime)
 @OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
 public class TagsBenchmark {
+    private final Tags base = Tags.of("key", "value", "key3", "value3", "key5", "value5");
+    private final Tags other = Tags.of("key2", "value2", "key4", "value4");
+
     @Threads(16)
     @Benchmark
     public void of() {
@@ -42,9 +47,34 @@ public class TagsBenchmark {
         Tags.of("key", "value").and("key2", "value2", "key3", "value3", "key4", "value4", "key5", "value5");
     }
 
+    @Threads(16)
+    @Benchmark
+    public Tags andTags() {
+        return base.and(other);
+    }
+
+    @Threads(16)
+    @Benchmark
+    public Tags concat() {
+        return Tags.concat(base, other);
+    }
+
+    @Threads(16)
+    @Benchmark
+    public int hashCodeOfNewTags() {
+        return base.and("key2", "value2").hashCode();
+    }
+
+    @Threads(16)
+    @Benchmark
+    public int hashCodeOfExistingTags() {
+        return base.hashCode();
+    }
+
     public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder()
                 .include(TagsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
                 .build();
         new Runner(opt).run();
     }
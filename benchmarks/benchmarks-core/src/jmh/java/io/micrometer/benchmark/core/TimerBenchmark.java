@@ -15,10 +15,16 @@
  */
 package io.micrometer.benchmark.core;
 
+import io.micrometer.core.instrument.CachedClock;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.prometheus.PrometheusConfig;
 import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.CollectorRegistry;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
@@ -42,6 +48,13 @@ public class TimerBenchmark {
         new Runner(opt).run();
     }
 
+    /**
+     * Compares reading the system clock on every recording with reading a cached wall time.
+     */
+    @Param({"system", "cached"})
+    String clock;
+
+    private CachedClock cachedClock;
     private MeterRegistry registry;
     private Timer timer;
 
@@ -50,10 +63,22 @@ public class TimerBenchmark {
 
     @Setup
     public void setup() {
-        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        Clock registryClock = Clock.SYSTEM;
+        if ("cached".equals(clock)) {
+            cachedClock = new CachedClock();
+            registryClock = cachedClock;
+        }
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT, new CollectorRegistry(), registryClock);
         timer = registry.timer("timer");
     }
 
+    @TearDown
+    public void tearDown() {
+        if (cachedClock != null) {
+            cachedClock.close();
+        }
+    }
+
     @Benchmark
     public int sumTimedWithSupplier() {
         return timer.record(this::sum);
@@ -72,6 +97,49 @@ public class TimerBenchmark {
         return registry.timer("timer").record(this::sum);
     }
 
+    @State(Scope.Benchmark)
+    public static class HistogramTimer {
+        @Param({"false", "true"})
+        boolean striped;
+
+        Timer timer;
+
+        @Setup
+        public void setup() {
+            MeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+            registry.config().meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                    return DistributionStatisticConfig.builder()
+                            .stripedHistogram(striped)
+                            .build()
+                            .merge(config);
+                }
+            });
+            timer = Timer.builder("histogram.timer")
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void recordHistogram1Thread(HistogramTimer state) {
+        state.timer.record(y, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void recordHistogram8Threads(HistogramTimer state) {
+        state.timer.record(y, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void recordHistogram32Threads(HistogramTimer state) {
+        state.timer.record(y, TimeUnit.MILLISECONDS);
+    }
+
     @Benchmark
     public int sum() {
         return x + y;
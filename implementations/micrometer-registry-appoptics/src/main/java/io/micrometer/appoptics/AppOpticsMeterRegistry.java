@@ -93,7 +93,7 @@ public class AppOpticsMeterRegistry extends StepMeterRegistry {
     protected void publish() {
         try {
             String bodyMeasurementsPrefix = getBodyMeasurementsPrefix();
-            for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
+            for (List<Meter> batch : MeterPartition.partition(getMetersToPublish(), config.batchSize())) {
                 final List<String> meters = batch.stream()
                         .map(meter -> meter.match(
                                 this::writeGauge,
@@ -110,9 +110,11 @@ public class AppOpticsMeterRegistry extends StepMeterRegistry {
                         .map(Optional::get)
                         .collect(Collectors.toList());
                 if (meters.isEmpty()) {
+                    markPublished(batch);
                     continue;
                 }
                 httpClient.post(config.uri())
+                        .replayable()
                         .withBasicAuthentication(config.apiToken(), "")
                         .withJsonContent(
                                 meters.stream().collect(joining(",", bodyMeasurementsPrefix, BODY_MEASUREMENTS_SUFFIX)))
@@ -122,6 +124,7 @@ public class AppOpticsMeterRegistry extends StepMeterRegistry {
                                 logger.error("failed to send at least some metrics to appoptics: {}", response.body());
                             } else {
                                 logger.debug("successfully sent {} metrics to appoptics", batch.size());
+                                markPublished(batch);
                             }
                         })
                         .onError(response -> logger.error("failed to send metrics to appoptics: {}", response.body()));
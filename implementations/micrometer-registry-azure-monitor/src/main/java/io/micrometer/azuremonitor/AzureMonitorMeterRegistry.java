@@ -28,8 +28,11 @@ import io.micrometer.core.lang.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 
 import static io.micrometer.core.instrument.config.MeterRegistryConfigValidator.checkRequired;
@@ -77,7 +80,9 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
 
     @Override
     protected void publish() {
-        for (Meter meter : getMeters()) {
+        List<Meter> tracked = new ArrayList<>();
+        for (Meter meter : getMetersToPublish()) {
+            AtomicBoolean failed = new AtomicBoolean();
             meter.match(
                     this::trackGauge,
                     this::trackCounter,
@@ -92,6 +97,7 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
                 try {
                     client.track(telemetry);
                 } catch (Throwable e) {
+                    failed.set(true);
                     logger.warn("failed to track metric {} in azure monitor", meter.getId());
                     TraceTelemetry traceTelemetry = new TraceTelemetry("failed to track metric " + meter.getId());
                     traceTelemetry.getContext().getOperation().setSyntheticSource(SDK_TELEMETRY_SYNTHETIC_SOURCE_NAME);
@@ -100,7 +106,11 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
                     client.flush();
                 }
             });
+            if (!failed.get()) {
+                tracked.add(meter);
+            }
         }
+        markPublished(tracked);
     }
 
     private Stream<MetricTelemetry> trackMeter(Meter meter) {
@@ -238,7 +238,7 @@ class CloudWatchMeterRegistryTest {
             meters.add(timer);
         }
         when(this.registry.getMeters()).thenReturn(meters);
-        doNothing().when(this.registry).sendMetricData(any());
+        doReturn(true).when(this.registry).sendMetricData(any());
         this.registry.publish();
         @SuppressWarnings("unchecked")
         ArgumentCaptor<List<MetricDatum>> argumentCaptor = ArgumentCaptor.forClass(List.class);
@@ -36,6 +36,7 @@ import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
@@ -86,13 +87,16 @@ public class CloudWatchMeterRegistry extends StepMeterRegistry {
 
     @Override
     protected void publish() {
+        List<Meter> meters = getMetersToPublish();
         boolean interrupted = false;
+        boolean sent = true;
         try {
-            for (List<MetricDatum> batch : MetricDatumPartition.partition(metricData(), config.batchSize())) {
+            for (List<MetricDatum> batch : MetricDatumPartition.partition(metricData(meters), config.batchSize())) {
                 try {
-                    sendMetricData(batch);
+                    sent &= sendMetricData(batch);
                 } catch (InterruptedException ex) {
                     interrupted = true;
+                    sent = false;
                 }
             }
         }
@@ -101,15 +105,24 @@ public class CloudWatchMeterRegistry extends StepMeterRegistry {
                 Thread.currentThread().interrupt();
             }
         }
+
+        // a batch can hold data of several meters, so they are only recorded as published once every batch was sent
+        if (sent) {
+            markPublished(meters);
+        }
     }
 
+    /**
+     * @return Whether the metric data was sent successfully before the read timeout.
+     */
     // VisibleForTesting
-    void sendMetricData(List<MetricDatum> metricData) throws InterruptedException {
+    boolean sendMetricData(List<MetricDatum> metricData) throws InterruptedException {
         PutMetricDataRequest putMetricDataRequest = PutMetricDataRequest.builder()
                 .namespace(config.namespace())
                 .metricData(metricData)
                 .build();
         CountDownLatch latch = new CountDownLatch(1);
+        AtomicBoolean sent = new AtomicBoolean();
         cloudWatchAsyncClient.putMetricData(putMetricDataRequest).whenCompleteAsync((response, t) -> {
             if (t != null) {
                 if (t instanceof AbortedException) {
@@ -119,6 +132,7 @@ public class CloudWatchMeterRegistry extends StepMeterRegistry {
                 }
             } else {
                 logger.debug("published metric with namespace:{}", putMetricDataRequest.namespace());
+                sent.set(true);
             }
             latch.countDown();
         });
@@ -130,12 +144,17 @@ public class CloudWatchMeterRegistry extends StepMeterRegistry {
             logger.warn("metrics push to cloudwatch took longer than expected");
             throw e;
         }
+        return sent.get();
     }
 
     //VisibleForTesting
     List<MetricDatum> metricData() {
+        return metricData(getMetersToPublish());
+    }
+
+    private List<MetricDatum> metricData(List<Meter> meters) {
         Batch batch = new Batch();
-        return getMeters().stream().flatMap(m -> m.match(
+        return meters.stream().flatMap(m -> m.match(
                 batch::gaugeData,
                 batch::counterData,
                 batch::timerData,
@@ -20,14 +20,13 @@ import io.micrometer.core.instrument.step.StepMeterRegistry;
 import io.micrometer.core.instrument.util.MeterPartition;
 import io.micrometer.core.instrument.util.NamedThreadFactory;
 import io.micrometer.core.ipc.http.HttpSender;
+import io.micrometer.core.ipc.http.HttpSender.Request.ContentWriter;
 import io.micrometer.core.ipc.http.HttpUrlConnectionSender;
 import io.micrometer.core.lang.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URLEncoder;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -98,12 +97,12 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
 
     @Override
     protected void publish() {
-        Map<String, DatadogMetricMetadata> metadataToSend = new HashMap<>();
+        Map<String, DatadogMetricMetadata> metadataToSend = new ConcurrentHashMap<>();
 
         String datadogEndpoint = config.uri() + "/api/v1/series?api_key=" + config.apiKey();
 
         try {
-            for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
+            publishBatches(MeterPartition.partition(getMetersToPublish(), config.batchSize()), batch -> {
                 /*
                 Example post body from Datadog API docs. Host and tags are optional.
                 "{ \"series\" :
@@ -116,7 +115,7 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
                         ]
                 }"
                 */
-                String body = batch.stream().flatMap(meter -> meter.match(
+                Stream<String> series = batch.stream().flatMap(meter -> meter.match(
                         m -> writeMeter(m, metadataToSend), // visitGauge
                         m -> writeMeter(m, metadataToSend), // visitCounter
                         timer -> writeTimer(timer, metadataToSend), // visitTimer
@@ -126,17 +125,24 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
                         m -> writeMeter(m, metadataToSend), // visitFunctionCounter
                         timer -> writeTimer(timer, metadataToSend), // visitFunctionTimer
                         m -> writeMeter(m, metadataToSend)) // visitMeter
-                ).collect(joining(",", "{\"series\":[", "]}"));
-
-                logger.trace("sending metrics batch to datadog:{}{}", System.lineSeparator(), body);
-
-                httpClient.post(datadogEndpoint)
-                        .withJsonContent(
-                                body)
-                        .send()
-                        .onSuccess(response -> logger.debug("successfully sent {} metrics to datadog", batch.size()))
+                );
+
+                HttpSender.Request.Builder request = httpClient.post(datadogEndpoint).replayable();
+                if (logger.isTraceEnabled()) {
+                    String body = series.collect(joining(",", "{\"series\":[", "]}"));
+                    logger.trace("sending metrics batch to datadog:{}{}", System.lineSeparator(), body);
+                    request.withJsonContent(body);
+                } else {
+                    request.withJsonContent(ContentWriter.joining(series, ",", "{\"series\":[", "]}"));
+                }
+
+                request.send()
+                        .onSuccess(response -> {
+                            logger.debug("successfully sent {} metrics to datadog", batch.size());
+                            markPublished(batch);
+                        })
                         .onError(response -> logger.error("failed to send metrics to datadog: {}", response.body()));
-            }
+            });
         } catch (Throwable e) {
             logger.warn("failed to send metrics to datadog", e);
         }
@@ -90,7 +90,7 @@ public class DynatraceMeterRegistry extends StepMeterRegistry {
         String customDeviceMetricEndpoint = config.uri() + "/api/v1/entity/infrastructure/custom/" +
                 config.deviceId() + "?api-token=" + config.apiToken();
 
-        for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
+        for (List<Meter> batch : MeterPartition.partition(getMetersToPublish(), config.batchSize())) {
             final List<DynatraceCustomMetric> series = batch.stream()
                     .flatMap(meter -> meter.match(
                             this::writeMeter,
@@ -111,15 +111,18 @@ public class DynatraceMeterRegistry extends StepMeterRegistry {
                     .filter(this::isCustomMetricNotCreated)
                     .forEach(this::putCustomMetric);
 
-            if (!createdCustomMetrics.isEmpty() && !series.isEmpty()) {
-                postCustomMetricValues(
-                        config.technologyType(),
-                        config.group(),
-                        series.stream()
-                                .map(DynatraceCustomMetric::getTimeSeries)
-                                .filter(this::isCustomMetricCreated)
-                                .collect(Collectors.toList()),
-                        customDeviceMetricEndpoint);
+            if (series.isEmpty()) {
+                markPublished(batch);
+            } else if (!createdCustomMetrics.isEmpty()) {
+                List<DynatraceTimeSeries> timeSeries = series.stream()
+                        .map(DynatraceCustomMetric::getTimeSeries)
+                        .filter(this::isCustomMetricCreated)
+                        .collect(Collectors.toList());
+                // meters whose custom metric could not be created were left out, so they are not published yet
+                if (postCustomMetricValues(config.technologyType(), config.group(), timeSeries, customDeviceMetricEndpoint)
+                        && timeSeries.size() == series.size()) {
+                    markPublished(batch);
+                }
             }
         }
     }
@@ -224,10 +227,15 @@ public class DynatraceMeterRegistry extends StepMeterRegistry {
         }
     }
 
-    private void postCustomMetricValues(String type, String group, List<DynatraceTimeSeries> timeSeries, String customDeviceMetricEndpoint) {
+    /**
+     * @return Whether every message was sent successfully.
+     */
+    private boolean postCustomMetricValues(String type, String group, List<DynatraceTimeSeries> timeSeries, String customDeviceMetricEndpoint) {
+        boolean sent = true;
         try {
             for (DynatraceBatchedPayload postMessage : createPostMessages(type, group, timeSeries)) {
-                httpClient.post(customDeviceMetricEndpoint)
+                sent &= httpClient.post(customDeviceMetricEndpoint)
+                        .replayable()
                         .withJsonContent(postMessage.payload)
                         .send()
                         .onSuccess(response -> {
@@ -239,11 +247,14 @@ public class DynatraceMeterRegistry extends StepMeterRegistry {
                         .onError(response -> {
                             logger.error("failed to send metrics to dynatrace: {}", response.body());
                             logger.debug("failed metrics payload: {}", postMessage.payload);
-                        });
+                        })
+                        .isSuccessful();
             }
         } catch (Throwable e) {
             logger.error("failed to send metrics to dynatrace", e);
+            return false;
         }
+        return sent;
     }
 
     // VisibleForTesting
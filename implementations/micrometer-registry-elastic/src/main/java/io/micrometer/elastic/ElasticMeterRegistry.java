@@ -16,7 +16,7 @@
 package io.micrometer.elastic;
 
 import io.micrometer.core.instrument.*;
-import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.HistogramVisitor;
 import io.micrometer.core.instrument.step.StepMeterRegistry;
 import io.micrometer.core.instrument.util.MeterPartition;
 import io.micrometer.core.instrument.util.NamedThreadFactory;
@@ -201,8 +201,8 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
         createIndexTemplateIfNeeded();
 
         String uri = config.host() + "/" + indexName() + getTypePath() + "/_bulk";
-        for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
-            try {
+        try {
+            publishBatches(MeterPartition.partition(getMetersToPublish(), config.batchSize()), batch -> {
                 String requestBody = batch.stream()
                         .map(m -> m.match(
                                 this::writeGauge,
@@ -219,6 +219,7 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
                         .collect(joining("\n", "", "\n"));
                 httpClient
                         .post(uri)
+                        .replayable()
                         .withBasicAuthentication(config.userName(), config.password())
                         .withJsonContent(requestBody)
                         .send()
@@ -232,15 +233,16 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
                                         numberOfSentItems, numberOfCreatedItems, responseBody);
                             } else {
                                 logger.debug("successfully sent {} metrics to elastic", numberOfSentItems);
+                                markPublished(batch);
                             }
                         })
                         .onError(response -> {
                             logger.debug("failed metrics payload: {}", requestBody);
                             logger.error("failed to send metrics to elastic: {}", response.body());
                         });
-            } catch (Throwable e) {
-                logger.error("failed to send metrics to elastic", e);
-            }
+            });
+        } catch (Throwable e) {
+            logger.error("failed to send metrics to elastic", e);
         }
     }
 
@@ -369,13 +371,15 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
 
     // VisibleForTesting
     Optional<String> writeSummary(DistributionSummary summary) {
-        HistogramSnapshot histogramSnapshot = summary.takeSnapshot();
-        return Optional.of(writeDocument(summary, builder -> {
-            builder.append(",\"count\":").append(histogramSnapshot.count());
-            builder.append(",\"sum\":").append(histogramSnapshot.total());
-            builder.append(",\"mean\":").append(histogramSnapshot.mean());
-            builder.append(",\"max\":").append(histogramSnapshot.max());
-        }));
+        return Optional.of(writeDocument(summary, builder -> summary.visitSnapshot(new HistogramVisitor() {
+            @Override
+            public void summary(long count, double total, double max) {
+                builder.append(",\"count\":").append(count);
+                builder.append(",\"sum\":").append(total);
+                builder.append(",\"mean\":").append(count == 0 ? 0 : total / count);
+                builder.append(",\"max\":").append(max);
+            }
+        })));
     }
 
     // VisibleForTesting
@@ -25,6 +25,9 @@ import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests for {@link ElasticMeterRegistry}.
@@ -113,6 +116,23 @@ class ElasticMeterRegistryTest {
                 .contains("{ \"index\" : {} }\n{\"@timestamp\":\"1970-01-01T00:01:00.001Z\",\"name\":\"summary\",\"type\":\"distribution_summary\",\"count\":2,\"sum\":579.0,\"mean\":289.5,\"max\":456.0}");
     }
 
+    @Test
+    void writeTimerAndSummaryWithoutTakingSnapshots() {
+        Timer timer = spy(Timer.builder("myTimer").publishPercentiles(0.5).register(registry));
+        DistributionSummary summary = spy(DistributionSummary.builder("summary").publishPercentileHistogram().register(registry));
+        timer.record(10, TimeUnit.MILLISECONDS);
+        summary.record(123);
+        clock.add(config.step());
+
+        assertThat(registry.writeTimer(timer)).hasValueSatisfying(document ->
+                assertThat(document).endsWith("\"count\":1,\"sum\":10.0,\"mean\":10.0,\"max\":10.0}"));
+        assertThat(registry.writeSummary(summary)).hasValueSatisfying(document ->
+                assertThat(document).endsWith("\"count\":1,\"sum\":123.0,\"mean\":123.0,\"max\":123.0}"));
+
+        verify(timer, never()).takeSnapshot();
+        verify(summary, never()).takeSnapshot();
+    }
+
     @Test
     void writeMeter() {
         Timer timer = Timer.builder("myTimer").register(registry);
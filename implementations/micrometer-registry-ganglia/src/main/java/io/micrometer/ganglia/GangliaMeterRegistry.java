@@ -32,6 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
@@ -104,7 +105,8 @@ public class GangliaMeterRegistry extends StepMeterRegistry {
 
     @Override
     protected void publish() {
-        for (Meter meter : getMeters()) {
+        List<Meter> meters = getMetersToPublish();
+        for (Meter meter : meters) {
             meter.use(
                     this::announceGauge,
                     this::announceCounter,
@@ -116,6 +118,8 @@ public class GangliaMeterRegistry extends StepMeterRegistry {
                     this::announceFunctionTimer,
                     this::announceMeter);
         }
+        // announcements are not acknowledged, and those that fail are logged individually
+        markPublished(meters);
     }
 
     private void announceMeter(Meter meter) {
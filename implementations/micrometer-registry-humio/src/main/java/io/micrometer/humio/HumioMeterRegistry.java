@@ -80,9 +80,9 @@ public class HumioMeterRegistry extends StepMeterRegistry {
 
     @Override
     protected void publish() {
-        for (List<Meter> meters : MeterPartition.partition(this, config.batchSize())) {
+        for (List<Meter> meters : MeterPartition.partition(getMetersToPublish(), config.batchSize())) {
             try {
-                HttpSender.Request.Builder post = httpClient.post(config.uri() + "/api/v1/ingest/humio-structured");
+                HttpSender.Request.Builder post = httpClient.post(config.uri() + "/api/v1/ingest/humio-structured").replayable();
                 String token = config.apiToken();
                 if (token != null) {
                     post.withHeader("Authorization", "Bearer " + token);
@@ -111,7 +111,10 @@ public class HumioMeterRegistry extends StepMeterRegistry {
                         )
                         .collect(joining(",", "[{" + tags + "\"events\": [", "]}]")))
                         .send()
-                        .onSuccess(response -> logger.debug("successfully sent {} metrics to humio.", meters.size()))
+                        .onSuccess(response -> {
+                            logger.debug("successfully sent {} metrics to humio.", meters.size());
+                            markPublished(meters);
+                        })
                         .onError(response -> logger.error("failed to send metrics to humio: {}", response.body()));
             } catch (Throwable e) {
                 logger.warn("failed to send metrics to humio", e);
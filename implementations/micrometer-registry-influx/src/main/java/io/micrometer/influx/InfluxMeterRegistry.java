@@ -19,6 +19,7 @@ import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.step.StepMeterRegistry;
 import io.micrometer.core.instrument.util.*;
 import io.micrometer.core.ipc.http.HttpSender;
+import io.micrometer.core.ipc.http.HttpSender.Request.ContentWriter;
 import io.micrometer.core.ipc.http.HttpUrlConnectionSender;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,7 +45,7 @@ public class InfluxMeterRegistry extends StepMeterRegistry {
     private final InfluxConfig config;
     private final HttpSender httpClient;
     private final Logger logger = LoggerFactory.getLogger(InfluxMeterRegistry.class);
-    private boolean databaseExists = false;
+    private volatile boolean databaseExists = false;
 
     @SuppressWarnings("deprecation")
     public InfluxMeterRegistry(InfluxConfig config, Clock clock) {
@@ -109,10 +110,12 @@ public class InfluxMeterRegistry extends StepMeterRegistry {
                 influxEndpoint += "&rp=" + config.retentionPolicy();
             }
 
-            for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
-                httpClient.post(influxEndpoint)
+            final String endpoint = influxEndpoint;
+            publishBatches(MeterPartition.partition(getMetersToPublish(), config.batchSize()), batch ->
+                httpClient.post(endpoint)
+                        .replayable()
                         .withBasicAuthentication(config.userName(), config.password())
-                        .withPlainText(batch.stream()
+                        .withPlainText(ContentWriter.joining(batch.stream()
                                 .flatMap(m -> m.match(
                                         gauge -> writeGauge(gauge.getId(), gauge.value()),
                                         counter -> writeCounter(counter.getId(), counter.count()),
@@ -122,16 +125,15 @@ public class InfluxMeterRegistry extends StepMeterRegistry {
                                         gauge -> writeGauge(gauge.getId(), gauge.value(getBaseTimeUnit())),
                                         counter -> writeCounter(counter.getId(), counter.count()),
                                         this::writeFunctionTimer,
-                                        this::writeMeter))
-                                .collect(joining("\n")))
+                                        this::writeMeter)), "\n", "", ""))
                         .compressWhen(config::compressed)
                         .send()
                         .onSuccess(response -> {
                             logger.debug("successfully sent {} metrics to InfluxDB.", batch.size());
                             databaseExists = true;
+                            markPublished(batch);
                         })
-                        .onError(response -> logger.error("failed to send metrics to influx: {}", response.body()));
-            }
+                        .onError(response -> logger.error("failed to send metrics to influx: {}", response.body())));
         } catch (MalformedURLException e) {
             throw new IllegalArgumentException("Malformed InfluxDB publishing endpoint, see '" + config.prefix() + ".uri'", e);
         } catch (Throwable e) {
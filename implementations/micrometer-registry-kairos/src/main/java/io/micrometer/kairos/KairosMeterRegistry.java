@@ -21,6 +21,7 @@ import io.micrometer.core.instrument.util.DoubleFormat;
 import io.micrometer.core.instrument.util.MeterPartition;
 import io.micrometer.core.instrument.util.NamedThreadFactory;
 import io.micrometer.core.ipc.http.HttpSender;
+import io.micrometer.core.ipc.http.HttpSender.Request.ContentWriter;
 import io.micrometer.core.ipc.http.HttpUrlConnectionSender;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,7 +32,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static io.micrometer.core.instrument.util.StringEscapeUtils.escapeJson;
@@ -71,11 +71,12 @@ public class KairosMeterRegistry extends StepMeterRegistry {
 
     @Override
     protected void publish() {
-        for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
+        for (List<Meter> batch : MeterPartition.partition(getMetersToPublish(), config.batchSize())) {
             try {
                 httpClient.post(config.uri())
+                        .replayable()
                         .withBasicAuthentication(config.userName(), config.password())
-                        .withJsonContent(
+                        .withJsonContent(ContentWriter.joining(
                                 batch.stream().flatMap(m -> m.match(
                                         this::writeGauge,
                                         this::writeCounter,
@@ -86,10 +87,13 @@ public class KairosMeterRegistry extends StepMeterRegistry {
                                         this::writeFunctionCounter,
                                         this::writeFunctionTimer,
                                         this::writeCustomMetric)
-                                ).collect(Collectors.joining(",", "[", "]"))
+                                ), ",", "[", "]")
                         )
                         .send()
-                        .onSuccess(response -> logger.debug("successfully sent {} metrics to kairos.", batch.size()))
+                        .onSuccess(response -> {
+                            logger.debug("successfully sent {} metrics to kairos.", batch.size());
+                            markPublished(batch);
+                        })
                         .onError(response -> logger.error("failed to send metrics to kairos: {}", response.body()));
             } catch (Throwable t) {
                 logger.warn("failed to send metrics to kairos", t);
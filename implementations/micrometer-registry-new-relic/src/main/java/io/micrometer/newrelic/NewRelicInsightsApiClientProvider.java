@@ -263,6 +263,7 @@ public class NewRelicInsightsApiClientProvider implements NewRelicClientProvider
             AtomicInteger totalEvents = new AtomicInteger();
 
             httpClient.post(insightsEndpoint)
+                    .replayable()
                     .withHeader("X-Insert-Key", config.apiKey())
                     .withJsonContent(events.peek(ev -> totalEvents.incrementAndGet()).collect(Collectors.joining(",", "[", "]")))
                     .send()
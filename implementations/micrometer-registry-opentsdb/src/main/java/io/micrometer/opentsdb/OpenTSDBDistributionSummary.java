@@ -132,4 +132,13 @@ public class OpenTSDBDistributionSummary extends AbstractDistributionSummary {
                 histogramCounts(),
                 snapshot::outputSummary);
     }
+
+    @Override
+    public void visitSnapshot(HistogramVisitor visitor) {
+        if (histogram == null) {
+            super.visitSnapshot(visitor);
+        } else {
+            takeSnapshot().accept(visitor);
+        }
+    }
 }
@@ -32,6 +32,7 @@ import io.micrometer.core.instrument.util.DoubleFormat;
 import io.micrometer.core.instrument.util.MeterPartition;
 import io.micrometer.core.instrument.util.NamedThreadFactory;
 import io.micrometer.core.ipc.http.HttpSender;
+import io.micrometer.core.ipc.http.HttpSender.Request.ContentWriter;
 import io.micrometer.core.ipc.http.HttpUrlConnectionSender;
 import io.micrometer.core.lang.Nullable;
 import org.slf4j.Logger;
@@ -45,7 +46,6 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.function.ToDoubleFunction;
 import java.util.function.ToLongFunction;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -157,8 +157,9 @@ public class OpenTSDBMeterRegistry extends PushMeterRegistry {
         for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
             try {
                 httpClient.post(config.uri())
+                        .replayable()
                         .withBasicAuthentication(config.userName(), config.password())
-                        .withJsonContent(
+                        .withJsonContent(ContentWriter.joining(
                                 batch.stream().flatMap(m -> m.match(
                                         this::writeGauge,
                                         this::writeCounter,
@@ -169,7 +170,7 @@ public class OpenTSDBMeterRegistry extends PushMeterRegistry {
                                         this::writeFunctionCounter,
                                         this::writeFunctionTimer,
                                         this::writeCustomMetric)
-                                ).collect(Collectors.joining(",", "[", "]"))
+                                ), ",", "[", "]")
                         )
                         .compress()
                         .send()
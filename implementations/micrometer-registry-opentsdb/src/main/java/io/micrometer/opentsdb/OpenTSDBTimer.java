@@ -125,4 +125,13 @@ public class OpenTSDBTimer extends AbstractTimer {
                 histogramCounts(),
                 snapshot::outputSummary);
     }
+
+    @Override
+    public void visitSnapshot(HistogramVisitor visitor) {
+        if (histogram == null) {
+            super.visitSnapshot(visitor);
+        } else {
+            takeSnapshot().accept(visitor);
+        }
+    }
 }
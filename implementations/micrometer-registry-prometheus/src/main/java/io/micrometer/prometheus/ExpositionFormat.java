@@ -0,0 +1,109 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.prometheus;
+
+import io.micrometer.core.lang.Nullable;
+
+/**
+ * The exposition formats that {@link PrometheusMeterRegistry#scrape(java.io.OutputStream, String)} can write, and the
+ * negotiation between them based on an HTTP {@code Accept} header.
+ */
+enum ExpositionFormat {
+    TEXT_004("text", "text/plain; version=0.0.4; charset=utf-8"),
+    OPENMETRICS_100("openmetrics", "application/openmetrics-text; version=1.0.0; charset=utf-8"),
+    PROTOBUF_DELIMITED("protobuf", "application/vnd.google.protobuf; proto=io.prometheus.client.MetricFamily; encoding=delimited");
+
+    private final String tagValue;
+    private final String contentType;
+
+    ExpositionFormat(String tagValue, String contentType) {
+        this.tagValue = tagValue;
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return The value of the {@code format} tag of scrape metrics.
+     */
+    String getTagValue() {
+        return tagValue;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @param acceptHeader The {@code Accept} header of a scrape request.
+     * @return The supported format with the highest quality in the header, preferring the one listed first when
+     * qualities are equal. Text format 0.0.4 when the header names no other supported format.
+     */
+    static ExpositionFormat negotiate(@Nullable String acceptHeader) {
+        if (acceptHeader == null) {
+            return TEXT_004;
+        }
+
+        ExpositionFormat best = TEXT_004;
+        double bestQuality = 0;
+        for (String mediaRange : acceptHeader.split(",")) {
+            String[] parts = mediaRange.split(";");
+            String mediaType = parts[0].trim().toLowerCase();
+
+            double quality = 1;
+            String proto = null;
+            String encoding = null;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                int equals = parameter.indexOf('=');
+                if (equals < 0) {
+                    continue;
+                }
+                String name = parameter.substring(0, equals).trim().toLowerCase();
+                String value = parameter.substring(equals + 1).trim();
+                switch (name) {
+                    case "q":
+                        try {
+                            quality = Double.parseDouble(value);
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                        break;
+                    case "proto":
+                        proto = value;
+                        break;
+                    case "encoding":
+                        encoding = value;
+                        break;
+                }
+            }
+
+            ExpositionFormat format = null;
+            if (mediaType.equals("application/openmetrics-text")) {
+                format = OPENMETRICS_100;
+            } else if (mediaType.equals("application/vnd.google.protobuf") &&
+                    "io.prometheus.client.MetricFamily".equals(proto) && "delimited".equals(encoding)) {
+                format = PROTOBUF_DELIMITED;
+            } else if (mediaType.equals("text/plain") || mediaType.equals("*/*")) {
+                format = TEXT_004;
+            }
+
+            if (format != null && quality > bestQuality) {
+                best = format;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+}
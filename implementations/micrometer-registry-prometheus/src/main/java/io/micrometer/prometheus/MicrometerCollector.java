@@ -15,14 +15,22 @@
  */
 package io.micrometer.prometheus;
 
+import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.config.NamingConvention;
+import io.micrometer.core.instrument.distribution.FixedBoundaryVictoriaMetricsHistogram;
+import io.micrometer.core.lang.Nullable;
 import io.prometheus.client.Collector;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Stream;
+import java.util.function.DoubleFunction;
 
 import static java.util.stream.Collectors.toList;
 
@@ -33,21 +41,50 @@ import static java.util.stream.Collectors.toList;
  * @author Johnny Lim
  */
 class MicrometerCollector extends Collector implements Collector.Describable {
+    /**
+     * The collectors, by convention name, whose samples the current thread is writing directly. The
+     * {@link io.prometheus.client.CollectorRegistry} they are registered with doesn't collect them again meanwhile.
+     */
+    private static final ThreadLocal<Map<String, MicrometerCollector>> writtenDirectly = new ThreadLocal<>();
+
     private final Meter.Id id;
-    private final Map<List<String>, Child> children = new ConcurrentHashMap<>();
+    private final Clock clock;
+    private final Map<List<String>, LabelledChild> children = new ConcurrentHashMap<>();
     private final String conventionName;
     private final List<String> tagKeys;
     private final String help;
+    private final String escapedHelp;
+    private final String openMetricsHelp;
+    private final Map<String, String> sampleNames = new ConcurrentHashMap<>();
+    private final Map<String, String> createdNames = new ConcurrentHashMap<>();
+
+    /**
+     * Quantile, bucket and range labels, shared by children because they are usually configured alike.
+     */
+    final LabelSeries quantileLabels = new LabelSeries("quantile", Collector::doubleToGoString);
+    final LabelSeries bucketLabels = new LabelSeries("le", Collector::doubleToGoString);
+    final LabelSeries rangeLabels = new LabelSeries("vmrange", FixedBoundaryVictoriaMetricsHistogram::getRangeTagValue);
 
     public MicrometerCollector(Meter.Id id, NamingConvention convention, PrometheusConfig config) {
+        this(id, convention, config, Clock.SYSTEM);
+    }
+
+    /**
+     * @param clock The clock that dates the creation of children, for {@code _created} samples in OpenMetrics.
+     */
+    MicrometerCollector(Meter.Id id, NamingConvention convention, PrometheusConfig config, Clock clock) {
         this.id = id;
+        this.clock = clock;
         this.conventionName = id.getConventionName(convention);
         this.tagKeys = id.getConventionTags(convention).stream().map(Tag::getKey).collect(toList());
         this.help = config.descriptions() ? Optional.ofNullable(id.getDescription()).orElse(" ") : " ";
+        this.escapedHelp = TextFormatWriter.escapeHelp(help);
+        this.openMetricsHelp = OpenMetricsWriter.escapeHelp(help);
     }
 
     public void add(List<String> tagValues, Child child) {
-        children.put(tagValues, child);
+        children.put(tagValues, new LabelledChild(child, tagValues, TextFormatWriter.labels(tagKeys, tagValues),
+                clock.wallTime()));
     }
 
     public void remove(List<String> tagValues) {
@@ -62,15 +99,68 @@ class MicrometerCollector extends Collector implements Collector.Describable {
         return tagKeys;
     }
 
+    /**
+     * @param suffix A suffix such as {@code _count}.
+     * @return The convention name followed by the suffix.
+     */
+    String sampleName(String suffix) {
+        String sampleName = sampleNames.get(suffix);
+        if (sampleName == null) {
+            sampleName = conventionName + suffix;
+            sampleNames.putIfAbsent(suffix, sampleName);
+        }
+        return sampleName;
+    }
+
+    /**
+     * @return The name of the {@code _created} sample of a family in OpenMetrics.
+     */
+    private String createdName(Type familyType, String familyName) {
+        String createdName = createdNames.get(familyName);
+        if (createdName == null) {
+            createdName = OpenMetricsWriter.familyName(familyType, familyName) + "_created";
+            createdNames.putIfAbsent(familyName, createdName);
+        }
+        return createdName;
+    }
+
     @Override
     public List<MetricFamilySamples> collect() {
+        Map<String, MicrometerCollector> written = writtenDirectly.get();
+        if (written != null && written.get(conventionName) == this) {
+            return Collections.emptyList();
+        }
+
         Map<String, Family> families = new HashMap<>();
 
-        for (Child child : children.values()) {
-            child.samples(conventionName, tagKeys).forEach(family -> {
-                families.compute(family.getConventionName(), (name, matchingFamily) -> matchingFamily != null ?
-                        matchingFamily.addSamples(family.samples) : family);
-            });
+        for (LabelledChild labelled : children.values()) {
+            try {
+                labelled.child.samples(conventionName, new SampleSink() {
+                    @Override
+                    public void sample(Type familyType, String familyName, String sampleName, double value) {
+                        family(familyType, familyName).samples.add(
+                                new MetricFamilySamples.Sample(sampleName, tagKeys, labelled.tagValues, value));
+                    }
+
+                    @Override
+                    public void sample(Type familyType, String familyName, String sampleName, ExtraLabel label,
+                                       double value) {
+                        List<String> labelNames = new ArrayList<>(tagKeys);
+                        labelNames.add(label.name);
+                        List<String> labelValues = new ArrayList<>(labelled.tagValues);
+                        labelValues.add(label.value);
+                        family(familyType, familyName).samples.add(
+                                new MetricFamilySamples.Sample(sampleName, labelNames, labelValues, value));
+                    }
+
+                    private Family family(Type familyType, String familyName) {
+                        return families.computeIfAbsent(familyName, name -> new Family(familyType, name));
+                    }
+                });
+            } catch (IOException e) {
+                // never happens, since the sink above doesn't write anywhere
+                throw new UncheckedIOException(e);
+            }
         }
 
         return families.values().stream()
@@ -78,6 +168,81 @@ class MicrometerCollector extends Collector implements Collector.Describable {
                 .collect(toList());
     }
 
+    /**
+     * Write the samples of every child in text format 0.0.4. Samples of the family named after the collector are
+     * written as they are produced. Other families, such as {@code _max} gauges, are small and are buffered until
+     * every child has been visited, so that each family is written contiguously.
+     *
+     * @param writer The scrape output.
+     * @throws IOException If writing fails.
+     */
+    void write(Writer writer) throws IOException {
+        write(writer, null);
+    }
+
+    /**
+     * Write the samples of every child in text format 0.0.4, like {@link #write(Writer)}, leaving out samples whose
+     * name isn't included. Families without any included sample aren't written at all.
+     *
+     * @param writer        The scrape output.
+     * @param includedNames The names of samples to write, or {@code null} to write every sample.
+     * @throws IOException If writing fails.
+     */
+    void write(Writer writer, @Nullable Set<String> includedNames) throws IOException {
+        TextSink sink = new TextSink(writer, includedNames);
+        for (LabelledChild labelled : children.values()) {
+            sink.labels = labelled.labels;
+            labelled.child.samples(conventionName, sink);
+        }
+        sink.finish();
+    }
+
+    /**
+     * Write the samples of every child in OpenMetrics text 1.0.0, in the same order as {@link #write(Writer)}, with
+     * a {@code _created} sample for each counter, summary and histogram of a child.
+     *
+     * @param writer The scrape output.
+     * @throws IOException If writing fails.
+     */
+    void writeOpenMetrics(Writer writer) throws IOException {
+        OpenMetricsSink sink = new OpenMetricsSink(writer);
+        for (LabelledChild labelled : children.values()) {
+            sink.labels = labelled.labels;
+            labelled.child.samples(conventionName, sink);
+            sink.endChild(labelled);
+        }
+        sink.finish();
+    }
+
+    /**
+     * Write the samples of every child in the delimited protobuf format.
+     *
+     * @param out The scrape output.
+     * @throws IOException If writing fails.
+     */
+    void writeProtobuf(OutputStream out) throws IOException {
+        ProtobufWriter writer = new ProtobufWriter(help);
+        for (LabelledChild labelled : children.values()) {
+            writer.child(labelled.protobufLabels(tagKeys));
+            labelled.child.samples(conventionName, writer);
+            writer.endChild();
+        }
+        writer.writeTo(out);
+    }
+
+    /**
+     * Run {@code action} with the given collectors excluded from collection on this thread, because their samples
+     * have already been written directly.
+     */
+    static void excludingCollection(Map<String, MicrometerCollector> collectors, IOAction action) throws IOException {
+        writtenDirectly.set(collectors);
+        try {
+            action.run();
+        } finally {
+            writtenDirectly.remove();
+        }
+    }
+
     @Override
     public List<MetricFamilySamples> describe() {
         switch (id.getType()) {
@@ -107,33 +272,293 @@ class MicrometerCollector extends Collector implements Collector.Describable {
     }
 
     interface Child {
-        Stream<Family> samples(String conventionName, List<String> tagKeys);
+        void samples(String conventionName, SampleSink samples) throws IOException;
     }
 
-    static class Family {
-        final Type type;
-        final String conventionName;
-        final List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+    /**
+     * Receives the samples of a child, which are labelled with the child's tags.
+     */
+    interface SampleSink {
+        void sample(Type familyType, String familyName, String sampleName, double value) throws IOException;
 
-        Family(Type type, String conventionName, MetricFamilySamples.Sample... samples) {
-            this.type = type;
-            this.conventionName = conventionName;
-            Collections.addAll(this.samples, samples);
+        /**
+         * A sample with one more label after the child's tags, such as {@code le} or {@code quantile}.
+         */
+        void sample(Type familyType, String familyName, String sampleName, ExtraLabel label, double value) throws IOException;
+
+        /**
+         * @return Whether the format only allows the samples that fit the type of their family, like OpenMetrics and
+         * the protobuf format, as opposed to text format 0.0.4.
+         */
+        default boolean isStrict() {
+            return false;
         }
+    }
 
-        Family(Type type, String conventionName, Stream<MetricFamilySamples.Sample> samples) {
-            this.type = type;
-            this.conventionName = conventionName;
-            samples.forEach(this.samples::add);
+    /**
+     * A label that follows the tags of a child, rendered once.
+     */
+    static final class ExtraLabel {
+        final String name;
+        final String value;
+        final String text;
+        final byte[] protobuf;
+
+        // the number the value was formatted from, if any
+        final double number;
+
+        ExtraLabel(String name, String value) {
+            this(name, value, Double.NaN);
+        }
+
+        ExtraLabel(String name, String value, double number) {
+            this.name = name;
+            this.value = value;
+            this.text = TextFormatWriter.label(name, value);
+            this.protobuf = ProtobufWriter.label(name, value);
+            this.number = number;
+        }
+    }
+
+    /**
+     * Labels formatted from a series of numbers that rarely changes, such as the bucket boundaries of a histogram.
+     * Each label is formatted the first time it's needed and reused as long as the number at its position stays the
+     * same.
+     */
+    static final class LabelSeries {
+        private final String name;
+        private final DoubleFunction<String> format;
+        private volatile ExtraLabel[] labels = new ExtraLabel[0];
+
+        LabelSeries(String name, DoubleFunction<String> format) {
+            this.name = name;
+            this.format = format;
+        }
+
+        ExtraLabel get(int index, double number) {
+            ExtraLabel[] labels = this.labels;
+            if (index < labels.length) {
+                ExtraLabel label = labels[index];
+                if (label != null && Double.compare(label.number, number) == 0) {
+                    return label;
+                }
+            }
+
+            ExtraLabel label = new ExtraLabel(name, format.apply(number), number);
+            // concurrent scrapes may race to store equal labels, which is harmless
+            ExtraLabel[] updated = Arrays.copyOf(labels, Math.max(labels.length, index + 1));
+            updated[index] = label;
+            this.labels = updated;
+            return label;
+        }
+    }
+
+    @FunctionalInterface
+    interface IOAction {
+        void run() throws IOException;
+    }
+
+    private static class LabelledChild {
+        final Child child;
+        final List<String> tagValues;
+        final String labels;
+        final long createdMillis;
+
+        // rendered on first use, since most scrapes use a single format
+        @Nullable
+        private volatile byte[] protobufLabels;
+
+        @Nullable
+        private volatile String created;
+
+        LabelledChild(Child child, List<String> tagValues, String labels, long createdMillis) {
+            this.child = child;
+            this.tagValues = tagValues;
+            this.labels = labels;
+            this.createdMillis = createdMillis;
+        }
+
+        byte[] protobufLabels(List<String> tagKeys) {
+            byte[] protobufLabels = this.protobufLabels;
+            if (protobufLabels == null) {
+                protobufLabels = ProtobufWriter.labels(tagKeys, tagValues);
+                this.protobufLabels = protobufLabels;
+            }
+            return protobufLabels;
+        }
+
+        String created() {
+            String created = this.created;
+            if (created == null) {
+                created = doubleToGoString(createdMillis / 1000.0);
+                this.created = created;
+            }
+            return created;
+        }
+    }
+
+    private class TextSink implements SampleSink {
+        private final Writer writer;
+        private String labels = "";
+
+        @Nullable
+        private String streamedFamily;
+
+        @Nullable
+        private Map<String, StringWriter> bufferedFamilies;
+
+        @Nullable
+        private final Set<String> includedNames;
+
+        TextSink(Writer writer, @Nullable Set<String> includedNames) {
+            this.writer = writer;
+            this.includedNames = includedNames;
+        }
+
+        @Override
+        public void sample(Type familyType, String familyName, String sampleName, double value) throws IOException {
+            if (isIncluded(sampleName)) {
+                TextFormatWriter.writeSample(family(familyType, familyName), sampleName, labels, value);
+            }
+        }
+
+        @Override
+        public void sample(Type familyType, String familyName, String sampleName, ExtraLabel label, double value) throws IOException {
+            if (isIncluded(sampleName)) {
+                TextFormatWriter.writeSample(family(familyType, familyName), sampleName, labels, label.text, value);
+            }
+        }
+
+        private boolean isIncluded(String sampleName) {
+            return includedNames == null || includedNames.contains(sampleName);
+        }
+
+        private Writer family(Type familyType, String familyName) throws IOException {
+            if (streamedFamily == null) {
+                streamedFamily = familyName;
+                TextFormatWriter.writeHeader(writer, familyName, escapedHelp, familyType);
+            }
+            if (streamedFamily.equals(familyName)) {
+                return writer;
+            }
+
+            if (bufferedFamilies == null) {
+                bufferedFamilies = new LinkedHashMap<>();
+            }
+            StringWriter buffer = bufferedFamilies.get(familyName);
+            if (buffer == null) {
+                buffer = new StringWriter();
+                TextFormatWriter.writeHeader(buffer, familyName, escapedHelp, familyType);
+                bufferedFamilies.put(familyName, buffer);
+            }
+            return buffer;
+        }
+
+        void finish() throws IOException {
+            if (bufferedFamilies != null) {
+                for (StringWriter buffer : bufferedFamilies.values()) {
+                    writer.write(buffer.toString());
+                }
+            }
+        }
+    }
+
+    private class OpenMetricsSink implements SampleSink {
+        private final Writer writer;
+        private String labels = "";
+
+        @Nullable
+        private String streamedFamily;
+
+        @Nullable
+        private Map<String, StringWriter> bufferedFamilies;
+
+        // the families of the current child that need a _created sample, and the name of that sample
+        private final List<Writer> createdFamilies = new ArrayList<>(2);
+        private final List<String> createdSamples = new ArrayList<>(2);
+
+        OpenMetricsSink(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void sample(Type familyType, String familyName, String sampleName, double value) throws IOException {
+            OpenMetricsWriter.writeSample(family(familyType, familyName, sampleName, null), sampleName, labels,
+                    doubleToGoString(value));
         }
 
-        String getConventionName() {
-            return conventionName;
+        @Override
+        public void sample(Type familyType, String familyName, String sampleName, ExtraLabel label, double value) throws IOException {
+            OpenMetricsWriter.writeSample(family(familyType, familyName, sampleName, label.name), sampleName, labels,
+                    label.text, doubleToGoString(value));
         }
 
-        Family addSamples(Collection<MetricFamilySamples.Sample> samples) {
-            this.samples.addAll(samples);
-            return this;
+        @Override
+        public boolean isStrict() {
+            return true;
+        }
+
+        private Writer family(Type familyType, String familyName, String sampleName, @Nullable String labelName) throws IOException {
+            if (SampleRole.of(familyType, familyName, sampleName, labelName) == SampleRole.OTHER &&
+                    !sampleName.equals(familyName)) {
+                // a series that OpenMetrics doesn't allow in its family, such as the active count of a long task timer
+                return family(Type.UNTYPED, sampleName);
+            }
+
+            Writer family = family(familyType, familyName);
+            if (OpenMetricsWriter.hasCreated(familyType, familyName) && !createdFamilies.contains(family)) {
+                createdFamilies.add(family);
+                createdSamples.add(createdName(familyType, familyName));
+            }
+            return family;
+        }
+
+        private Writer family(Type familyType, String familyName) throws IOException {
+            if (streamedFamily == null) {
+                streamedFamily = familyName;
+                OpenMetricsWriter.writeHeader(writer, familyName, openMetricsHelp, familyType);
+            }
+            if (streamedFamily.equals(familyName)) {
+                return writer;
+            }
+
+            if (bufferedFamilies == null) {
+                bufferedFamilies = new LinkedHashMap<>();
+            }
+            StringWriter buffer = bufferedFamilies.get(familyName);
+            if (buffer == null) {
+                buffer = new StringWriter();
+                OpenMetricsWriter.writeHeader(buffer, familyName, openMetricsHelp, familyType);
+                bufferedFamilies.put(familyName, buffer);
+            }
+            return buffer;
+        }
+
+        void endChild(LabelledChild labelled) throws IOException {
+            for (int i = 0; i < createdFamilies.size(); i++) {
+                OpenMetricsWriter.writeSample(createdFamilies.get(i), createdSamples.get(i), labels, labelled.created());
+            }
+            createdFamilies.clear();
+            createdSamples.clear();
+        }
+
+        void finish() throws IOException {
+            if (bufferedFamilies != null) {
+                for (StringWriter buffer : bufferedFamilies.values()) {
+                    writer.write(buffer.toString());
+                }
+            }
+        }
+    }
+
+    static class Family {
+        final Type type;
+        final String conventionName;
+        final List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+
+        Family(Type type, String conventionName) {
+            this.type = type;
+            this.conventionName = conventionName;
         }
     }
 }
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.prometheus;
+
+import io.prometheus.client.Collector;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Enumeration;
+
+/**
+ * Writes OpenMetrics text 1.0.0. Labels are rendered by {@link TextFormatWriter}, whose escaping is the same, and
+ * written without the trailing comma that text format 0.0.4 tolerates. Micrometer records no exemplars, so none are
+ * written.
+ */
+final class OpenMetricsWriter {
+    private OpenMetricsWriter() {
+    }
+
+    static String escapeHelp(String help) {
+        StringBuilder escaped = new StringBuilder(help.length());
+        for (int i = 0; i < help.length(); i++) {
+            char c = help.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\"':
+                    escaped.append("\\\"");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * OpenMetrics names a counter family without the {@code _total} suffix of its samples. A counter whose name
+     * lacks the suffix can't be written as a counter, so it is written as a family of unknown type instead.
+     */
+    static boolean isCounter(Collector.Type type, String familyName) {
+        return type == Collector.Type.COUNTER && familyName.endsWith("_total");
+    }
+
+    /**
+     * @return The name of the family in OpenMetrics, from the name of the family in text format 0.0.4.
+     */
+    static String familyName(Collector.Type type, String familyName) {
+        return isCounter(type, familyName) ? familyName.substring(0, familyName.length() - "_total".length()) : familyName;
+    }
+
+    /**
+     * @return Whether children in a family of this type have a {@code _created} sample.
+     */
+    static boolean hasCreated(Collector.Type type, String familyName) {
+        return isCounter(type, familyName) || type == Collector.Type.SUMMARY || type == Collector.Type.HISTOGRAM;
+    }
+
+    /**
+     * @param familyName  The name of the family in text format 0.0.4.
+     * @param escapedHelp Help, as returned by {@link #escapeHelp(String)}.
+     */
+    static void writeHeader(Writer writer, String familyName, String escapedHelp, Collector.Type type) throws IOException {
+        String name = familyName(type, familyName);
+        writer.write("# TYPE ");
+        writer.write(name);
+        writer.write(' ');
+        writer.write(typeString(type, familyName));
+        writer.write("\n# HELP ");
+        writer.write(name);
+        writer.write(' ');
+        writer.write(escapedHelp);
+        writer.write('\n');
+    }
+
+    /**
+     * @param labels Escaped labels, as returned by {@link TextFormatWriter#labels(java.util.List, java.util.List)}.
+     */
+    static void writeSample(Writer writer, String sampleName, String labels, String value) throws IOException {
+        writer.write(sampleName);
+        if (!labels.isEmpty()) {
+            writer.write('{');
+            writer.write(labels, 0, labels.length() - 1);
+            writer.write('}');
+        }
+        writeValue(writer, value);
+    }
+
+    /**
+     * @param labels Escaped labels, as returned by {@link TextFormatWriter#labels(java.util.List, java.util.List)}.
+     * @param label  One more escaped label, as returned by {@link TextFormatWriter#label(String, String)}.
+     */
+    static void writeSample(Writer writer, String sampleName, String labels, String label, String value) throws IOException {
+        writer.write(sampleName);
+        writer.write('{');
+        writer.write(labels);
+        writer.write(label, 0, label.length() - 1);
+        writer.write('}');
+        writeValue(writer, value);
+    }
+
+    static void writeEof(Writer writer) throws IOException {
+        writer.write("# EOF\n");
+    }
+
+    /**
+     * Write families collected by collectors other than Micrometer's.
+     */
+    static void write(Writer writer, Enumeration<Collector.MetricFamilySamples> families) throws IOException {
+        while (families.hasMoreElements()) {
+            Collector.MetricFamilySamples family = families.nextElement();
+            String familyName = family.name;
+            if (family.type == Collector.Type.COUNTER && !familyName.endsWith("_total") && !family.samples.isEmpty() &&
+                    family.samples.get(0).name.equals(familyName + "_total")) {
+                // newer client versions name counter families without the suffix of their samples
+                familyName += "_total";
+            }
+            writeHeader(writer, familyName, escapeHelp(family.help), family.type);
+            for (Collector.MetricFamilySamples.Sample sample : family.samples) {
+                String value = Collector.doubleToGoString(sample.value);
+                if (sample.timestampMs != null) {
+                    value += ' ' + Collector.doubleToGoString(sample.timestampMs / 1000.0);
+                }
+                writeSample(writer, sample.name, TextFormatWriter.labels(sample.labelNames, sample.labelValues), value);
+            }
+        }
+    }
+
+    private static void writeValue(Writer writer, String value) throws IOException {
+        writer.write(' ');
+        writer.write(value);
+        writer.write('\n');
+    }
+
+    private static String typeString(Collector.Type type, String familyName) {
+        switch (type) {
+            case GAUGE:
+                return "gauge";
+            case COUNTER:
+                return isCounter(type, familyName) ? "counter" : "unknown";
+            case SUMMARY:
+                return "summary";
+            case HISTOGRAM:
+                return "histogram";
+            default:
+                return "unknown";
+        }
+    }
+}
@@ -15,11 +15,14 @@
  */
 package io.micrometer.prometheus;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.config.MeterRegistryConfig;
+import io.micrometer.core.instrument.config.validate.InvalidReason;
 import io.micrometer.core.instrument.config.validate.Validated;
 
 import java.time.Duration;
 
+import static io.micrometer.core.instrument.config.MeterRegistryConfigValidator.check;
 import static io.micrometer.core.instrument.config.MeterRegistryConfigValidator.checkAll;
 import static io.micrometer.core.instrument.config.MeterRegistryConfigValidator.checkRequired;
 import static io.micrometer.core.instrument.config.validate.PropertyValidator.*;
@@ -66,11 +69,25 @@ public interface PrometheusConfig extends MeterRegistryConfig {
         return getEnum(this, HistogramFlavor.class, "histogramFlavor").orElse(HistogramFlavor.Prometheus);
     }
 
+    /**
+     * @return How long a rendered scrape is reused for later scrapes in the same format. Scrapes that arrive while
+     * one is being rendered wait for it instead of rendering their own. When enabled, renderings are timed and sized
+     * under {@code prometheus.scrape} and {@code prometheus.scrape.size}. The default is zero, which renders every
+     * scrape as it happens.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    default Duration scrapeCacheTtl() {
+        return getDuration(this, "scrapeCacheTtl").orElse(Duration.ZERO);
+    }
+
     @Override
     default Validated<?> validate() {
         return checkAll(this,
                 checkRequired("step", PrometheusConfig::step),
-                checkRequired("histogramFlavor", PrometheusConfig::histogramFlavor)
+                checkRequired("histogramFlavor", PrometheusConfig::histogramFlavor),
+                check("scrapeCacheTtl", PrometheusConfig::scrapeCacheTtl)
+                        .andThen(v -> v.invalidateWhen(Duration::isNegative, "must not be negative", InvalidReason.MALFORMED))
         );
     }
 }
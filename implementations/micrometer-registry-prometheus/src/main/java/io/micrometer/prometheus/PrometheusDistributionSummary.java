@@ -133,4 +133,13 @@ public class PrometheusDistributionSummary extends AbstractDistributionSummary {
                 histogramCounts(),
                 snapshot::outputSummary);
     }
+
+    @Override
+    public void visitSnapshot(HistogramVisitor visitor) {
+        if (histogram == null) {
+            super.visitSnapshot(visitor);
+        } else {
+            takeSnapshot().accept(visitor);
+        }
+    }
 }
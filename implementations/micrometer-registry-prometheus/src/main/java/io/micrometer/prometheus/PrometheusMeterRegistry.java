@@ -15,7 +15,9 @@
  */
 package io.micrometer.prometheus;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.binder.BaseUnits;
 import io.micrometer.core.instrument.cumulative.CumulativeFunctionCounter;
 import io.micrometer.core.instrument.cumulative.CumulativeFunctionTimer;
 import io.micrometer.core.instrument.distribution.*;
@@ -28,20 +30,24 @@ import io.prometheus.client.Collector;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.exporter.common.TextFormat;
 
-import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
-import java.util.LinkedList;
+import java.io.*;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.ToDoubleFunction;
 import java.util.function.ToLongFunction;
-import java.util.stream.Stream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.StreamSupport.stream;
@@ -53,10 +59,28 @@ import static java.util.stream.StreamSupport.stream;
  * @author Johnny Lim
  */
 public class PrometheusMeterRegistry extends MeterRegistry {
+    private static final MicrometerCollector.ExtraLabel INFINITY_BUCKET_LABEL = new MicrometerCollector.ExtraLabel("le", "+Inf",
+            Double.POSITIVE_INFINITY);
+    private static final Map<Statistic, MicrometerCollector.ExtraLabel> STATISTIC_LABELS = new EnumMap<>(Statistic.class);
+
+    static {
+        for (Statistic statistic : Statistic.values()) {
+            STATISTIC_LABELS.put(statistic, new MicrometerCollector.ExtraLabel("statistic", statistic.toString()));
+        }
+    }
+
     private final PrometheusConfig prometheusConfig;
     private final CollectorRegistry registry;
     private final ConcurrentMap<String, MicrometerCollector> collectorMap = new ConcurrentHashMap<>();
 
+    @Nullable
+    private final ScrapeCache scrapeCache;
+
+    // registered on the first rendering of each format, so that meter filters configured after construction apply
+    private final AtomicReferenceArray<Timer> scrapeTimers = new AtomicReferenceArray<>(ExpositionFormat.values().length);
+    private final AtomicReferenceArray<DistributionSummary> scrapeSizes =
+            new AtomicReferenceArray<>(ExpositionFormat.values().length);
+
     public PrometheusMeterRegistry(PrometheusConfig config) {
         this(config, new CollectorRegistry(), Clock.SYSTEM);
     }
@@ -69,6 +93,9 @@ public class PrometheusMeterRegistry extends MeterRegistry {
         this.prometheusConfig = config;
         this.registry = registry;
 
+        Duration scrapeCacheTtl = config.scrapeCacheTtl();
+        this.scrapeCache = scrapeCacheTtl.isZero() ? null : new ScrapeCache(clock, scrapeCacheTtl);
+
         config().namingConvention(new PrometheusNamingConvention());
         config().onMeterRemoved(this::onMeterRemoved);
     }
@@ -100,97 +127,227 @@ public class PrometheusMeterRegistry extends MeterRegistry {
      * @since 1.2.0
      */
     public void scrape(Writer writer) throws IOException {
-        TextFormat.write004(writer, registry.metricFamilySamples());
+        if (scrapeCache != null) {
+            writer.write(cachedScrape(scrapeCache, ExpositionFormat.TEXT_004).text());
+        } else {
+            scrapeText(writer);
+        }
+    }
+
+    private void scrapeText(Writer writer) throws IOException {
+        for (MicrometerCollector collector : collectorMap.values()) {
+            collector.write(writer);
+        }
+
+        // collectors that others registered with the same CollectorRegistry
+        MicrometerCollector.excludingCollection(collectorMap,
+                () -> TextFormat.write004(writer, registry.metricFamilySamples()));
+    }
+
+    /**
+     * Scrape only the samples with the given names to the specified writer, as a {@code name[]} parameter of a
+     * federation or sidecar request would ask for. Only the collectors that may have samples with those names are
+     * looked at, so the cost of the scrape depends on what is selected rather than on the size of the registry.
+     *
+     * @param writer        Target that serves the content to be scraped by Prometheus.
+     * @param includedNames Names of the samples to include, such as {@code http_server_requests_seconds_count}.
+     *                      Every sample is included when empty.
+     * @throws IOException if writing fails
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    public void scrape(Writer writer, Set<String> includedNames) throws IOException {
+        if (includedNames.isEmpty()) {
+            scrape(writer);
+            return;
+        }
+
+        for (MicrometerCollector collector : collectorsFor(includedNames)) {
+            collector.write(writer, includedNames);
+        }
+
+        MicrometerCollector.excludingCollection(collectorMap,
+                () -> TextFormat.write004(writer, registry.filteredMetricFamilySamples(includedNames)));
+    }
+
+    /**
+     * A sample is named after its collector, possibly followed by a suffix such as {@code _count}, so the collectors
+     * that may have a sample with a given name are those named after one of its prefixes that ends before an
+     * underscore.
+     */
+    private Collection<MicrometerCollector> collectorsFor(Set<String> sampleNames) {
+        Map<String, MicrometerCollector> collectors = new LinkedHashMap<>();
+        for (String sampleName : sampleNames) {
+            for (int end = sampleName.length(); end > 0; end = sampleName.lastIndexOf('_', end - 1)) {
+                String name = sampleName.substring(0, end);
+                MicrometerCollector collector = collectorMap.get(name);
+                if (collector != null) {
+                    collectors.putIfAbsent(name, collector);
+                }
+            }
+        }
+        return collectors.values();
+    }
+
+    /**
+     * Scrape to the specified output stream in the format preferred by the scraper: Prometheus text format 0.0.4,
+     * OpenMetrics text 1.0.0, or the delimited protobuf format.
+     *
+     * @param outputStream Target that serves the content to be scraped by Prometheus. It is flushed, not closed.
+     * @param acceptHeader The {@code Accept} header of the scrape request, if any.
+     * @return The content type of what was written, for the {@code Content-Type} header of the response.
+     * @throws IOException if writing fails
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    public String scrape(OutputStream outputStream, @Nullable String acceptHeader) throws IOException {
+        ExpositionFormat format = ExpositionFormat.negotiate(acceptHeader);
+        if (scrapeCache != null) {
+            outputStream.write(cachedScrape(scrapeCache, format).bytes);
+            outputStream.flush();
+        } else {
+            scrape(format, outputStream);
+        }
+        return format.getContentType();
+    }
+
+    private void scrape(ExpositionFormat format, OutputStream outputStream) throws IOException {
+        switch (format) {
+            case PROTOBUF_DELIMITED:
+                OutputStream out = new BufferedOutputStream(outputStream);
+                scrapeProtobuf(out);
+                out.flush();
+                break;
+            case OPENMETRICS_100:
+                Writer openMetricsWriter = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8));
+                scrapeOpenMetrics(openMetricsWriter);
+                openMetricsWriter.flush();
+                break;
+            default:
+                Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8));
+                scrapeText(writer);
+                writer.flush();
+        }
+    }
+
+    /**
+     * Render a scrape unless a recent or concurrent one can be reused. Renderings are timed and sized under
+     * {@code prometheus.scrape} and {@code prometheus.scrape.size}, tagged with their format.
+     */
+    private ScrapeCache.Scrape cachedScrape(ScrapeCache cache, ExpositionFormat format) throws IOException {
+        return cache.get(format, () -> {
+            long start = clock.monotonicTime();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            scrape(format, out);
+            byte[] rendered = out.toByteArray();
+            recordScrape(format, start, rendered.length);
+            return rendered;
+        });
+    }
+
+    private void recordScrape(ExpositionFormat format, long startNanos, long bytes) {
+        int slot = format.ordinal();
+
+        // registering again returns the same meters, so racing to register is harmless
+        Timer timer = scrapeTimers.get(slot);
+        if (timer == null) {
+            timer = Timer.builder("prometheus.scrape")
+                    .description("Time spent rendering a scrape")
+                    .tag("format", format.getTagValue())
+                    .register(this);
+            scrapeTimers.set(slot, timer);
+        }
+        DistributionSummary size = scrapeSizes.get(slot);
+        if (size == null) {
+            size = DistributionSummary.builder("prometheus.scrape.size")
+                    .description("Size of a rendered scrape")
+                    .baseUnit(BaseUnits.BYTES)
+                    .tag("format", format.getTagValue())
+                    .register(this);
+            scrapeSizes.set(slot, size);
+        }
+
+        timer.record(clock.monotonicTime() - startNanos, TimeUnit.NANOSECONDS);
+        size.record(bytes);
+    }
+
+    private void scrapeOpenMetrics(Writer writer) throws IOException {
+        for (MicrometerCollector collector : collectorMap.values()) {
+            collector.writeOpenMetrics(writer);
+        }
+        MicrometerCollector.excludingCollection(collectorMap,
+                () -> OpenMetricsWriter.write(writer, registry.metricFamilySamples()));
+        OpenMetricsWriter.writeEof(writer);
+    }
+
+    private void scrapeProtobuf(OutputStream outputStream) throws IOException {
+        for (MicrometerCollector collector : collectorMap.values()) {
+            collector.writeProtobuf(outputStream);
+        }
+        MicrometerCollector.excludingCollection(collectorMap,
+                () -> ProtobufWriter.write(outputStream, registry.metricFamilySamples()));
     }
 
     @Override
     public Counter newCounter(Meter.Id id) {
         PrometheusCounter counter = new PrometheusCounter(id);
-        applyToCollector(id, (collector) -> {
-            List<String> tagValues = tagValues(id);
-            collector.add(tagValues, (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.COUNTER, conventionName,
-                    new Collector.MetricFamilySamples.Sample(conventionName, tagKeys, tagValues, counter.count()))));
-        });
+        applyToCollector(id, (collector) ->
+                collector.add(tagValues(id), (conventionName, samples) ->
+                        samples.sample(Collector.Type.COUNTER, conventionName, conventionName, counter.count())));
         return counter;
     }
 
     @Override
     public DistributionSummary newDistributionSummary(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, double scale) {
         PrometheusDistributionSummary summary = new PrometheusDistributionSummary(id, clock, distributionStatisticConfig, scale, prometheusConfig.histogramFlavor());
-        applyToCollector(id, (collector) -> {
-            List<String> tagValues = tagValues(id);
-            collector.add(tagValues, (conventionName, tagKeys) -> {
-                Stream.Builder<Collector.MetricFamilySamples.Sample> samples = Stream.builder();
-
-                final ValueAtPercentile[] percentileValues = summary.takeSnapshot().percentileValues();
-                final CountAtBucket[] histogramCounts = summary.histogramCounts();
-                double count = summary.count();
+        applyToCollector(id, (collector) ->
+                collector.add(tagValues(id), (conventionName, samples) -> {
+                    final ValueAtPercentile[] percentileValues = summary.takeSnapshot().percentileValues();
+                    final CountAtBucket[] histogramCounts = summary.histogramCounts();
+                    double count = summary.count();
 
-                if (percentileValues.length > 0) {
-                    List<String> quantileKeys = new LinkedList<>(tagKeys);
-                    quantileKeys.add("quantile");
+                    Collector.Type type = distributionType(samples, histogramCounts.length > 0,
+                            percentileValues.length > 0, summary.histogramFlavor());
 
                     // satisfies https://prometheus.io/docs/concepts/metric_types/#summary
-                    for (ValueAtPercentile v : percentileValues) {
-                        List<String> quantileValues = new LinkedList<>(tagValues);
-                        quantileValues.add(Collector.doubleToGoString(v.percentile()));
-                        samples.add(new Collector.MetricFamilySamples.Sample(
-                                conventionName, quantileKeys, quantileValues, v.value()));
+                    for (int i = 0; i < percentileValues.length; i++) {
+                        ValueAtPercentile v = percentileValues[i];
+                        samples.sample(type, conventionName, conventionName,
+                                collector.quantileLabels.get(i, v.percentile()), v.value());
                     }
-                }
 
-                Collector.Type type = Collector.Type.SUMMARY;
-                if (histogramCounts.length > 0) {
-                    // Prometheus doesn't balk at a metric being BOTH a histogram and a summary
-                    type = Collector.Type.HISTOGRAM;
-
-                    List<String> histogramKeys = new LinkedList<>(tagKeys);
-                    String sampleName = conventionName + "_bucket";
-                    switch (summary.histogramFlavor()) {
-                        case Prometheus:
-                            histogramKeys.add("le");
-
-                            // satisfies https://prometheus.io/docs/concepts/metric_types/#histogram
-                            for (CountAtBucket c : histogramCounts) {
-                                final List<String> histogramValues = new LinkedList<>(tagValues);
-                                histogramValues.add(Collector.doubleToGoString(c.bucket()));
-                                samples.add(new Collector.MetricFamilySamples.Sample(
-                                        sampleName, histogramKeys, histogramValues, c.count()));
-                            }
-
-                            // the +Inf bucket should always equal `count`
-                            final List<String> histogramValues = new LinkedList<>(tagValues);
-                            histogramValues.add("+Inf");
-                            samples.add(new Collector.MetricFamilySamples.Sample(
-                                    sampleName, histogramKeys, histogramValues, count));
-                            break;
-                        case VictoriaMetrics:
-                            histogramKeys.add("vmrange");
-
-                            for (CountAtBucket c : histogramCounts) {
-                                final List<String> histogramValuesVM = new LinkedList<>(tagValues);
-                                histogramValuesVM.add(FixedBoundaryVictoriaMetricsHistogram.getRangeTagValue(c.bucket()));
-                                samples.add(new Collector.MetricFamilySamples.Sample(
-                                        sampleName, histogramKeys, histogramValuesVM, c.count()));
-                            }
-                            break;
-                        default:
-                            break;
+                    if (histogramCounts.length > 0) {
+                        String sampleName = collector.sampleName("_bucket");
+                        switch (summary.histogramFlavor()) {
+                            case Prometheus:
+                                // satisfies https://prometheus.io/docs/concepts/metric_types/#histogram
+                                for (int i = 0; i < histogramCounts.length; i++) {
+                                    CountAtBucket c = histogramCounts[i];
+                                    samples.sample(type, conventionName, sampleName,
+                                            collector.bucketLabels.get(i, c.bucket()), c.count());
+                                }
+
+                                // the +Inf bucket should always equal `count`
+                                samples.sample(type, conventionName, sampleName, INFINITY_BUCKET_LABEL, count);
+                                break;
+                            case VictoriaMetrics:
+                                for (int i = 0; i < histogramCounts.length; i++) {
+                                    CountAtBucket c = histogramCounts[i];
+                                    samples.sample(type, conventionName, sampleName,
+                                            collector.rangeLabels.get(i, c.bucket()), c.count());
+                                }
+                                break;
+                            default:
+                                break;
+                        }
                     }
 
-                }
-
-                samples.add(new Collector.MetricFamilySamples.Sample(
-                        conventionName + "_count", tagKeys, tagValues, count));
-
-                samples.add(new Collector.MetricFamilySamples.Sample(
-                        conventionName + "_sum", tagKeys, tagValues, summary.totalAmount()));
+                    samples.sample(type, conventionName, collector.sampleName("_count"), count);
+                    samples.sample(type, conventionName, collector.sampleName("_sum"), summary.totalAmount());
 
-                return Stream.of(new MicrometerCollector.Family(type, conventionName, samples.build()),
-                        new MicrometerCollector.Family(Collector.Type.GAUGE, conventionName + "_max",
-                                new Collector.MetricFamilySamples.Sample(conventionName + "_max", tagKeys, tagValues, summary.max())));
-            });
-        });
+                    String maxName = collector.sampleName("_max");
+                    samples.sample(Collector.Type.GAUGE, maxName, maxName, summary.max());
+                }));
         return summary;
     }
 
@@ -205,11 +362,9 @@ public class PrometheusMeterRegistry extends MeterRegistry {
     @Override
     protected <T> io.micrometer.core.instrument.Gauge newGauge(Meter.Id id, @Nullable T obj, ToDoubleFunction<T> valueFunction) {
         Gauge gauge = new DefaultGauge<>(id, obj, valueFunction);
-        applyToCollector(id, (collector) -> {
-            List<String> tagValues = tagValues(id);
-            collector.add(tagValues, (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.GAUGE, conventionName,
-                    new Collector.MetricFamilySamples.Sample(conventionName, tagKeys, tagValues, gauge.value()))));
-        });
+        applyToCollector(id, (collector) ->
+                collector.add(tagValues(id), (conventionName, samples) ->
+                        samples.sample(Collector.Type.GAUGE, conventionName, conventionName, gauge.value())));
         return gauge;
     }
 
@@ -224,25 +379,20 @@ public class PrometheusMeterRegistry extends MeterRegistry {
     @Override
     protected <T> FunctionTimer newFunctionTimer(Meter.Id id, T obj, ToLongFunction<T> countFunction, ToDoubleFunction<T> totalTimeFunction, TimeUnit totalTimeFunctionUnit) {
         FunctionTimer ft = new CumulativeFunctionTimer<>(id, obj, countFunction, totalTimeFunction, totalTimeFunctionUnit, getBaseTimeUnit());
-        applyToCollector(id, (collector) -> {
-            List<String> tagValues = tagValues(id);
-            collector.add(tagValues, (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.SUMMARY, conventionName,
-                    new Collector.MetricFamilySamples.Sample(conventionName + "_count", tagKeys, tagValues, ft.count()),
-                    new Collector.MetricFamilySamples.Sample(conventionName + "_sum", tagKeys, tagValues, ft.totalTime(TimeUnit.SECONDS))
-            )));
-        });
+        applyToCollector(id, (collector) ->
+                collector.add(tagValues(id), (conventionName, samples) -> {
+                    samples.sample(Collector.Type.SUMMARY, conventionName, collector.sampleName("_count"), ft.count());
+                    samples.sample(Collector.Type.SUMMARY, conventionName, collector.sampleName("_sum"), ft.totalTime(TimeUnit.SECONDS));
+                }));
         return ft;
     }
 
     @Override
     protected <T> FunctionCounter newFunctionCounter(Meter.Id id, T obj, ToDoubleFunction<T> countFunction) {
         FunctionCounter fc = new CumulativeFunctionCounter<>(id, obj, countFunction);
-        applyToCollector(id, (collector) -> {
-            List<String> tagValues = tagValues(id);
-            collector.add(tagValues, (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.COUNTER, conventionName,
-                    new Collector.MetricFamilySamples.Sample(conventionName, tagKeys, tagValues, fc.count())
-            )));
-        });
+        applyToCollector(id, (collector) ->
+                collector.add(tagValues(id), (conventionName, samples) ->
+                        samples.sample(Collector.Type.COUNTER, conventionName, conventionName, fc.count())));
         return fc;
     }
 
@@ -264,39 +414,29 @@ public class PrometheusMeterRegistry extends MeterRegistry {
 
         final Collector.Type finalPromType = promType;
 
-        applyToCollector(id, (collector) -> {
-            List<String> tagValues = tagValues(id);
-            collector.add(tagValues, (conventionName, tagKeys) -> {
-                List<String> statKeys = new LinkedList<>(tagKeys);
-                statKeys.add("statistic");
-
-                return Stream.of(new MicrometerCollector.Family(finalPromType, conventionName,
-                        stream(measurements.spliterator(), false)
-                                .map(m -> {
-                                    List<String> statValues = new LinkedList<>(tagValues);
-                                    statValues.add(m.getStatistic().toString());
-
-                                    String name = conventionName;
-                                    switch (m.getStatistic()) {
-                                        case TOTAL:
-                                        case TOTAL_TIME:
-                                            name += "_sum";
-                                            break;
-                                        case MAX:
-                                            name += "_max";
-                                            break;
-                                        case ACTIVE_TASKS:
-                                            name += "_active_count";
-                                            break;
-                                        case DURATION:
-                                            name += "_duration_sum";
-                                            break;
-                                    }
-
-                                    return new Collector.MetricFamilySamples.Sample(name, statKeys, statValues, m.getValue());
-                                })));
-            });
-        });
+        applyToCollector(id, (collector) ->
+                collector.add(tagValues(id), (conventionName, samples) -> {
+                    for (Measurement m : measurements) {
+                        String name = conventionName;
+                        switch (m.getStatistic()) {
+                            case TOTAL:
+                            case TOTAL_TIME:
+                                name = collector.sampleName("_sum");
+                                break;
+                            case MAX:
+                                name = collector.sampleName("_max");
+                                break;
+                            case ACTIVE_TASKS:
+                                name = collector.sampleName("_active_count");
+                                break;
+                            case DURATION:
+                                name = collector.sampleName("_duration_sum");
+                                break;
+                        }
+
+                        samples.sample(finalPromType, conventionName, name, STATISTIC_LABELS.get(m.getStatistic()), m.getValue());
+                    }
+                }));
 
         return new DefaultMeter(id, type, measurements);
     }
@@ -315,82 +455,78 @@ public class PrometheusMeterRegistry extends MeterRegistry {
 
     private void addDistributionStatisticSamples(DistributionStatisticConfig distributionStatisticConfig, MicrometerCollector collector,
                                                  HistogramSupport histogramSupport, List<String> tagValues, boolean forLongTaskTimer) {
-        collector.add(tagValues, (conventionName, tagKeys) -> {
-            Stream.Builder<Collector.MetricFamilySamples.Sample> samples = Stream.builder();
-
+        collector.add(tagValues, (conventionName, samples) -> {
             HistogramSnapshot histogramSnapshot = histogramSupport.takeSnapshot();
             ValueAtPercentile[] percentileValues = histogramSnapshot.percentileValues();
             CountAtBucket[] histogramCounts = histogramSnapshot.histogramCounts();
             double count = histogramSnapshot.count();
 
-            if (percentileValues.length > 0) {
-                List<String> quantileKeys = new LinkedList<>(tagKeys);
-                quantileKeys.add("quantile");
+            Collector.Type type = distributionType(samples,
+                    distributionStatisticConfig.isPublishingHistogram() || histogramCounts.length > 0,
+                    percentileValues.length > 0, prometheusConfig.histogramFlavor());
 
-                // satisfies https://prometheus.io/docs/concepts/metric_types/#summary
-                for (ValueAtPercentile v : percentileValues) {
-                    List<String> quantileValues = new LinkedList<>(tagValues);
-                    quantileValues.add(Collector.doubleToGoString(v.percentile()));
-                    samples.add(new Collector.MetricFamilySamples.Sample(
-                            conventionName, quantileKeys, quantileValues, v.value(TimeUnit.SECONDS)));
-                }
+            // satisfies https://prometheus.io/docs/concepts/metric_types/#summary
+            for (int i = 0; i < percentileValues.length; i++) {
+                ValueAtPercentile v = percentileValues[i];
+                samples.sample(type, conventionName, conventionName,
+                        collector.quantileLabels.get(i, v.percentile()), v.value(TimeUnit.SECONDS));
             }
 
-            Collector.Type type = distributionStatisticConfig.isPublishingHistogram() ? Collector.Type.HISTOGRAM : Collector.Type.SUMMARY;
             if (histogramCounts.length > 0) {
-                // Prometheus doesn't balk at a metric being BOTH a histogram and a summary
-                type = Collector.Type.HISTOGRAM;
-
-                List<String> histogramKeys = new LinkedList<>(tagKeys);
-
-                String sampleName = conventionName + "_bucket";
+                String sampleName = collector.sampleName("_bucket");
                 switch (prometheusConfig.histogramFlavor()) {
                     case Prometheus:
-                        histogramKeys.add("le");
-
                         // satisfies https://prometheus.io/docs/concepts/metric_types/#histogram
-                        for (CountAtBucket c : histogramCounts) {
-                            final List<String> histogramValues = new LinkedList<>(tagValues);
-                            histogramValues.add(Collector.doubleToGoString(c.bucket(TimeUnit.SECONDS)));
-                            samples.add(new Collector.MetricFamilySamples.Sample(
-                                    sampleName, histogramKeys, histogramValues, c.count()));
+                        for (int i = 0; i < histogramCounts.length; i++) {
+                            CountAtBucket c = histogramCounts[i];
+                            samples.sample(type, conventionName, sampleName,
+                                    collector.bucketLabels.get(i, c.bucket(TimeUnit.SECONDS)), c.count());
                         }
 
                         // the +Inf bucket should always equal `count`
-                        final List<String> histogramValues = new LinkedList<>(tagValues);
-                        histogramValues.add("+Inf");
-                        samples.add(new Collector.MetricFamilySamples.Sample(
-                                sampleName, histogramKeys, histogramValues, count));
+                        samples.sample(type, conventionName, sampleName, INFINITY_BUCKET_LABEL, count);
                         break;
                     case VictoriaMetrics:
-                        histogramKeys.add("vmrange");
-
-                        for (CountAtBucket c : histogramCounts) {
-                            final List<String> histogramValuesVM = new LinkedList<>(tagValues);
-                            histogramValuesVM.add(FixedBoundaryVictoriaMetricsHistogram.getRangeTagValue(c.bucket()));
-                            samples.add(new Collector.MetricFamilySamples.Sample(
-                                    sampleName, histogramKeys, histogramValuesVM, c.count()));
+                        for (int i = 0; i < histogramCounts.length; i++) {
+                            CountAtBucket c = histogramCounts[i];
+                            samples.sample(type, conventionName, sampleName,
+                                    collector.rangeLabels.get(i, c.bucket()), c.count());
                         }
                         break;
                     default:
                         break;
                 }
-
             }
 
-            samples.add(new Collector.MetricFamilySamples.Sample(
-                    conventionName + (forLongTaskTimer ? "_active_count" : "_count"), tagKeys, tagValues, count));
-
-            samples.add(new Collector.MetricFamilySamples.Sample(
-                    conventionName + (forLongTaskTimer ? "_duration_sum" : "_sum"), tagKeys, tagValues, histogramSnapshot.total(TimeUnit.SECONDS)));
+            samples.sample(type, conventionName, collector.sampleName(forLongTaskTimer ? "_active_count" : "_count"), count);
+            samples.sample(type, conventionName, collector.sampleName(forLongTaskTimer ? "_duration_sum" : "_sum"),
+                    histogramSnapshot.total(TimeUnit.SECONDS));
 
-            return Stream.of(new MicrometerCollector.Family(type, conventionName, samples.build()),
-                    new MicrometerCollector.Family(Collector.Type.GAUGE, conventionName + "_max", Stream.of(
-                            new Collector.MetricFamilySamples.Sample(conventionName + "_max", tagKeys, tagValues,
-                                    histogramSnapshot.max(getBaseTimeUnit())))));
+            String maxName = collector.sampleName("_max");
+            samples.sample(Collector.Type.GAUGE, maxName, maxName, histogramSnapshot.max(getBaseTimeUnit()));
         });
     }
 
+    /**
+     * Prometheus doesn't balk at a metric being BOTH a histogram and a summary, but OpenMetrics and the protobuf format
+     * allow neither quantiles in a histogram nor buckets in a summary. There, percentiles make the family a summary
+     * whose buckets are written to a family of their own, and VictoriaMetrics ranges, which aren't cumulative buckets,
+     * make it a family of unknown type. Either way every series keeps the name it has in text format 0.0.4.
+     */
+    private static Collector.Type distributionType(MicrometerCollector.SampleSink samples, boolean histogram,
+                                                   boolean percentiles, HistogramFlavor histogramFlavor) {
+        if (!histogram) {
+            return Collector.Type.SUMMARY;
+        }
+        if (!samples.isStrict()) {
+            return Collector.Type.HISTOGRAM;
+        }
+        if (histogramFlavor == HistogramFlavor.VictoriaMetrics) {
+            return Collector.Type.UNTYPED;
+        }
+        return percentiles ? Collector.Type.SUMMARY : Collector.Type.HISTOGRAM;
+    }
+
     private void onMeterRemoved(Meter meter) {
         MicrometerCollector collector = collectorMap.get(getConventionName(meter.getId()));
         if (collector != null) {
@@ -405,7 +541,7 @@ public class PrometheusMeterRegistry extends MeterRegistry {
     private void applyToCollector(Meter.Id id, Consumer<MicrometerCollector> consumer) {
         collectorMap.compute(getConventionName(id), (name, existingCollector) -> {
             if (existingCollector == null) {
-                MicrometerCollector micrometerCollector = new MicrometerCollector(id, config().namingConvention(), prometheusConfig);
+                MicrometerCollector micrometerCollector = new MicrometerCollector(id, config().namingConvention(), prometheusConfig, clock);
                 consumer.accept(micrometerCollector);
                 return micrometerCollector.register(registry);
             }
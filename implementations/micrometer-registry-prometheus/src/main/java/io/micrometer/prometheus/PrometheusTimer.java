@@ -126,4 +126,13 @@ public class PrometheusTimer extends AbstractTimer {
                 histogramCounts(),
                 snapshot::outputSummary);
     }
+
+    @Override
+    public void visitSnapshot(HistogramVisitor visitor) {
+        if (histogram == null) {
+            super.visitSnapshot(visitor);
+        } else {
+            takeSnapshot().accept(visitor);
+        }
+    }
 }
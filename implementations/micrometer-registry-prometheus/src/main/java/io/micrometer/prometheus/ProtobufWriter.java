@@ -0,0 +1,503 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.prometheus;
+
+import io.micrometer.core.lang.Nullable;
+import io.prometheus.client.Collector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes the Prometheus protobuf format: {@code io.prometheus.client.MetricFamily} messages, each preceded by its
+ * length as a varint. The messages are encoded directly from samples rather than built with a protobuf library.
+ * <p>
+ * One writer receives the samples of the children of a collector, one child at a time. Counter, gauge and untyped
+ * samples each become a metric right away, while the quantiles, buckets, count and sum of a child are combined into
+ * one summary or histogram metric when the child ends. The metrics of each family are encoded into a buffer, since
+ * the family is preceded by its length, and the families are written once every child has been visited.
+ */
+final class ProtobufWriter implements MicrometerCollector.SampleSink {
+    private static final byte[] NO_LABELS = new byte[0];
+
+    // wire types
+    private static final int VARINT = 0;
+    private static final int FIXED64 = 1;
+    private static final int LENGTH_DELIMITED = 2;
+
+    // MetricFamily fields
+    private static final int FAMILY_NAME = 1;
+    private static final int FAMILY_HELP = 2;
+    private static final int FAMILY_TYPE = 3;
+    private static final int FAMILY_METRIC = 4;
+
+    // Metric fields
+    private static final int METRIC_LABEL = 1;
+    private static final int METRIC_GAUGE = 2;
+    private static final int METRIC_COUNTER = 3;
+    private static final int METRIC_SUMMARY = 4;
+    private static final int METRIC_UNTYPED = 5;
+    private static final int METRIC_HISTOGRAM = 7;
+
+    // LabelPair, Quantile, Bucket, Summary and Histogram fields all start at 1
+    private static final int FIELD_1 = 1;
+    private static final int FIELD_2 = 2;
+    private static final int FIELD_3 = 3;
+
+    private final String help;
+
+    /**
+     * Families of the types the collector reports, by name.
+     */
+    private final Map<String, FamilyBuffer> families = new LinkedHashMap<>();
+
+    /**
+     * Families of unknown type, for samples that don't belong in their own family.
+     */
+    private final Map<String, FamilyBuffer> others = new LinkedHashMap<>();
+
+    /**
+     * The summaries and histograms of the current child, reused from child to child.
+     */
+    private final List<Distribution> distributions = new ArrayList<>();
+    private int distributionCount;
+
+    private final Buffer metric = new Buffer();
+    private byte[] labels = NO_LABELS;
+
+    ProtobufWriter(String help) {
+        this.help = help;
+    }
+
+    /**
+     * Start the samples of a child.
+     *
+     * @param labels The child's labels, as returned by {@link #labels(List, List)}.
+     */
+    void child(byte[] labels) {
+        this.labels = labels;
+    }
+
+    @Override
+    public void sample(Collector.Type familyType, String familyName, String sampleName, double value) {
+        add(familyType, familyName, sampleName, null, value);
+    }
+
+    @Override
+    public void sample(Collector.Type familyType, String familyName, String sampleName,
+                       MicrometerCollector.ExtraLabel label, double value) {
+        add(familyType, familyName, sampleName, label, value);
+    }
+
+    @Override
+    public boolean isStrict() {
+        return true;
+    }
+
+    private void add(Collector.Type familyType, String familyName, String sampleName,
+                     @Nullable MicrometerCollector.ExtraLabel label, double value) {
+        switch (SampleRole.of(familyType, familyName, sampleName, label == null ? null : label.name)) {
+            case VALUE:
+                addValue(family(families, familyType, familyName), familyType, label, value);
+                break;
+            case OTHER:
+                addValue(family(others, Collector.Type.UNTYPED, sampleName), Collector.Type.UNTYPED, label, value);
+                break;
+            case QUANTILE:
+                distribution(familyType, familyName).addQuantile(label.number, value);
+                break;
+            case BUCKET:
+                distribution(familyType, familyName).addBucket(label.number, value);
+                break;
+            case COUNT:
+                distribution(familyType, familyName).count = value;
+                break;
+            case SUM:
+                distribution(familyType, familyName).sum = value;
+                break;
+        }
+    }
+
+    /**
+     * End the samples of the current child, adding its summaries and histograms to their families.
+     */
+    void endChild() {
+        for (int i = 0; i < distributionCount; i++) {
+            Distribution distribution = distributions.get(i);
+            FamilyBuffer family = family(families, distribution.type, distribution.familyName);
+
+            metric.reset();
+            metric.write(labels, 0, labels.length);
+            distribution.encode(metric);
+            family.metrics.writeMessage(FAMILY_METRIC, metric);
+        }
+        distributionCount = 0;
+        labels = NO_LABELS;
+    }
+
+    /**
+     * Write every family that has metrics, and forget them.
+     *
+     * @param out The scrape output.
+     * @throws IOException If writing fails.
+     */
+    void writeTo(OutputStream out) throws IOException {
+        writeTo(out, families);
+        writeTo(out, others);
+    }
+
+    private void writeTo(OutputStream out, Map<String, FamilyBuffer> families) throws IOException {
+        for (Map.Entry<String, FamilyBuffer> family : families.entrySet()) {
+            Buffer header = new Buffer();
+            header.writeString(FAMILY_NAME, family.getKey());
+            header.writeString(FAMILY_HELP, help);
+            header.writeVarint(FAMILY_TYPE, typeNumber(family.getValue().type));
+
+            Buffer metrics = family.getValue().metrics;
+            writeVarint(out, header.size() + metrics.size());
+            header.writeTo(out);
+            metrics.writeTo(out);
+        }
+        families.clear();
+    }
+
+    private void addValue(FamilyBuffer family, Collector.Type type, @Nullable MicrometerCollector.ExtraLabel label,
+                          double value) {
+        metric.reset();
+        metric.write(labels, 0, labels.length);
+        if (label != null) {
+            metric.write(label.protobuf, 0, label.protobuf.length);
+        }
+
+        // Gauge, Counter and Untyped hold their value in field 1, which takes 9 bytes
+        metric.writeTag(valueField(type), LENGTH_DELIMITED);
+        metric.writeRawVarint(9);
+        metric.writeDouble(FIELD_1, value);
+
+        family.metrics.writeMessage(FAMILY_METRIC, metric);
+    }
+
+    private Distribution distribution(Collector.Type type, String familyName) {
+        for (int i = 0; i < distributionCount; i++) {
+            Distribution distribution = distributions.get(i);
+            if (distribution.familyName.equals(familyName)) {
+                return distribution;
+            }
+        }
+
+        // keeps families in the order their first sample was produced
+        family(families, type, familyName);
+
+        if (distributionCount == distributions.size()) {
+            distributions.add(new Distribution());
+        }
+        Distribution distribution = distributions.get(distributionCount++);
+        distribution.reset(type, familyName);
+        return distribution;
+    }
+
+    private static FamilyBuffer family(Map<String, FamilyBuffer> families, Collector.Type type, String familyName) {
+        FamilyBuffer family = families.get(familyName);
+        if (family == null) {
+            family = new FamilyBuffer(type);
+            families.put(familyName, family);
+        }
+        return family;
+    }
+
+    /**
+     * @return The encoded labels for the given tags, ready to be copied into each metric of a child.
+     */
+    static byte[] labels(List<String> names, List<String> values) {
+        Buffer labels = new Buffer();
+        for (int i = 0; i < names.size(); i++) {
+            writeLabel(labels, names.get(i), values.get(i));
+        }
+        return labels.toByteArray();
+    }
+
+    static byte[] label(String name, String value) {
+        Buffer label = new Buffer();
+        writeLabel(label, name, value);
+        return label.toByteArray();
+    }
+
+    private static void writeLabel(Buffer labels, String name, String value) {
+        Buffer pair = new Buffer();
+        pair.writeString(FIELD_1, name);
+        pair.writeString(FIELD_2, value);
+        labels.writeMessage(METRIC_LABEL, pair);
+    }
+
+    /**
+     * Write families collected by collectors other than Micrometer's. Their samples are grouped into metrics by
+     * their labels other than {@code le} and {@code quantile}.
+     */
+    static void write(OutputStream out, Enumeration<Collector.MetricFamilySamples> families) throws IOException {
+        while (families.hasMoreElements()) {
+            Collector.MetricFamilySamples family = families.nextElement();
+
+            String familyName = family.name;
+            if (family.type == Collector.Type.COUNTER && !family.samples.isEmpty() &&
+                    family.samples.get(0).name.equals(familyName + "_total")) {
+                // newer client versions name counter families without the suffix of their samples
+                familyName += "_total";
+            }
+
+            Map<List<String>, List<Collector.MetricFamilySamples.Sample>> metrics = new LinkedHashMap<>();
+            for (Collector.MetricFamilySamples.Sample sample : family.samples) {
+                List<String> key = new ArrayList<>();
+                for (int i = 0; i < sample.labelNames.size(); i++) {
+                    String labelName = sample.labelNames.get(i);
+                    if (!labelName.equals("le") && !labelName.equals("quantile")) {
+                        key.add(labelName);
+                        key.add(sample.labelValues.get(i));
+                    }
+                }
+                metrics.computeIfAbsent(key, k -> new ArrayList<>()).add(sample);
+            }
+
+            ProtobufWriter writer = new ProtobufWriter(family.help);
+            for (Map.Entry<List<String>, List<Collector.MetricFamilySamples.Sample>> metric : metrics.entrySet()) {
+                List<String> key = metric.getKey();
+                List<String> labelNames = new ArrayList<>();
+                List<String> labelValues = new ArrayList<>();
+                for (int i = 0; i < key.size(); i += 2) {
+                    labelNames.add(key.get(i));
+                    labelValues.add(key.get(i + 1));
+                }
+
+                writer.child(labels(labelNames, labelValues));
+                for (Collector.MetricFamilySamples.Sample sample : metric.getValue()) {
+                    int extra = sample.labelNames.indexOf("le");
+                    if (extra < 0) {
+                        extra = sample.labelNames.indexOf("quantile");
+                    }
+                    if (extra < 0) {
+                        writer.add(family.type, familyName, sample.name, null, sample.value);
+                    } else {
+                        String value = sample.labelValues.get(extra);
+                        writer.add(family.type, familyName, sample.name,
+                                new MicrometerCollector.ExtraLabel(sample.labelNames.get(extra), value, parseGoDouble(value)),
+                                sample.value);
+                    }
+                }
+                writer.endChild();
+            }
+            writer.writeTo(out);
+        }
+    }
+
+    private static double parseGoDouble(String value) {
+        switch (value) {
+            case "+Inf":
+                return Double.POSITIVE_INFINITY;
+            case "-Inf":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                try {
+                    return Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    return Double.NaN;
+                }
+        }
+    }
+
+    private static int valueField(Collector.Type type) {
+        switch (type) {
+            case GAUGE:
+                return METRIC_GAUGE;
+            case COUNTER:
+                return METRIC_COUNTER;
+            default:
+                return METRIC_UNTYPED;
+        }
+    }
+
+    private static int typeNumber(Collector.Type type) {
+        switch (type) {
+            case COUNTER:
+                return 0;
+            case GAUGE:
+                return 1;
+            case SUMMARY:
+                return 2;
+            case HISTOGRAM:
+                return 4;
+            default:
+                return 3;
+        }
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    private static final class FamilyBuffer {
+        final Collector.Type type;
+        final Buffer metrics = new Buffer();
+
+        FamilyBuffer(Collector.Type type) {
+            this.type = type;
+        }
+    }
+
+    /**
+     * The quantiles or buckets, count and sum of a child in a summary or histogram family.
+     */
+    private static final class Distribution {
+        Collector.Type type = Collector.Type.SUMMARY;
+        String familyName = "";
+        double count;
+        double sum;
+        double[] keys = new double[8];
+        double[] values = new double[8];
+        int size;
+
+        void reset(Collector.Type type, String familyName) {
+            this.type = type;
+            this.familyName = familyName;
+            this.count = Double.NaN;
+            this.sum = Double.NaN;
+            this.size = 0;
+        }
+
+        void addQuantile(double quantile, double value) {
+            add(quantile, value);
+        }
+
+        void addBucket(double upperBound, double cumulativeCount) {
+            // the +Inf bucket is implied by the count
+            if (upperBound != Double.POSITIVE_INFINITY) {
+                add(upperBound, cumulativeCount);
+            }
+        }
+
+        private void add(double key, double value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            keys[size] = key;
+            values[size] = value;
+            size++;
+        }
+
+        void encode(Buffer metric) {
+            boolean histogram = type == Collector.Type.HISTOGRAM;
+
+            int length = 0;
+            if (!Double.isNaN(count)) {
+                length += 1 + varintSize((long) count);
+            }
+            if (!Double.isNaN(sum)) {
+                length += 9;
+            }
+            for (int i = 0; i < size; i++) {
+                int entry = histogram ? bucketSize(i) : 18;
+                length += 1 + varintSize(entry) + entry;
+            }
+
+            metric.writeTag(histogram ? METRIC_HISTOGRAM : METRIC_SUMMARY, LENGTH_DELIMITED);
+            metric.writeRawVarint(length);
+            if (!Double.isNaN(count)) {
+                metric.writeVarint(FIELD_1, (long) count);
+            }
+            if (!Double.isNaN(sum)) {
+                metric.writeDouble(FIELD_2, sum);
+            }
+            for (int i = 0; i < size; i++) {
+                if (histogram) {
+                    // Bucket: cumulative_count = 1, upper_bound = 2
+                    metric.writeTag(FIELD_3, LENGTH_DELIMITED);
+                    metric.writeRawVarint(bucketSize(i));
+                    metric.writeVarint(FIELD_1, (long) values[i]);
+                    metric.writeDouble(FIELD_2, keys[i]);
+                } else {
+                    // Quantile: quantile = 1, value = 2
+                    metric.writeTag(FIELD_3, LENGTH_DELIMITED);
+                    metric.writeRawVarint(18);
+                    metric.writeDouble(FIELD_1, keys[i]);
+                    metric.writeDouble(FIELD_2, values[i]);
+                }
+            }
+        }
+
+        private int bucketSize(int i) {
+            return 1 + varintSize((long) values[i]) + 9;
+        }
+    }
+
+    /**
+     * Encodes protobuf fields. Unlike its superclass, it isn't meant to be shared between threads.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        void writeTag(int field, int wireType) {
+            writeRawVarint((field << 3) | wireType);
+        }
+
+        void writeRawVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeVarint(int field, long value) {
+            writeTag(field, VARINT);
+            writeRawVarint(value);
+        }
+
+        void writeDouble(int field, double value) {
+            writeTag(field, FIXED64);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                write((int) (bits >>> (8 * i)) & 0xFF);
+            }
+        }
+
+        void writeString(int field, String value) {
+            byte[] bytes = value.getBytes(UTF_8);
+            writeTag(field, LENGTH_DELIMITED);
+            writeRawVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeMessage(int field, Buffer message) {
+            writeTag(field, LENGTH_DELIMITED);
+            writeRawVarint(message.size());
+            write(message.buf, 0, message.size());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.prometheus;
+
+import io.micrometer.core.lang.Nullable;
+import io.prometheus.client.Collector;
+
+/**
+ * The part a sample plays in its metric family. OpenMetrics and the protobuf format only allow certain sample names
+ * and labels in a family of each type, while text format 0.0.4 accepts any, and Micrometer relies on that for long
+ * task timers and custom meters. Samples that don't fit are written to a family of unknown type of their own.
+ */
+enum SampleRole {
+    /**
+     * The value of a counter, gauge or untyped metric.
+     */
+    VALUE,
+    QUANTILE,
+    BUCKET,
+    COUNT,
+    SUM,
+
+    /**
+     * A sample that doesn't belong in its family under the stricter formats.
+     */
+    OTHER;
+
+    static SampleRole of(Collector.Type familyType, String familyName, String sampleName, @Nullable String labelName) {
+        switch (familyType) {
+            case SUMMARY:
+                if (sampleName.equals(familyName)) {
+                    return "quantile".equals(labelName) ? QUANTILE : OTHER;
+                }
+                break;
+            case HISTOGRAM:
+                if (hasSuffix(sampleName, familyName, "_bucket")) {
+                    return "le".equals(labelName) ? BUCKET : OTHER;
+                }
+                break;
+            default:
+                return sampleName.equals(familyName) && !"le".equals(labelName) && !"quantile".equals(labelName) ?
+                        VALUE : OTHER;
+        }
+
+        if (labelName == null) {
+            if (hasSuffix(sampleName, familyName, "_count")) {
+                return COUNT;
+            }
+            if (hasSuffix(sampleName, familyName, "_sum")) {
+                return SUM;
+            }
+        }
+        return OTHER;
+    }
+
+    private static boolean hasSuffix(String sampleName, String familyName, String suffix) {
+        return sampleName.length() == familyName.length() + suffix.length() &&
+                sampleName.startsWith(familyName) && sampleName.endsWith(suffix);
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.prometheus;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.lang.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reuses the rendered scrape of each exposition format for a while. A scrape that finds a fresh rendering gets it
+ * right away and one that finds a rendering in progress waits for it. Otherwise the scrape renders a new one, which
+ * the scrapes arriving meanwhile share. A failed rendering is handed to the scrapes that waited for it and is never
+ * reused.
+ */
+final class ScrapeCache {
+    private final Clock clock;
+    private final long ttlNanos;
+    private final AtomicReferenceArray<Rendering> renderings = new AtomicReferenceArray<>(ExpositionFormat.values().length);
+
+    ScrapeCache(Clock clock, Duration ttl) {
+        this.clock = clock;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    Scrape get(ExpositionFormat format, Renderer renderer) throws IOException {
+        int slot = format.ordinal();
+        while (true) {
+            Rendering rendering = renderings.get(slot);
+            if (rendering != null && !rendering.isStale()) {
+                return rendering.await();
+            }
+
+            Rendering next = new Rendering();
+            if (renderings.compareAndSet(slot, rendering, next)) {
+                next.render(renderer);
+                return next.await();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Renderer {
+        byte[] render() throws IOException;
+    }
+
+    /**
+     * A rendered scrape, decoded to text at most once for scrapes that write it to a {@link java.io.Writer}.
+     */
+    static final class Scrape {
+        final byte[] bytes;
+
+        // concurrent scrapes may race to decode equal text, which is harmless
+        @Nullable
+        private volatile String text;
+
+        Scrape(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        String text() {
+            String text = this.text;
+            if (text == null) {
+                text = new String(bytes, UTF_8);
+                this.text = text;
+            }
+            return text;
+        }
+    }
+
+    private final class Rendering {
+        private final CompletableFuture<Scrape> scrape = new CompletableFuture<>();
+
+        // set before the scrape is completed, so it is visible to anyone who sees it done
+        private volatile long renderedAt;
+
+        boolean isStale() {
+            if (!scrape.isDone()) {
+                return false;
+            }
+            return scrape.isCompletedExceptionally() || clock.monotonicTime() - renderedAt >= ttlNanos;
+        }
+
+        void render(Renderer renderer) {
+            try {
+                byte[] rendered = renderer.render();
+                renderedAt = clock.monotonicTime();
+                scrape.complete(new Scrape(rendered));
+            } catch (Throwable e) {
+                scrape.completeExceptionally(e);
+            }
+        }
+
+        Scrape await() throws IOException {
+            try {
+                return scrape.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.prometheus;
+
+import io.prometheus.client.Collector;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes Prometheus text format 0.0.4, producing the same output as
+ * {@link io.prometheus.client.exporter.common.TextFormat#write004} without building intermediate sample objects.
+ * Labels and help text are escaped once and then written as-is, so a scrape only formats sample values.
+ */
+final class TextFormatWriter {
+    private TextFormatWriter() {
+    }
+
+    /**
+     * @return The escaped labels for the given tags, each followed by a comma, ready to be written between braces.
+     */
+    static String labels(List<String> keys, List<String> values) {
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < keys.size(); i++) {
+            appendLabel(labels, keys.get(i), values.get(i));
+        }
+        return labels.toString();
+    }
+
+    /**
+     * @return The escaped label followed by a comma, ready to be written after the labels of a child.
+     */
+    static String label(String name, String value) {
+        return appendLabel(new StringBuilder(), name, value).toString();
+    }
+
+    static String escapeHelp(String help) {
+        StringBuilder escaped = new StringBuilder(help.length());
+        for (int i = 0; i < help.length(); i++) {
+            char c = help.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    static void writeHeader(Writer writer, String familyName, String escapedHelp, Collector.Type type) throws IOException {
+        writer.write("# HELP ");
+        writer.write(familyName);
+        writer.write(' ');
+        writer.write(escapedHelp);
+        writer.write("\n# TYPE ");
+        writer.write(familyName);
+        writer.write(' ');
+        writer.write(typeString(type));
+        writer.write('\n');
+    }
+
+    /**
+     * @param labels Escaped labels, as returned by {@link #labels(List, List)}.
+     */
+    static void writeSample(Writer writer, String sampleName, String labels, double value) throws IOException {
+        writer.write(sampleName);
+        if (!labels.isEmpty()) {
+            writer.write('{');
+            writer.write(labels);
+            writer.write('}');
+        }
+        writeValue(writer, value);
+    }
+
+    /**
+     * @param labels Escaped labels, as returned by {@link #labels(List, List)}.
+     * @param label  One more escaped label, as returned by {@link #label(String, String)}.
+     */
+    static void writeSample(Writer writer, String sampleName, String labels, String label, double value) throws IOException {
+        writer.write(sampleName);
+        writer.write('{');
+        writer.write(labels);
+        writer.write(label);
+        writer.write('}');
+        writeValue(writer, value);
+    }
+
+    private static void writeValue(Writer writer, double value) throws IOException {
+        writer.write(' ');
+        writer.write(Collector.doubleToGoString(value));
+        writer.write('\n');
+    }
+
+    private static StringBuilder appendLabel(StringBuilder labels, String name, String value) {
+        labels.append(name).append("=\"");
+        escapeLabelValue(labels, value);
+        return labels.append("\",");
+    }
+
+    private static StringBuilder escapeLabelValue(StringBuilder escaped, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\"':
+                    escaped.append("\\\"");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped;
+    }
+
+    private static String typeString(Collector.Type type) {
+        switch (type) {
+            case GAUGE:
+                return "gauge";
+            case COUNTER:
+                return "counter";
+            case SUMMARY:
+                return "summary";
+            case HISTOGRAM:
+                return "histogram";
+            default:
+                return "untyped";
+        }
+    }
+}
@@ -22,8 +22,10 @@ import io.micrometer.core.instrument.config.NamingConvention;
 import io.prometheus.client.Collector;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
@@ -37,11 +39,10 @@ class MicrometerCollectorTest {
         MicrometerCollector collector = new MicrometerCollector(id, NamingConvention.dot, PrometheusConfig.DEFAULT);
 
         for (Integer i = 0; i < 20_000; i++) {
-            Collector.MetricFamilySamples.Sample sample = new Collector.MetricFamilySamples.Sample("my_counter",
-                    singletonList("k"), singletonList(i.toString()), 1.0);
-
-            collector.add(Collections.emptyList(), (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.COUNTER,
-                    "my_counter", sample)));
+            String value = i.toString();
+            collector.add(Collections.emptyList(), (conventionName, samples) ->
+                    samples.sample(Collector.Type.COUNTER, "my_counter", "my_counter",
+                            new MicrometerCollector.ExtraLabel("k", value), 1.0));
         }
 
         // Threw StackOverflowException because of too many nested streams originally
@@ -53,16 +54,53 @@ class MicrometerCollectorTest {
         Meter.Id id = Metrics.counter("my.counter").getId();
         MicrometerCollector collector = new MicrometerCollector(id, NamingConvention.dot, PrometheusConfig.DEFAULT);
 
-        Collector.MetricFamilySamples.Sample sample = new Collector.MetricFamilySamples.Sample("my_counter",
-                asList("k", "k2"), asList("v1", "v2"), 1.0);
-        Collector.MetricFamilySamples.Sample sample2 = new Collector.MetricFamilySamples.Sample("my_counter",
-                asList("k", "k2"), asList("v2", "v1"), 1.0);
-
-        collector.add(asList("v1", "v2"), (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.COUNTER,
-                "my_counter", sample)));
-        collector.add(asList("v2", "v1"), (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.COUNTER,
-                "my_counter", sample2)));
+        collector.add(asList("v1", "v2"), (conventionName, samples) ->
+                samples.sample(Collector.Type.COUNTER, "my_counter", "my_counter", 1.0));
+        collector.add(asList("v2", "v1"), (conventionName, samples) ->
+                samples.sample(Collector.Type.COUNTER, "my_counter", "my_counter", 1.0));
 
         assertThat(collector.collect().get(0).samples).hasSize(2);
     }
+
+    @Test
+    void writeKeepsEachFamilyTogether() throws IOException {
+        Meter.Id id = Metrics.timer("my.timer", "k", "v").getId();
+        MicrometerCollector collector = new MicrometerCollector(id, NamingConvention.snakeCase, PrometheusConfig.DEFAULT);
+
+        for (String value : asList("v1", "v2")) {
+            collector.add(singletonList(value), (conventionName, samples) -> {
+                samples.sample(Collector.Type.SUMMARY, conventionName, conventionName + "_count", 1.0);
+                samples.sample(Collector.Type.GAUGE, conventionName + "_max", conventionName + "_max", 2.0);
+            });
+        }
+
+        StringWriter writer = new StringWriter();
+        collector.write(writer);
+
+        // children are visited in no particular order
+        assertThat(Arrays.stream(writer.toString().split("\n")).map(line -> line.replaceAll("\\{.*}", "")))
+                .containsExactly(
+                        "# HELP my_timer  ",
+                        "# TYPE my_timer summary",
+                        "my_timer_count 1.0",
+                        "my_timer_count 1.0",
+                        "# HELP my_timer_max  ",
+                        "# TYPE my_timer_max gauge",
+                        "my_timer_max 2.0",
+                        "my_timer_max 2.0");
+        assertThat(writer.toString()).contains("my_timer_count{k=\"v1\",} 1.0", "my_timer_max{k=\"v2\",} 2.0");
+    }
+
+    @Test
+    void labelSeriesReusesLabelsWhileTheirNumbersStayTheSame() {
+        MicrometerCollector.LabelSeries series = new MicrometerCollector.LabelSeries("le", Collector::doubleToGoString);
+
+        MicrometerCollector.ExtraLabel label = series.get(0, 0.5);
+        assertThat(label.text).isEqualTo("le=\"0.5\",");
+        assertThat(series.get(0, 0.5)).isSameAs(label);
+
+        assertThat(series.get(0, 1.0).value).isEqualTo("1.0");
+        assertThat(series.get(2, Double.POSITIVE_INFINITY).value).isEqualTo("+Inf");
+        assertThat(series.get(0, 1.0)).isSameAs(series.get(0, 1.0));
+    }
 }
@@ -23,12 +23,18 @@ import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.HistogramSnapshot;
 import io.prometheus.client.Collector;
 import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
 import org.assertj.core.api.Condition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -41,8 +47,10 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static io.micrometer.core.instrument.MockClock.clock;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -582,4 +590,329 @@ class PrometheusMeterRegistryTest {
         executorService.shutdownNow();
     }
 
+    @Test
+    void scrapeWritesTheSameSamplesAsTheCollectorRegistry() throws IOException {
+        Counter.builder("my.counter").description("multi\nline \\ help").tags("k", "quote\" backslash\\ newline\n")
+                .register(registry).increment();
+        Timer.builder("my.timer").publishPercentiles(0.5).publishPercentileHistogram().tags("uri", "/a")
+                .register(registry).record(10, TimeUnit.MILLISECONDS);
+        Timer.builder("my.timer").publishPercentiles(0.5).publishPercentileHistogram().tags("uri", "/b")
+                .register(registry).record(1, TimeUnit.SECONDS);
+        DistributionSummary.builder("my.summary").serviceLevelObjectives(1, 10).register(registry).record(5);
+        Gauge.builder("my.gauge", () -> 1.0).register(registry);
+        Meter.builder("my.meter", Meter.Type.OTHER, Collections.singletonList(new Measurement(() -> 1.0, Statistic.VALUE)))
+                .register(registry);
+
+        StringWriter collected = new StringWriter();
+        TextFormat.write004(collected, prometheusRegistry.metricFamilySamples());
+
+        assertThat(families(registry.scrape())).isEqualTo(families(collected.toString()));
+    }
+
+    @Test
+    void scrapeIncludesCollectorsRegisteredByOthers() {
+        registry.counter("my.counter").increment();
+        io.prometheus.client.Counter.build("other_total", "registered directly").register(prometheusRegistry).inc();
+
+        assertThat(registry.scrape())
+                .containsOnlyOnce("# TYPE my_counter_total counter")
+                .contains("my_counter_total 1.0")
+                .contains("other_total 1.0");
+    }
+
+    @Test
+    void childrenWithDifferentBucketsAreScrapedWithTheirOwnBoundaries() {
+        DistributionSummary.builder("my.summary").tags("k", "a").serviceLevelObjectives(1, 10)
+                .register(registry).record(5);
+        DistributionSummary.builder("my.summary").tags("k", "b").serviceLevelObjectives(2, 20, 200)
+                .register(registry).record(50);
+
+        // the second scrape reuses the labels rendered by the first
+        for (int i = 0; i < 2; i++) {
+            assertThat(registry.scrape())
+                    .contains("my_summary_bucket{k=\"a\",le=\"10.0\",} 1.0")
+                    .contains("my_summary_bucket{k=\"b\",le=\"200.0\",} 1.0")
+                    .doesNotContain("my_summary_bucket{k=\"a\",le=\"200.0\",}");
+        }
+    }
+
+    @Test
+    void scrapeNegotiatesTheFormatFromTheAcceptHeader() throws IOException {
+        assertThat(registry.scrape(new ByteArrayOutputStream(), null)).isEqualTo(TextFormat.CONTENT_TYPE_004);
+        assertThat(registry.scrape(new ByteArrayOutputStream(), "application/openmetrics-text; version=1.0.0,text/plain;version=0.0.4;q=0.5,*/*;q=0.1"))
+                .isEqualTo("application/openmetrics-text; version=1.0.0; charset=utf-8");
+        assertThat(registry.scrape(new ByteArrayOutputStream(), "application/openmetrics-text;q=0.5,text/plain;q=0.9"))
+                .isEqualTo(TextFormat.CONTENT_TYPE_004);
+        assertThat(registry.scrape(new ByteArrayOutputStream(),
+                "application/vnd.google.protobuf;proto=io.prometheus.client.MetricFamily;encoding=delimited;q=0.7,text/plain;version=0.0.4;q=0.3"))
+                .isEqualTo("application/vnd.google.protobuf; proto=io.prometheus.client.MetricFamily; encoding=delimited");
+        assertThat(registry.scrape(new ByteArrayOutputStream(), "application/json")).isEqualTo(TextFormat.CONTENT_TYPE_004);
+    }
+
+    @Test
+    void scrapeOpenMetrics() throws IOException {
+        Counter.builder("my.counter").description("a \"quoted\" help").tags("k", "v").register(registry).increment();
+        LongTaskTimer.builder("my.long.task").register(registry).start();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        registry.scrape(out, "application/openmetrics-text");
+
+        assertThat(out.toString("UTF-8"))
+                .contains("# TYPE my_counter counter\n" +
+                        "# HELP my_counter a \\\"quoted\\\" help\n" +
+                        "my_counter_total{k=\"v\"} 1.0\n" +
+                        "my_counter_created{k=\"v\"} 0.001\n")
+                // series that OpenMetrics doesn't allow in a summary have a family of their own
+                .contains("# TYPE my_long_task_seconds_active_count unknown\n")
+                .endsWith("# EOF\n");
+    }
+
+    @Test
+    void scrapeProtobuf() throws IOException {
+        Gauge.builder("my.gauge", () -> 2.5).register(registry);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        registry.scrape(out, "application/vnd.google.protobuf;proto=io.prometheus.client.MetricFamily;encoding=delimited");
+
+        assertThat(out.toByteArray()).containsExactly(
+                // length of the MetricFamily message
+                28,
+                // name, help and type (GAUGE)
+                0x0A, 8, 'm', 'y', '_', 'g', 'a', 'u', 'g', 'e', 0x12, 1, ' ', 0x18, 1,
+                // a metric with a gauge holding 2.5
+                0x22, 11, 0x12, 9, 0x09, 0, 0, 0, 0, 0, 0, 0x04, 0x40);
+    }
+
+    @Test
+    void scrapeOpenMetricsWithPercentilesAndHistogram() throws IOException {
+        Timer.builder("my.timer").publishPercentiles(0.5).publishPercentileHistogram().register(registry)
+                .record(5, TimeUnit.MILLISECONDS);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        registry.scrape(out, "application/openmetrics-text");
+
+        // OpenMetrics doesn't allow quantiles in a histogram, so the family is a summary with its buckets apart
+        assertThat(out.toString("UTF-8"))
+                .contains("# TYPE my_timer_duration_seconds summary\n")
+                .contains("my_timer_duration_seconds{quantile=\"0.5\"} ")
+                .contains("my_timer_duration_seconds_count 1.0\n" +
+                        "my_timer_duration_seconds_sum 0.005\n" +
+                        "my_timer_duration_seconds_created 0.001\n" +
+                        "# TYPE my_timer_duration_seconds_bucket unknown\n")
+                .contains("my_timer_duration_seconds_bucket{le=\"+Inf\"} 1.0\n")
+                .doesNotContain("histogram");
+    }
+
+    @Test
+    void scrapeProtobufWithPercentilesAndHistogram() throws IOException {
+        Timer.builder("my.timer").publishPercentiles(0.5).publishPercentileHistogram().register(registry)
+                .record(5, TimeUnit.MILLISECONDS);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        registry.scrape(out, "application/vnd.google.protobuf;proto=io.prometheus.client.MetricFamily;encoding=delimited");
+
+        assertThat(protobufFamilies(out.toByteArray())).containsExactly(
+                "my_timer_duration_seconds SUMMARY",
+                "my_timer_duration_seconds_max GAUGE",
+                "my_timer_duration_seconds_bucket UNTYPED");
+    }
+
+    @Test
+    void scrapeOpenMetricsWithVictoriaMetricsHistogram() throws IOException {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(victoriaMetrics(), new CollectorRegistry(), clock);
+        Timer.builder("my.timer").publishPercentileHistogram().register(registry).record(5, TimeUnit.MILLISECONDS);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        registry.scrape(out, "application/openmetrics-text");
+
+        // ranges aren't cumulative buckets, so none of the series make a histogram in OpenMetrics
+        assertThat(out.toString("UTF-8"))
+                .contains("# TYPE my_timer_seconds_bucket unknown\n")
+                .contains("my_timer_seconds_bucket{vmrange=\"")
+                .contains("# TYPE my_timer_seconds_count unknown\n")
+                .contains("# TYPE my_timer_seconds_sum unknown\n")
+                .doesNotContain("histogram");
+        assertThat(registry.scrape()).contains("# TYPE my_timer_seconds histogram\n");
+    }
+
+    @Test
+    void scrapeProtobufWithVictoriaMetricsHistogram() throws IOException {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(victoriaMetrics(), new CollectorRegistry(), clock);
+        Timer.builder("my.timer").publishPercentileHistogram().register(registry).record(5, TimeUnit.MILLISECONDS);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        registry.scrape(out, "application/vnd.google.protobuf;proto=io.prometheus.client.MetricFamily;encoding=delimited");
+
+        assertThat(protobufFamilies(out.toByteArray())).containsExactly(
+                "my_timer_seconds_max GAUGE",
+                "my_timer_seconds_bucket UNTYPED",
+                "my_timer_seconds_count UNTYPED",
+                "my_timer_seconds_sum UNTYPED");
+    }
+
+    @Test
+    void scrapeOnlyIncludedNames() throws IOException {
+        registry.counter("my.counter").increment();
+        Timer.builder("http.server.requests").tags("uri", "/a").register(registry).record(5, TimeUnit.MILLISECONDS);
+        io.prometheus.client.Counter.build("other_total", "registered directly").register(prometheusRegistry).inc();
+
+        StringWriter writer = new StringWriter();
+        registry.scrape(writer, new HashSet<>(Arrays.asList("http_server_requests_duration_seconds_count", "other_total")));
+
+        assertThat(writer.toString())
+                .contains("http_server_requests_duration_seconds_count{uri=\"/a\",} 1.0")
+                .contains("other_total 1.0")
+                .doesNotContain("http_server_requests_duration_seconds_sum")
+                .doesNotContain("http_server_requests_duration_seconds_max")
+                .doesNotContain("my_counter");
+
+        StringWriter everything = new StringWriter();
+        registry.scrape(everything, Collections.emptySet());
+        assertThat(everything.toString()).isEqualTo(registry.scrape());
+    }
+
+    @Test
+    void scrapeCacheReusesTheRenderedScrapeUntilItExpires() throws IOException {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(scrapeCacheTtl(Duration.ofSeconds(10)),
+                new CollectorRegistry(true), clock);
+        Counter counter = registry.counter("my.counter");
+
+        counter.increment();
+        String scrape = registry.scrape();
+        counter.increment();
+        assertThat(registry.scrape()).isEqualTo(scrape).contains("my_counter_total 1.0");
+
+        // each format is cached separately
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        registry.scrape(out, "application/openmetrics-text");
+        assertThat(out.toString("UTF-8")).contains("my_counter_total 2.0");
+
+        clock.add(Duration.ofSeconds(10));
+        assertThat(registry.scrape())
+                .contains("my_counter_total 2.0")
+                .contains("prometheus_scrape_seconds_count{format=\"text\",} 1.0")
+                .contains("prometheus_scrape_size_bytes_sum{format=\"text\",} " + (double) scrape.length());
+    }
+
+    @Test
+    void scrapeMetricsAreOnlyRegisteredWithTheCacheAndAfterMeterFilters() {
+        registry.scrape();
+        assertThat(registry.find("prometheus.scrape").meters()).isEmpty();
+
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(scrapeCacheTtl(Duration.ofSeconds(10)),
+                new CollectorRegistry(true), clock);
+        registry.config().commonTags("app", "test");
+        registry.scrape();
+
+        assertThat(registry.get("prometheus.scrape").tags("format", "text", "app", "test").timer().count()).isEqualTo(1);
+        assertThat(registry.get("prometheus.scrape.size").tags("format", "text", "app", "test").summary().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void concurrentScrapesShareOneRendering() throws Exception {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(scrapeCacheTtl(Duration.ofSeconds(10)),
+                new CollectorRegistry(true), clock);
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger renders = new AtomicInteger();
+        Gauge.builder("slow.gauge", () -> {
+            renders.incrementAndGet();
+            rendering.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1.0;
+        }).register(registry);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> registry.scrape());
+            assertThat(rendering.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> second = executor.submit(() -> registry.scrape());
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(second.get(5, TimeUnit.SECONDS));
+            assertThat(renders.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static PrometheusConfig scrapeCacheTtl(Duration ttl) {
+        return new PrometheusConfig() {
+            @Override
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public Duration scrapeCacheTtl() {
+                return ttl;
+            }
+        };
+    }
+
+    private static PrometheusConfig victoriaMetrics() {
+        return new PrometheusConfig() {
+            @Override
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public HistogramFlavor histogramFlavor() {
+                return HistogramFlavor.VictoriaMetrics;
+            }
+        };
+    }
+
+    /**
+     * @return The name and type of each family of a protobuf scrape.
+     */
+    private static List<String> protobufFamilies(byte[] scrape) {
+        String[] types = {"COUNTER", "GAUGE", "SUMMARY", "UNTYPED", "HISTOGRAM"};
+        List<String> families = new ArrayList<>();
+        ByteBuffer in = ByteBuffer.wrap(scrape);
+        while (in.hasRemaining()) {
+            int end = varint(in) + in.position();
+            String name = null;
+            String type = null;
+            while (in.position() < end) {
+                int key = varint(in);
+                if ((key & 7) == 0) {
+                    int value = varint(in);
+                    if (key >>> 3 == 3) {
+                        type = types[value];
+                    }
+                } else {
+                    // the other fields of a MetricFamily are length-delimited
+                    int length = varint(in);
+                    if (key >>> 3 == 1) {
+                        name = new String(scrape, in.position(), length, UTF_8);
+                    }
+                    in.position(in.position() + length);
+                }
+            }
+            families.add(name + " " + type);
+        }
+        return families;
+    }
+
+    private static int varint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static List<String> families(String scrape) {
+        return Arrays.stream(scrape.split("(?=# HELP )")).sorted().collect(Collectors.toList());
+    }
 }
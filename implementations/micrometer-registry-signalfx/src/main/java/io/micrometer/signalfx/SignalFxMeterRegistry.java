@@ -95,7 +95,7 @@ public class SignalFxMeterRegistry extends StepMeterRegistry {
                 this.dataPointReceiverFactory, this.eventReceiverFactory,
                 new StaticAuthToken(this.config.accessToken()), this.onSendErrorHandlerCollection);
 
-        for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
+        for (List<Meter> batch : MeterPartition.partition(getMetersToPublish(), config.batchSize())) {
             try (AggregateMetricSender.Session session = metricSender.createSession()) {
                 batch.stream()
                         .map(meter -> meter.match(
@@ -114,7 +114,10 @@ public class SignalFxMeterRegistry extends StepMeterRegistry {
                 logger.debug("successfully sent {} metrics to SignalFx.", batch.size());
             } catch (Throwable e) {
                 logger.warn("failed to send metrics", e);
+                continue;
             }
+            // only once the session is closed, which is when the datapoints are sent
+            markPublished(batch);
         }
     }
 
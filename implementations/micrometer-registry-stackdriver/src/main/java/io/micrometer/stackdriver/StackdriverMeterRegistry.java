@@ -143,7 +143,8 @@ public class StackdriverMeterRegistry extends StepMeterRegistry {
         AtomicLong partitioningCounter = new AtomicLong();
         long partitionSize = Math.min(config.batchSize(), TIMESERIES_PER_REQUEST_LIMIT);
 
-        Collection<List<TimeSeries>> series = getMeters().stream()
+        List<Meter> meters = getMetersToPublish();
+        Collection<List<TimeSeries>> series = meters.stream()
                 .flatMap(meter -> meter.match(
                         m -> createGauge(publishBatch, m),
                         m -> createCounter(publishBatch, m),
@@ -157,6 +158,7 @@ public class StackdriverMeterRegistry extends StepMeterRegistry {
                 .collect(groupingBy(o -> partitioningCounter.incrementAndGet() / partitionSize))
                 .values();
 
+        boolean sent = true;
         for (List<TimeSeries> partition : series) {
             try {
                 CreateTimeSeriesRequest request = CreateTimeSeriesRequest.newBuilder()
@@ -170,8 +172,15 @@ public class StackdriverMeterRegistry extends StepMeterRegistry {
                 logger.debug("successfully sent {} TimeSeries to Stackdriver", partition.size());
             } catch (ApiException e) {
                 logger.warn("failed to send metrics to Stackdriver", e);
+                sent = false;
             }
         }
+
+        // a partition can hold time series of several meters, so they are only recorded as published once every
+        // partition was sent
+        if (sent) {
+            markPublished(meters);
+        }
     }
 
     private Stream<TimeSeries> createMeter(Batch batch, Meter m) {
@@ -29,8 +29,12 @@ public abstract class AbstractDistributionSummary extends AbstractMeter implemen
         this.scale = scale;
 
         if (distributionStatisticConfig.isPublishingPercentiles()) {
-            // hdr-based histogram
-            this.histogram = new TimeWindowPercentileHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
+            if (Boolean.TRUE.equals(distributionStatisticConfig.isCompactPercentiles())) {
+                this.histogram = new TimeWindowLogLinearHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
+            } else {
+                // hdr-based histogram
+                this.histogram = new TimeWindowPercentileHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
+            }
         } else if (distributionStatisticConfig.isPublishingHistogram()) {
             // fixed boundary histograms, which have a slightly better memory footprint
             // when we don't need Micrometer-computed percentiles
@@ -57,6 +61,11 @@ public abstract class AbstractDistributionSummary extends AbstractMeter implemen
         return histogram.takeSnapshot(count(), totalAmount(), max());
     }
 
+    @Override
+    public void visitSnapshot(HistogramVisitor visitor) {
+        histogram.visitSnapshot(count(), totalAmount(), max(), visitor);
+    }
+
     @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
     @Override
     public boolean equals(@Nullable Object o) {
@@ -81,8 +81,12 @@ public abstract class AbstractTimer extends AbstractMeter implements Timer {
         initPauseDetector(pauseDetector);
 
         if (distributionStatisticConfig.isPublishingPercentiles()) {
-            // hdr-based histogram
-            this.histogram = new TimeWindowPercentileHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
+            if (Boolean.TRUE.equals(distributionStatisticConfig.isCompactPercentiles())) {
+                this.histogram = new TimeWindowLogLinearHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
+            } else {
+                // hdr-based histogram
+                this.histogram = new TimeWindowPercentileHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
+            }
         } else if (distributionStatisticConfig.isPublishingHistogram()) {
             // fixed boundary histograms, which have a slightly better memory footprint
             // when we don't need Micrometer-computed percentiles
@@ -183,6 +187,11 @@ public abstract class AbstractTimer extends AbstractMeter implements Timer {
         return histogram.takeSnapshot(count(), totalTime(TimeUnit.NANOSECONDS), max(TimeUnit.NANOSECONDS));
     }
 
+    @Override
+    public void visitSnapshot(HistogramVisitor visitor) {
+        histogram.visitSnapshot(count(), totalTime(TimeUnit.NANOSECONDS), max(TimeUnit.NANOSECONDS), visitor);
+    }
+
     @Override
     public TimeUnit baseTimeUnit() {
         return baseTimeUnit;
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.instrument.util.NamedThreadFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock whose wall time is read from a field that a background thread updates at a fixed interval, rather than
+ * from the system clock on every call. Meters check the wall time on every recording to decide whether their time
+ * windows or steps need to rotate, so a registry constructed with this clock saves several system calls per
+ * recording. Monotonic time, which timers use to measure durations, is still read from the delegate on every call.
+ * <p>
+ * Wall time lags the delegate by up to the tick interval, which only delays rotations by as much.
+ * <pre>{@code
+ * MeterRegistry registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, new CachedClock());
+ * }</pre>
+ *
+ * @since 1.6.0
+ */
+@Incubating(since = "1.6.0")
+public class CachedClock implements Clock, AutoCloseable {
+    private final Clock delegate;
+    private final ScheduledExecutorService ticker;
+    private volatile long wallTime;
+
+    /**
+     * Caches the wall time of the system clock, updated every millisecond.
+     */
+    public CachedClock() {
+        this(Clock.SYSTEM, Duration.ofMillis(1));
+    }
+
+    /**
+     * @param delegate     The clock to read time from.
+     * @param tickInterval How often the wall time is read from the delegate.
+     */
+    public CachedClock(Clock delegate, Duration tickInterval) {
+        this.delegate = delegate;
+        this.wallTime = delegate.wallTime();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("micrometer-clock"));
+        long tickNanos = tickInterval.toNanos();
+        ticker.scheduleAtFixedRate(() -> wallTime = delegate.wallTime(), tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long wallTime() {
+        return wallTime;
+    }
+
+    @Override
+    public long monotonicTime() {
+        return delegate.monotonicTime();
+    }
+
+    /**
+     * Stops updating the wall time.
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+}
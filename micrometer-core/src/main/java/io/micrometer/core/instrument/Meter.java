@@ -260,6 +260,16 @@ public interface Meter {
             return withTag(Tag.of("statistic", statistic.getTagValueRepresentation()));
         }
 
+        /**
+         * Generate a new id whose name and tags are the canonical instances held by the interner.
+         *
+         * @param interner The interner providing canonical instances.
+         * @return A new id equal to this one. The source id remains unchanged.
+         */
+        Id intern(TagInterner interner) {
+            return new Id(interner.intern(name), interner.intern(tags), baseUnit, description, type, syntheticAssociation);
+        }
+
         /**
          * Generate a new id with a different base unit.
          *
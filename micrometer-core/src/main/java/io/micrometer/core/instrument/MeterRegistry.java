@@ -21,6 +21,7 @@ import io.micrometer.core.instrument.config.MeterFilter;
 import io.micrometer.core.instrument.config.MeterFilterReply;
 import io.micrometer.core.instrument.config.NamingConvention;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.RotationScheduler;
 import io.micrometer.core.instrument.distribution.pause.NoPauseDetector;
 import io.micrometer.core.instrument.distribution.pause.PauseDetector;
 import io.micrometer.core.instrument.noop.NoopCounter;
@@ -41,8 +42,6 @@ import io.micrometer.core.lang.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -76,7 +75,6 @@ import static java.util.Objects.requireNonNull;
  */
 public abstract class MeterRegistry {
     protected final Clock clock;
-    private final Object meterMapLock = new Object();
     private volatile MeterFilter[] filters = new MeterFilter[0];
     private final List<Consumer<Meter>> meterAddedListeners = new CopyOnWriteArrayList<>();
     private final List<Consumer<Meter>> meterRemovedListeners = new CopyOnWriteArrayList<>();
@@ -84,21 +82,57 @@ public abstract class MeterRegistry {
     private final Config config = new Config();
     private final More more = new More();
 
-    // Even though writes are guarded by meterMapLock, iterators across value space are supported
+    // Meters are registered concurrently for distinct ids and iterators across value space are supported
     // Hence, we use CHM to support that iteration without ConcurrentModificationException risk
     private final Map<Id, Meter> meterMap = new ConcurrentHashMap<>();
 
+    /**
+     * Map of mapped meter id to a monitor held by the thread currently registering a meter with that id.
+     * Registrations of the same id wait on this monitor, while registrations of distinct ids proceed in parallel.
+     * Removal of the id and closing the registry wait on it too.
+     */
+    private final Map<Id, Registration> pendingRegistrations = new ConcurrentHashMap<>();
+
+    /**
+     * Map of thread to the pending registration it is waiting for, across all registries. A meter builder or
+     * listener may register other meters while its own registration is pending, so this is used to detect threads
+     * that would otherwise wait on each other's registrations forever.
+     */
+    private static final Map<Thread, Registration> awaitedRegistrations = new ConcurrentHashMap<>();
+
     /**
      * Map of meter id whose associated meter contains synthetic counterparts to those synthetic ids.
      * We maintain these associations so that when we remove a meter with synthetics, they can removed
      * as well.
      */
-    // Guarded by meterMapLock for both reads and writes
-    private final Map<Id, Set<Id>> syntheticAssociations = new HashMap<>();
+    private final Map<Id, Set<Id>> syntheticAssociations = new ConcurrentHashMap<>();
+
+    /**
+     * Map of meter id, as supplied by the caller before any {@link MeterFilter} is applied, to the registered meter.
+     * Repeated builder-style lookups of an already registered meter hit this map and skip the filter chain entirely.
+     * It is invalidated whenever a filter is added to the registry.
+     */
+    private final Map<Id, Meter> preFilterIdToMeterMap = new ConcurrentHashMap<>();
+
+    /**
+     * Map of mapped meter id to the pre-filter ids that resolved to it, so that removing a meter also evicts it
+     * from {@link #preFilterIdToMeterMap}.
+     */
+    private final Map<Id, Set<Id>> preFilterIdsByMappedId = new ConcurrentHashMap<>();
+
+    /**
+     * How many pre-filter ids that differ from the mapped id are cached per meter. Filters that collapse
+     * high-cardinality tags map many pre-filter ids to one meter, and caching all of them would grow with the very
+     * cardinality those filters cap. Lookups beyond the bound go through the filter chain.
+     */
+    private static final int MAX_MAPPED_PRE_FILTER_IDS = 8;
 
     private final AtomicBoolean closed = new AtomicBoolean();
     private PauseDetector pauseDetector = new NoPauseDetector();
 
+    @Nullable
+    private volatile TagInterner tagInterner;
+
     /**
      * We'll use snake case as a general-purpose default for registries because it is the most
      * likely to result in a portable name. Camel casing is also perfectly acceptable. '-' and '.'
@@ -564,8 +598,14 @@ public abstract class MeterRegistry {
     private <M extends Meter> M registerMeterIfNecessary(Class<M> meterClass, Meter.Id id,
                                                          @Nullable DistributionStatisticConfig config, BiFunction<Meter.Id, DistributionStatisticConfig, M> builder,
                                                          Function<Meter.Id, M> noopBuilder) {
-        Id mappedId = getMappedId(id);
-        Meter m = getOrCreateMeter(config, builder, id, mappedId, noopBuilder);
+        Meter m = preFilterIdToMeterMap.get(id);
+
+        if (m == null) {
+            MeterFilter[] filtersAtLookup = filters;
+            Id mappedId = getMappedId(id, filtersAtLookup);
+            m = getOrCreateMeter(config, builder, id, mappedId, noopBuilder);
+            cachePreFilterId(id, mappedId, m, filtersAtLookup);
+        }
 
         if (!meterClass.isInstance(m)) {
             throw new IllegalArgumentException("There is already a registered meter of a different type with the same name");
@@ -573,7 +613,7 @@ public abstract class MeterRegistry {
         return meterClass.cast(m);
     }
 
-    private Id getMappedId(Id id) {
+    private Id getMappedId(Id id, MeterFilter[] filters) {
         if (id.syntheticAssociation() != null) {
             return id;
         }
@@ -584,50 +624,111 @@ public abstract class MeterRegistry {
         return mappedId;
     }
 
+    private void cachePreFilterId(Id preFilterId, Id mappedId, Meter m, MeterFilter[] filtersAtLookup) {
+        if (meterMap.get(mappedId) != m) {
+            // Denied and no-op meters are not cached, because the same id may later be requested as another meter type
+            return;
+        }
+
+        // Prefer retaining the registered meter's id, which may hold interned tags, over the caller's copy
+        boolean unmapped = preFilterId.equals(mappedId);
+        Id key = unmapped ? m.getId() : preFilterId;
+        Set<Id> preFilterIds = preFilterIdsByMappedId.computeIfAbsent(m.getId(), k -> ConcurrentHashMap.newKeySet());
+        if (!unmapped && !preFilterIds.contains(key) && preFilterIds.size() >= MAX_MAPPED_PRE_FILTER_IDS) {
+            // the bound is approximate under concurrent registration, which is enough to keep it from growing
+            return;
+        }
+        preFilterIds.add(key);
+        preFilterIdToMeterMap.put(key, m);
+
+        if (filters != filtersAtLookup || meterMap.get(mappedId) != m) {
+            // A filter was added or the meter was removed concurrently, so the mapping may already be stale
+            preFilterIdToMeterMap.remove(key, m);
+        }
+    }
+
+    // VisibleForTesting
+    int preFilterIdCacheSize() {
+        return preFilterIdToMeterMap.size();
+    }
+
     private Meter getOrCreateMeter(@Nullable DistributionStatisticConfig config,
                                    BiFunction<Id, /*Nullable Generic*/ DistributionStatisticConfig, ? extends Meter> builder,
                                    Id originalId, Id mappedId, Function<Meter.Id, ? extends Meter> noopBuilder) {
         Meter m = meterMap.get(mappedId);
 
-        if (m == null) {
+        while (m == null) {
             if (isClosed()) {
                 return noopBuilder.apply(mappedId);
             }
 
-            synchronized (meterMapLock) {
-                m = meterMap.get(mappedId);
-
-                if (m == null) {
-                    if (!accept(mappedId)) {
-                        return noopBuilder.apply(mappedId);
-                    }
-
-                    if (config != null) {
-                        for (MeterFilter filter : filters) {
-                            DistributionStatisticConfig filteredConfig = filter.configure(mappedId, config);
-                            if (filteredConfig != null) {
-                                config = filteredConfig;
-                            }
+            Registration registration = new Registration();
+            Registration inFlight;
+            synchronized (registration) {
+                inFlight = pendingRegistrations.putIfAbsent(mappedId, registration);
+                if (inFlight == null) {
+                    try {
+                        m = meterMap.get(mappedId);
+                        if (m == null) {
+                            // close() either sees this pending registration and waits for it, or has already
+                            // marked the registry closed by the time it is checked here
+                            m = isClosed() ? noopBuilder.apply(mappedId) : createMeter(config, builder, mappedId, noopBuilder);
                         }
+                    } finally {
+                        pendingRegistrations.remove(mappedId, registration);
                     }
+                    return m;
+                }
+            }
 
-                    m = builder.apply(mappedId, config);
+            // another thread is registering a meter with this id, so wait for it to finish and look again
+            if (!awaitRegistration(inFlight)) {
+                // a meter builder or listener of this thread's own pending registration is registering this id, or
+                // that of a thread waiting for it, which waiting would deadlock on, so build it outside the pending
+                // slot as an unsynchronized registry would
+                return createMeter(config, builder, mappedId, noopBuilder);
+            }
+            m = meterMap.get(mappedId);
+        }
 
-                    Id synAssoc = mappedId.syntheticAssociation();
-                    if (synAssoc != null) {
-                        Set<Id> associations = syntheticAssociations.computeIfAbsent(synAssoc,
-                                k -> new HashSet<>());
-                        associations.add(mappedId);
-                    }
+        return m;
+    }
 
-                    for (Consumer<Meter> onAdd : meterAddedListeners) {
-                        onAdd.accept(m);
-                    }
-                    meterMap.put(mappedId, m);
+    private Meter createMeter(@Nullable DistributionStatisticConfig config,
+                              BiFunction<Id, /*Nullable Generic*/ DistributionStatisticConfig, ? extends Meter> builder,
+                              Id mappedId, Function<Meter.Id, ? extends Meter> noopBuilder) {
+        if (!accept(mappedId)) {
+            return noopBuilder.apply(mappedId);
+        }
+
+        if (config != null) {
+            for (MeterFilter filter : filters) {
+                DistributionStatisticConfig filteredConfig = filter.configure(mappedId, config);
+                if (filteredConfig != null) {
+                    config = filteredConfig;
                 }
             }
         }
 
+        TagInterner interner = tagInterner;
+        if (interner != null) {
+            mappedId = mappedId.intern(interner);
+        }
+
+        Meter m = builder.apply(mappedId, config);
+
+        Id synAssoc = mappedId.syntheticAssociation();
+        if (synAssoc != null) {
+            Set<Id> associations = syntheticAssociations.computeIfAbsent(synAssoc,
+                    k -> ConcurrentHashMap.newKeySet());
+            associations.add(mappedId);
+        }
+
+        for (Consumer<Meter> onAdd : meterAddedListeners) {
+            onAdd.accept(m);
+        }
+        meterMap.put(mappedId, m);
+
         return m;
     }
 
@@ -662,29 +763,30 @@ public abstract class MeterRegistry {
     @Incubating(since = "1.1.0")
     @Nullable
     public Meter remove(Meter.Id mappedId) {
-        Meter m = meterMap.get(mappedId);
+        awaitRegistration(pendingRegistrations.get(mappedId));
+        Meter m = meterMap.remove(mappedId);
 
         if (m != null) {
-            synchronized (meterMapLock) {
-                m = meterMap.remove(mappedId);
-                if (m != null) {
-                    Set<Id> synthetics = syntheticAssociations.remove(mappedId);
-                    if (synthetics != null) {
-                        for (Id synthetic : synthetics) {
-                            remove(synthetic);
-                        }
-                    }
-
-                    for (Consumer<Meter> onRemove : meterRemovedListeners) {
-                        onRemove.accept(m);
-                    }
+            Set<Id> preFilterIds = preFilterIdsByMappedId.remove(mappedId);
+            if (preFilterIds != null) {
+                for (Id preFilterId : preFilterIds) {
+                    preFilterIdToMeterMap.remove(preFilterId, m);
+                }
+            }
 
-                    return m;
+            Set<Id> synthetics = syntheticAssociations.remove(mappedId);
+            if (synthetics != null) {
+                for (Id synthetic : synthetics) {
+                    remove(synthetic);
                 }
             }
+
+            for (Consumer<Meter> onRemove : meterRemovedListeners) {
+                onRemove.accept(m);
+            }
         }
 
-        return null;
+        return m;
     }
 
     /**
@@ -732,11 +834,14 @@ public abstract class MeterRegistry {
             System.arraycopy(filters, 0, newFilters, 0, filters.length);
             newFilters[filters.length] = filter;
             filters = newFilters;
+            preFilterIdToMeterMap.clear();
+            preFilterIdsByMappedId.clear();
             return this;
         }
 
         /**
-         * Register an event listener for each meter added to the registry.
+         * Register an event listener for each meter added to the registry. Meters with distinct ids may be
+         * registered concurrently, so the listener must be thread-safe.
          *
          * @param meterAddedListener a meter-added event listener to be added
          * @return This configuration instance.
@@ -817,6 +922,42 @@ public abstract class MeterRegistry {
         public PauseDetector pauseDetector() {
             return pauseDetector;
         }
+
+        /**
+         * Share meter names, tag keys, tag values and tag instances across the ids of meters registered from now on.
+         * This reduces the heap footprint of registries with many meters whose tags repeat the same strings.
+         *
+         * @param interner The interner providing canonical instances.
+         * @return This configuration instance.
+         * @since 1.6.0
+         */
+        @Incubating(since = "1.6.0")
+        public Config tagInterner(TagInterner interner) {
+            tagInterner = interner;
+            return this;
+        }
+
+        /**
+         * Rotate the time-windowed distribution statistics of timers and distribution summaries registered from
+         * now on with a background scheduler, rather than on the threads recording to them. The registry doesn't
+         * close the scheduler, so it can be shared between registries.
+         *
+         * @param rotationScheduler The scheduler to rotate distribution statistics with.
+         * @return This configuration instance.
+         * @since 1.6.0
+         */
+        @Incubating(since = "1.6.0")
+        public Config rotationScheduler(RotationScheduler rotationScheduler) {
+            return meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Id id, DistributionStatisticConfig config) {
+                    return DistributionStatisticConfig.builder()
+                            .rotationScheduler(rotationScheduler)
+                            .build()
+                            .merge(config);
+                }
+            });
+        }
     }
 
     /**
@@ -978,14 +1119,52 @@ public abstract class MeterRegistry {
      */
     public void close() {
         if (closed.compareAndSet(false, true)) {
-            synchronized (meterMapLock) {
-                for (Meter meter : meterMap.values()) {
-                    meter.close();
+            // let registrations already under way finish, so that their meters are closed below
+            for (Registration registration : pendingRegistrations.values()) {
+                awaitRegistration(registration);
+            }
+            for (Meter meter : meterMap.values()) {
+                meter.close();
+            }
+        }
+    }
+
+    /**
+     * @param registration A pending registration, possibly already complete.
+     * @return {@code false} without waiting if the registration is held by this thread, or by a thread that is itself
+     * waiting, directly or through other threads, for a registration held by this thread.
+     */
+    private static boolean awaitRegistration(@Nullable Registration registration) {
+        if (registration == null) {
+            return true;
+        }
+
+        Thread current = Thread.currentThread();
+        // published before the waits are followed, so that of two threads about to wait on each other at least one
+        // sees the other waiting
+        awaitedRegistrations.put(current, registration);
+        try {
+            Registration awaited = registration;
+            for (int hops = 0; awaited != null && hops <= awaitedRegistrations.size(); hops++) {
+                if (awaited.owner == current) {
+                    return false;
                 }
+                awaited = awaitedRegistrations.get(awaited.owner);
+            }
+
+            synchronized (registration) {
+                // the monitor is held for as long as the registration is in progress
             }
+            return true;
+        } finally {
+            awaitedRegistrations.remove(current);
         }
     }
 
+    private static final class Registration {
+        final Thread owner = Thread.currentThread();
+    }
+
     /**
      * If the registry is closed, it will no longer accept new meters and any publishing activity will cease.
      *
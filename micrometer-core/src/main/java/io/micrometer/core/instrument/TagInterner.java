@@ -0,0 +1,109 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.lang.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded pool of canonical meter names, tag keys, tag values and {@link Tag} instances. Large registries
+ * tend to repeat the same few hundred keys and values across many meters, each held in a separate instance.
+ * When a registry is configured with {@link MeterRegistry.Config#tagInterner(TagInterner)}, the ids of newly
+ * registered meters share these instances instead.
+ * <p>
+ * The pool is direct-mapped: each candidate hashes to a single slot and replaces whatever occupied that slot
+ * before, so memory use is bounded by the capacity regardless of tag cardinality. Slots hold weak references,
+ * so the pool never keeps alive a tag that is no longer used by any meter.
+ *
+ * @since 1.6.0
+ */
+@Incubating(since = "1.6.0")
+public class TagInterner {
+    private final AtomicReferenceArray<WeakReference<String>> strings;
+    private final AtomicReferenceArray<WeakReference<Tag>> tags;
+    private final int mask;
+
+    public TagInterner() {
+        this(4096);
+    }
+
+    /**
+     * @param capacity The number of slots for each of strings and tags, rounded up to the next power of two.
+     */
+    public TagInterner(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.strings = new AtomicReferenceArray<>(size);
+        this.tags = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @param s A string to intern.
+     * @return An equal string, which is the canonical instance if one is pooled.
+     */
+    public String intern(String s) {
+        int slot = slot(s.hashCode());
+        String pooled = get(strings, slot);
+        if (s.equals(pooled)) {
+            return pooled;
+        }
+        strings.set(slot, new WeakReference<>(s));
+        return s;
+    }
+
+    /**
+     * @param tag A tag to intern.
+     * @return An equal tag, which is the canonical instance if one is pooled. A new canonical tag is built
+     * from interned key and value strings.
+     */
+    public Tag intern(Tag tag) {
+        int slot = slot(31 * tag.getKey().hashCode() + tag.getValue().hashCode());
+        Tag pooled = get(tags, slot);
+        if (pooled != null && pooled.getKey().equals(tag.getKey()) && pooled.getValue().equals(tag.getValue())) {
+            return pooled;
+        }
+        Tag canonical = Tag.of(intern(tag.getKey()), intern(tag.getValue()));
+        tags.set(slot, new WeakReference<>(canonical));
+        return canonical;
+    }
+
+    /**
+     * @param tags Tags to intern.
+     * @return Equal tags made up of canonical tag instances.
+     */
+    public Tags intern(Tags tags) {
+        return tags.intern(this);
+    }
+
+    private int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    @Nullable
+    private static <T> T get(AtomicReferenceArray<WeakReference<T>> pool, int slot) {
+        WeakReference<T> ref = pool.get(slot);
+        return ref == null ? null : ref.get();
+    }
+}
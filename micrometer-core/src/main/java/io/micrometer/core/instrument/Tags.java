@@ -38,12 +38,24 @@ public final class Tags implements Iterable<Tag> {
     private final Tag[] tags;
     private int last;
 
+    // Lazily computed and cached, like String#hashCode, since tags are frequently used as part of map keys
+    private int hash;
+
     private Tags(Tag[] tags) {
         this.tags = tags;
         Arrays.sort(this.tags);
         dedup();
     }
 
+    /**
+     * @param sortedTags Tags that are already sorted and deduplicated by key.
+     * @param last       The number of leading elements of {@code sortedTags} that are in use.
+     */
+    private Tags(Tag[] sortedTags, int last) {
+        this.tags = sortedTags;
+        this.last = last;
+    }
+
     private void dedup() {
         int n = tags.length;
 
@@ -63,6 +75,52 @@ public final class Tags implements Iterable<Tag> {
         last = j;
     }
 
+    /**
+     * Merge two sorted and deduplicated tag collections in a single linear pass. When both contain the same key,
+     * the tag from {@code other} wins, consistent with sorting and deduplicating the concatenation of the two.
+     */
+    private Tags merge(Tags other) {
+        if (other.last == 0) {
+            return this;
+        }
+        if (last == 0) {
+            return other;
+        }
+
+        Tag[] merged = new Tag[last + other.last];
+        int i = 0, j = 0, k = 0;
+        while (i < last && j < other.last) {
+            int cmp = tags[i].compareTo(other.tags[j]);
+            if (cmp < 0) {
+                merged[k++] = tags[i++];
+            } else if (cmp > 0) {
+                merged[k++] = other.tags[j++];
+            } else {
+                merged[k++] = other.tags[j++];
+                i++;
+            }
+        }
+        while (i < last) {
+            merged[k++] = tags[i++];
+        }
+        while (j < other.last) {
+            merged[k++] = other.tags[j++];
+        }
+        return new Tags(merged, k);
+    }
+
+    /**
+     * @param interner The interner providing canonical tag instances.
+     * @return Equal tags made up of the canonical instances of each tag.
+     */
+    Tags intern(TagInterner interner) {
+        Tag[] interned = new Tag[last];
+        for (int i = 0; i < last; i++) {
+            interned[i] = interner.intern(tags[i]);
+        }
+        return new Tags(interned, last);
+    }
+
     /**
      * Return a new {@code Tags} instance by merging this collection and the specified key/value pair.
      *
@@ -71,7 +129,7 @@ public final class Tags implements Iterable<Tag> {
      * @return a new {@code Tags} instance
      */
     public Tags and(String key, String value) {
-        return and(Tag.of(key, value));
+        return merge(Tags.of(key, value));
     }
 
     /**
@@ -84,7 +142,7 @@ public final class Tags implements Iterable<Tag> {
         if (keyValues == null || keyValues.length == 0) {
             return this;
         }
-        return and(Tags.of(keyValues));
+        return merge(Tags.of(keyValues));
     }
 
     /**
@@ -97,10 +155,7 @@ public final class Tags implements Iterable<Tag> {
         if (tags == null || tags.length == 0) {
             return this;
         }
-        Tag[] newTags = new Tag[last + tags.length];
-        System.arraycopy(this.tags, 0, newTags, 0, last);
-        System.arraycopy(tags, 0, newTags, last, tags.length);
-        return new Tags(newTags);
+        return merge(new Tags(Arrays.copyOf(tags, tags.length)));
     }
 
     /**
@@ -113,12 +168,7 @@ public final class Tags implements Iterable<Tag> {
         if (tags == null || !tags.iterator().hasNext()) {
             return this;
         }
-
-        if (this.tags.length == 0) {
-            return Tags.of(tags);
-        }
-
-        return and(Tags.of(tags).tags);
+        return merge(Tags.of(tags));
     }
 
     @Override
@@ -157,9 +207,13 @@ public final class Tags implements Iterable<Tag> {
 
     @Override
     public int hashCode() {
-        int result = 1;
-        for (int i = 0; i < last; i++) {
-            result = 31 * result + tags[i].hashCode();
+        int result = hash;
+        if (result == 0) {
+            result = 1;
+            for (int i = 0; i < last; i++) {
+                result = 31 * result + tags[i].hashCode();
+            }
+            hash = result;
         }
         return result;
     }
@@ -176,6 +230,9 @@ public final class Tags implements Iterable<Tag> {
         if (last != obj.last)
             return false;
 
+        if (hash != 0 && obj.hash != 0 && hash != obj.hash)
+            return false;
+
         for (int i = 0; i < last; i++) {
             if (!tags[i].equals(obj.tags[i]))
                 return false;
@@ -233,7 +290,7 @@ public final class Tags implements Iterable<Tag> {
      * @return a new {@code Tags} instance
      */
     public static Tags of(String key, String value) {
-        return new Tags(new Tag[]{Tag.of(key, value)});
+        return new Tags(new Tag[]{Tag.of(key, value)}, 1);
     }
 
     /**
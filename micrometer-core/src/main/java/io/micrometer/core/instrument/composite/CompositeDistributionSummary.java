@@ -20,6 +20,7 @@ import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.HistogramVisitor;
 import io.micrometer.core.instrument.noop.NoopDistributionSummary;
 
 class CompositeDistributionSummary extends AbstractCompositeMeter<DistributionSummary> implements DistributionSummary {
@@ -58,6 +59,11 @@ class CompositeDistributionSummary extends AbstractCompositeMeter<DistributionSu
         return firstChild().takeSnapshot();
     }
 
+    @Override
+    public void visitSnapshot(HistogramVisitor visitor) {
+        firstChild().visitSnapshot(visitor);
+    }
+
     @Override
     DistributionSummary newNoopMeter() {
         return new NoopDistributionSummary(getId());
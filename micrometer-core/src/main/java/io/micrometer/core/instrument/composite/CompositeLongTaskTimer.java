@@ -20,6 +20,7 @@ import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.HistogramVisitor;
 import io.micrometer.core.instrument.noop.NoopLongTaskTimer;
 
 import java.time.Duration;
@@ -67,6 +68,11 @@ class CompositeLongTaskTimer extends AbstractCompositeMeter<LongTaskTimer> imple
         return firstChild().takeSnapshot();
     }
 
+    @Override
+    public void visitSnapshot(HistogramVisitor visitor) {
+        firstChild().visitSnapshot(visitor);
+    }
+
     @Override
     LongTaskTimer newNoopMeter() {
         return new NoopLongTaskTimer(getId());
@@ -20,6 +20,7 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.HistogramVisitor;
 import io.micrometer.core.instrument.distribution.pause.PauseDetector;
 import io.micrometer.core.instrument.noop.NoopTimer;
 
@@ -103,6 +104,11 @@ class CompositeTimer extends AbstractCompositeMeter<Timer> implements Timer {
         return firstChild().takeSnapshot();
     }
 
+    @Override
+    public void visitSnapshot(HistogramVisitor visitor) {
+        firstChild().visitSnapshot(visitor);
+    }
+
     @Override
     public TimeUnit baseTimeUnit() {
         return firstChild().baseTimeUnit();
@@ -21,13 +21,18 @@ import io.micrometer.core.lang.Nullable;
 
 import java.io.PrintStream;
 import java.lang.reflect.Array;
-import java.util.Iterator;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * An abstract base class for histogram implementations who maintain samples in a ring buffer
  * to decay older samples and give greater weight to recent samples.
+ * <p>
+ * Each bucket of the ring buffer holds the samples recorded during one rotation interval, and samples are
+ * only recorded to the current bucket. Buckets are merged into the accumulated histogram lazily when a
+ * snapshot is taken, so the cost of recording does not depend on the buffer length. Recording never
+ * blocks: a rotation is performed by whichever recording thread notices it is due, while other threads
+ * keep recording to the bucket they observed. With a {@link RotationScheduler}, rotations are performed
+ * by the scheduler instead and recording threads don't check for them at all.
  *
  * @param <T> the type of the buckets in a ring buffer
  * @param <U> the type of accumulated histogram
@@ -46,8 +51,18 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
     private final Clock clock;
     private final boolean supportsAggregablePercentiles;
 
+    @Nullable
+    private final RotationScheduler rotationScheduler;
+
+    /**
+     * The histogram buckets to publish, shared with other histograms of the same configuration, or {@code null}
+     * when no histogram is published.
+     */
+    @Nullable
+    private final double[] monitoredValues;
+
     private final T[] ringBuffer;
-    private short currentBucket;
+    private volatile int currentBucket;
     private final long durationBetweenRotatesMillis;
     private volatile boolean accumulatedHistogramStale;
 
@@ -59,12 +74,21 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
     @Nullable
     private U accumulatedHistogram;
 
+    /**
+     * Bucket counts of the last snapshot, which are reused until the accumulated histogram changes. Never handed
+     * out as-is, since callers of {@link HistogramSnapshot#histogramCounts()} may modify the array. Guarded by
+     * {@code this}.
+     */
+    @Nullable
+    private CountAtBucket[] countSnapshot;
+
     @SuppressWarnings("unchecked")
     AbstractTimeWindowHistogram(Clock clock, DistributionStatisticConfig distributionStatisticConfig, Class<T> bucketType,
                                 boolean supportsAggregablePercentiles) {
         this.clock = clock;
         this.distributionStatisticConfig = validateDistributionConfig(distributionStatisticConfig);
         this.supportsAggregablePercentiles = supportsAggregablePercentiles;
+        this.rotationScheduler = distributionStatisticConfig.getRotationScheduler();
 
         final int ageBuckets = distributionStatisticConfig.getBufferLength();
         if (ageBuckets <= 0) {
@@ -79,6 +103,10 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
                     "ms) / bufferLength (" + ageBuckets + ") must be greater than 0.");
         }
 
+        double[] histogramBuckets = distributionStatisticConfig.isPublishingHistogram() ?
+                distributionStatisticConfig.getHistogramBucketArray(supportsAggregablePercentiles) : null;
+        monitoredValues = histogramBuckets == null || histogramBuckets.length == 0 ? null : histogramBuckets;
+
         currentBucket = 0;
         lastRotateTimestampMillis = clock.wallTime();
     }
@@ -129,6 +157,11 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
             ringBuffer[i] = newBucket();
         }
         accumulatedHistogram = newAccumulatedHistogram(ringBuffer);
+
+        if (rotationScheduler != null) {
+            // only once the ring buffer is ready to be rotated
+            rotationScheduler.<AbstractTimeWindowHistogram<?, ?>>register(this, AbstractTimeWindowHistogram::rotate);
+        }
     }
 
     abstract T newBucket();
@@ -141,9 +174,27 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
 
     abstract U newAccumulatedHistogram(T[] ringBuffer);
 
-    abstract void accumulate();
+    /**
+     * Bring the accumulated histogram up to date with the ring buffer. By default it is reset and every
+     * bucket of the ring buffer is added to it again.
+     */
+    void accumulate() {
+        resetAccumulatedHistogram();
+        for (T bucket : ringBuffer) {
+            accumulate(bucket);
+        }
+    }
 
-    abstract void resetAccumulatedHistogram();
+    /**
+     * Add the samples of one bucket of the ring buffer to the accumulated histogram.
+     *
+     * @param bucket A bucket of the ring buffer.
+     */
+    void accumulate(T bucket) {
+    }
+
+    void resetAccumulatedHistogram() {
+    }
 
     abstract double valueAtPercentile(double percentile);
 
@@ -171,10 +222,37 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
         return new HistogramSnapshot(count, total, max, values, counts, this::outputSummary);
     }
 
+    @Override
+    public final void visitSnapshot(long count, double total, double max, HistogramVisitor visitor) {
+        rotate();
+
+        synchronized (this) {
+            accumulateIfStale();
+            visitor.summary(count, total, max);
+
+            double[] monitoredPercentiles = distributionStatisticConfig.getPercentiles();
+            if (monitoredPercentiles != null) {
+                for (double p : monitoredPercentiles) {
+                    visitor.percentile(p, valueAtPercentile(p * 100));
+                }
+            }
+
+            if (countSnapshot != null) {
+                for (CountAtBucket countAtBucket : countSnapshot) {
+                    visitor.bucket(countAtBucket.bucket(), countAtBucket.count());
+                }
+            } else if (monitoredValues != null) {
+                visitCountsAtValues(monitoredValues, visitor);
+            }
+        }
+    }
+
     private void accumulateIfStale() {
         if (accumulatedHistogramStale) {
-            accumulate();
+            // cleared before merging so that samples recorded concurrently mark it stale again
             accumulatedHistogramStale = false;
+            countSnapshot = null;
+            accumulate();
         }
     }
 
@@ -192,52 +270,81 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
         return values;
     }
 
+    @Nullable
     private CountAtBucket[] takeCountSnapshot() {
-        if (!distributionStatisticConfig.isPublishingHistogram()) {
+        if (monitoredValues == null) {
             return null;
         }
 
-        final Set<Double> monitoredValues = distributionStatisticConfig.getHistogramBuckets(supportsAggregablePercentiles);
-        if (monitoredValues.isEmpty()) {
-            return null;
+        if (countSnapshot == null) {
+            countSnapshot = countsAtValues(monitoredValues);
         }
+        // CountAtBucket is immutable, so a shallow copy skips recounting while keeping the cache private
+        return countSnapshot.clone();
+    }
 
-        final CountAtBucket[] counts = new CountAtBucket[monitoredValues.size()];
-        final Iterator<Double> iterator = monitoredValues.iterator();
-        for (int i = 0; i < counts.length; i++) {
-            final double v = iterator.next();
-            counts[i] = new CountAtBucket(v, countAtValue(v));
-        }
+    private CountAtBucket[] countsAtValues(double[] values) {
+        final CountAtBucket[] counts = new CountAtBucket[values.length];
+        visitCountsAtValues(values, new HistogramVisitor() {
+            private int i = 0;
+
+            @Override
+            public void bucket(double bucket, double count) {
+                counts[i++] = new CountAtBucket(bucket, count);
+            }
+        });
         return counts;
     }
 
+    /**
+     * @param values  The values to count samples at, in ascending order.
+     * @param visitor Receives the cumulative count of samples at each value, from the accumulated histogram.
+     */
+    void visitCountsAtValues(double[] values, HistogramVisitor visitor) {
+        for (double value : values) {
+            visitor.bucket(value, countAtValue(value));
+        }
+    }
+
     public void recordLong(long value) {
-        rotate();
+        rotateIfRecordingThreadsRotate();
         try {
-            for (T bucket : ringBuffer) {
-                recordLong(bucket, value);
-            }
+            recordLong(ringBuffer[currentBucket], value);
         } catch (IndexOutOfBoundsException ignored) {
             // the value is so large (or small) that the dynamic range of the histogram cannot be extended to include it
         } finally {
-            accumulatedHistogramStale = true;
+            markAccumulatedHistogramStale();
         }
     }
 
     public void recordDouble(double value) {
-        rotate();
+        rotateIfRecordingThreadsRotate();
         try {
-            for (T bucket : ringBuffer) {
-                recordDouble(bucket, value);
-            }
+            recordDouble(ringBuffer[currentBucket], value);
         } catch (IndexOutOfBoundsException ignored) {
             // the value is so large (or small) that the dynamic range of the histogram cannot be extended to include it
         } finally {
+            markAccumulatedHistogramStale();
+        }
+    }
+
+    /**
+     * Called on every sample, so the shared flag is only written when it changes. Unconditional volatile writes would
+     * have every recording thread contend on its cache line, undoing the benefit of striped buckets.
+     */
+    private void markAccumulatedHistogramStale() {
+        if (!accumulatedHistogramStale) {
             accumulatedHistogramStale = true;
         }
     }
 
-    private void rotate() {
+    private void rotateIfRecordingThreadsRotate() {
+        if (rotationScheduler == null || !rotationScheduler.isRunning()) {
+            rotate();
+        }
+    }
+
+    void rotate() {
         long timeSinceLastRotateMillis = clock.wallTime() - lastRotateTimestampMillis;
         if (timeSinceLastRotateMillis < durationBetweenRotatesMillis) {
             // Need to wait more for next rotation.
@@ -251,17 +358,20 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
 
         try {
             int iterations = 0;
+            // Only excludes concurrent snapshots, which read the buckets. Recording threads are never blocked.
             synchronized (this) {
+                int bucket = currentBucket;
                 do {
-                    resetBucket(ringBuffer[currentBucket]);
-                    if (++currentBucket >= ringBuffer.length) {
-                        currentBucket = 0;
+                    if (++bucket >= ringBuffer.length) {
+                        bucket = 0;
                     }
+                    // the oldest bucket is reset before it becomes visible to recording threads as the current one
+                    resetBucket(ringBuffer[bucket]);
+                    currentBucket = bucket;
                     timeSinceLastRotateMillis -= durationBetweenRotatesMillis;
                     lastRotateTimestampMillis += durationBetweenRotatesMillis;
                 } while (timeSinceLastRotateMillis >= durationBetweenRotatesMillis && ++iterations < ringBuffer.length);
 
-                resetAccumulatedHistogram();
                 accumulatedHistogramStale = true;
             }
         } finally {
@@ -272,8 +382,4 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
     protected U accumulatedHistogram() {
         return accumulatedHistogram;
     }
-
-    protected T currentHistogram() {
-        return ringBuffer[currentBucket];
-    }
 }
@@ -19,8 +19,12 @@ import io.micrometer.core.instrument.internal.Mergeable;
 import io.micrometer.core.lang.Nullable;
 
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.LongStream;
 
 /**
@@ -45,6 +49,14 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
 
     public static final DistributionStatisticConfig NONE = builder().build();
 
+    /**
+     * Resolved histogram buckets shared between configurations with the same bucket options, so that meters
+     * with identical configurations hold one copy of their buckets.
+     */
+    private static final ConcurrentMap<HistogramBucketsKey, double[]> HISTOGRAM_BUCKETS = new ConcurrentHashMap<>();
+
+    private static final int MAX_SHARED_HISTOGRAM_BUCKETS = 1024;
+
     @Nullable
     private Boolean percentileHistogram;
 
@@ -69,6 +81,15 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
     @Nullable
     private Integer bufferLength;
 
+    @Nullable
+    private Boolean stripedHistogram;
+
+    @Nullable
+    private Boolean compactPercentiles;
+
+    @Nullable
+    private RotationScheduler rotationScheduler;
+
     public static Builder builder() {
         return new Builder();
     }
@@ -91,6 +112,9 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
                 .maximumExpectedValue(this.maximumExpectedValue == null ? parent.maximumExpectedValue : this.maximumExpectedValue)
                 .expiry(this.expiry == null ? parent.expiry : this.expiry)
                 .bufferLength(this.bufferLength == null ? parent.bufferLength : this.bufferLength)
+                .stripedHistogram(this.stripedHistogram == null ? parent.stripedHistogram : this.stripedHistogram)
+                .compactPercentiles(this.compactPercentiles == null ? parent.compactPercentiles : this.compactPercentiles)
+                .rotationScheduler(this.rotationScheduler == null ? parent.rotationScheduler : this.rotationScheduler)
                 .build();
     }
 
@@ -118,6 +142,30 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
         return buckets;
     }
 
+    /**
+     * The same buckets as {@link #getHistogramBuckets(boolean)} as a primitive array in ascending order. The
+     * array is shared with other configurations that have the same bucket options, and must not be modified.
+     *
+     * @param supportsAggregablePercentiles whether it supports aggregable percentiles
+     * @return histogram buckets
+     */
+    double[] getHistogramBucketArray(boolean supportsAggregablePercentiles) {
+        HistogramBucketsKey key = new HistogramBucketsKey(
+                percentileHistogram != null && percentileHistogram && supportsAggregablePercentiles,
+                minimumExpectedValue, maximumExpectedValue, serviceLevelObjectives);
+        double[] buckets = HISTOGRAM_BUCKETS.get(key);
+        if (buckets == null) {
+            buckets = key.buckets();
+            if (HISTOGRAM_BUCKETS.size() < MAX_SHARED_HISTOGRAM_BUCKETS) {
+                double[] existing = HISTOGRAM_BUCKETS.putIfAbsent(key, buckets);
+                if (existing != null) {
+                    buckets = existing;
+                }
+            }
+        }
+        return buckets;
+    }
+
     /**
      * Adds histogram buckets used to generate aggregable percentile approximations in monitoring
      * systems that have query facilities to do so (e.g. Prometheus' {@code histogram_quantile},
@@ -231,6 +279,44 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
         return bufferLength;
     }
 
+    /**
+     * Fixed boundary histograms normally keep a single count per bucket, which all recording threads update.
+     * When striped, each bucket count is spread over several padded cells that different threads update
+     * independently and that are summed when a snapshot is taken. This relieves contention on heavily
+     * used meters at the cost of more memory per histogram.
+     *
+     * @return Whether fixed boundary histogram bucket counts are striped across recording threads.
+     * @since 1.6.0
+     */
+    @Nullable
+    public Boolean isStripedHistogram() {
+        return stripedHistogram;
+    }
+
+    /**
+     * Percentiles are normally computed from an HdrHistogram per bucket of the ring buffer. When compact, they are
+     * computed from log-linear buckets that are only allocated for the ranges of values actually recorded, which
+     * takes much less memory per meter. Values are kept within a relative error determined by the percentile
+     * precision, and values outside of the minimum and maximum expected values are clamped to them.
+     *
+     * @return Whether percentiles are computed from compact log-linear buckets.
+     * @since 1.6.0
+     */
+    @Nullable
+    public Boolean isCompactPercentiles() {
+        return compactPercentiles;
+    }
+
+    /**
+     * @return The scheduler that rotates time-windowed distribution statistics in the background, or {@code null}
+     * if they are rotated by recording threads.
+     * @since 1.6.0
+     */
+    @Nullable
+    public RotationScheduler getRotationScheduler() {
+        return rotationScheduler;
+    }
+
     /**
      * Publish at a minimum a histogram containing your defined SLA boundaries. When used in conjunction with
      * {@link #percentileHistogram}, the boundaries defined here are included alongside other buckets used to
@@ -428,6 +514,49 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
             return this;
         }
 
+        /**
+         * Fixed boundary histograms normally keep a single count per bucket, which all recording threads update.
+         * When striped, each bucket count is spread over several padded cells that different threads update
+         * independently and that are summed when a snapshot is taken. This relieves contention on heavily
+         * used meters at the cost of more memory per histogram.
+         *
+         * @param enabled Whether to stripe fixed boundary histogram bucket counts across recording threads.
+         * @return This builder.
+         * @since 1.6.0
+         */
+        public Builder stripedHistogram(@Nullable Boolean enabled) {
+            config.stripedHistogram = enabled;
+            return this;
+        }
+
+        /**
+         * Percentiles are normally computed from an HdrHistogram per bucket of the ring buffer. When compact, they are
+         * computed from log-linear buckets that are only allocated for the ranges of values actually recorded, which
+         * takes much less memory per meter. Values are kept within a relative error determined by the percentile
+         * precision, and values outside of the minimum and maximum expected values are clamped to them.
+         *
+         * @param enabled Whether to compute percentiles from compact log-linear buckets.
+         * @return This builder.
+         * @since 1.6.0
+         */
+        public Builder compactPercentiles(@Nullable Boolean enabled) {
+            config.compactPercentiles = enabled;
+            return this;
+        }
+
+        /**
+         * Time-windowed distribution statistics are normally rotated by whichever thread records a sample when a
+         * rotation is due. A scheduler rotates them in the background instead, off of the recording path.
+         *
+         * @param rotationScheduler The scheduler to rotate distribution statistics with.
+         * @return This builder.
+         * @since 1.6.0
+         */
+        public Builder rotationScheduler(@Nullable RotationScheduler rotationScheduler) {
+            config.rotationScheduler = rotationScheduler;
+            return this;
+        }
+
         /**
          * @return A new immutable distribution configuration.
          */
@@ -443,4 +572,71 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
     public boolean isPublishingHistogram() {
         return (percentileHistogram != null && percentileHistogram) || (serviceLevelObjectives != null && serviceLevelObjectives.length > 0);
     }
+
+    private static final class HistogramBucketsKey {
+        private final boolean percentileHistogram;
+
+        @Nullable
+        private final Double minimumExpectedValue;
+
+        @Nullable
+        private final Double maximumExpectedValue;
+
+        @Nullable
+        private final double[] serviceLevelObjectives;
+
+        HistogramBucketsKey(boolean percentileHistogram, @Nullable Double minimumExpectedValue,
+                            @Nullable Double maximumExpectedValue, @Nullable double[] serviceLevelObjectives) {
+            this.percentileHistogram = percentileHistogram;
+            // the expected values only matter for percentile histograms
+            this.minimumExpectedValue = percentileHistogram ? minimumExpectedValue : null;
+            this.maximumExpectedValue = percentileHistogram ? maximumExpectedValue : null;
+            this.serviceLevelObjectives = serviceLevelObjectives == null ? null : serviceLevelObjectives.clone();
+        }
+
+        @SuppressWarnings("ConstantConditions")
+        double[] buckets() {
+            double[] percentileBuckets = percentileHistogram ?
+                    PercentileHistogramBuckets.buckets(minimumExpectedValue, maximumExpectedValue) : new double[0];
+            int sloCount = serviceLevelObjectives == null ? 0 : serviceLevelObjectives.length;
+            int expectedCount = percentileHistogram ? 2 : 0;
+
+            double[] buckets = Arrays.copyOf(percentileBuckets, percentileBuckets.length + expectedCount + sloCount);
+            int size = percentileBuckets.length;
+            if (percentileHistogram) {
+                buckets[size++] = minimumExpectedValue;
+                buckets[size++] = maximumExpectedValue;
+            }
+            if (sloCount > 0) {
+                System.arraycopy(serviceLevelObjectives, 0, buckets, size, sloCount);
+                size += sloCount;
+            }
+            Arrays.sort(buckets, 0, size);
+
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct == 0 || Double.compare(buckets[distinct - 1], buckets[i]) != 0) {
+                    buckets[distinct++] = buckets[i];
+                }
+            }
+            return distinct == buckets.length ? buckets : Arrays.copyOf(buckets, distinct);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            HistogramBucketsKey that = (HistogramBucketsKey) o;
+            return percentileHistogram == that.percentileHistogram &&
+                    Objects.equals(minimumExpectedValue, that.minimumExpectedValue) &&
+                    Objects.equals(maximumExpectedValue, that.maximumExpectedValue) &&
+                    Arrays.equals(serviceLevelObjectives, that.serviceLevelObjectives);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hash(percentileHistogram, minimumExpectedValue, maximumExpectedValue);
+            return 31 * result + Arrays.hashCode(serviceLevelObjectives);
+        }
+    }
 }
@@ -15,6 +15,7 @@
  */
 package io.micrometer.core.instrument.distribution;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Timer;
 
@@ -32,6 +33,20 @@ public interface Histogram extends AutoCloseable {
 
     HistogramSnapshot takeSnapshot(long count, double total, double max);
 
+    /**
+     * Passes the same statistics as {@link #takeSnapshot(long, double, double)} to a visitor.
+     *
+     * @param count   Total number of recordings.
+     * @param total   In nanos if a unit of time.
+     * @param max     In nanos if a unit of time.
+     * @param visitor Receives the distribution statistics.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    default void visitSnapshot(long count, double total, double max, HistogramVisitor visitor) {
+        takeSnapshot(count, total, max).accept(visitor);
+    }
+
     @Override
     default void close() {
     }
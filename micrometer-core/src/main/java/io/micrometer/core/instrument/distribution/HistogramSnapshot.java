@@ -15,6 +15,7 @@
  */
 package io.micrometer.core.instrument.distribution;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.util.TimeUtils;
 import io.micrometer.core.lang.Nullable;
 
@@ -85,6 +86,21 @@ public final class HistogramSnapshot {
         return TimeUtils.nanosToUnit(mean(), unit);
     }
 
+    /**
+     * @param visitor Receives the statistics of this snapshot.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    public void accept(HistogramVisitor visitor) {
+        visitor.summary(count, total, max);
+        for (ValueAtPercentile percentileValue : percentileValues) {
+            visitor.percentile(percentileValue.percentile(), percentileValue.value());
+        }
+        for (CountAtBucket histogramCount : histogramCounts) {
+            visitor.bucket(histogramCount.bucket(), histogramCount.count());
+        }
+    }
+
     public ValueAtPercentile[] percentileValues() {
         return percentileValues;
     }
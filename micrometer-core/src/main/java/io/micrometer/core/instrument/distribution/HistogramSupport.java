@@ -15,6 +15,7 @@
  */
 package io.micrometer.core.instrument.distribution;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.Meter;
 
 public interface HistogramSupport extends Meter {
@@ -26,6 +27,18 @@ public interface HistogramSupport extends Meter {
      */
     HistogramSnapshot takeSnapshot();
 
+    /**
+     * Passes the same statistics as {@link #takeSnapshot()} to a visitor. Meters backed by a {@link Histogram}
+     * do so without allocating a snapshot, which push registries can take advantage of when publishing.
+     *
+     * @param visitor Receives the distribution statistics at a point in time.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    default void visitSnapshot(HistogramVisitor visitor) {
+        takeSnapshot().accept(visitor);
+    }
+
     /**
      * Summary statistics should be published off of a single snapshot instance so that, for example, there isn't
      * disagreement between the distribution's bucket counts because more events continue to stream in.
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import io.micrometer.core.annotation.Incubating;
+
+/**
+ * Receives the distribution statistics of a {@link HistogramSupport} meter without a {@link HistogramSnapshot}
+ * being allocated for them. Values are passed in the same units as a {@link HistogramSnapshot}, i.e. nanoseconds
+ * for timers.
+ * <p>
+ * The summary is visited first, then each percentile in the configured order, and then each bucket in ascending
+ * order. All of them are consistent with one another, as they are for a snapshot. Visitors may be called while
+ * the histogram is locked against concurrent snapshots, so they should not block.
+ *
+ * @since 1.6.0
+ */
+@Incubating(since = "1.6.0")
+public interface HistogramVisitor {
+    /**
+     * @param count Total number of recordings.
+     * @param total The sum of all recordings, in nanoseconds if a unit of time.
+     * @param max   The largest recording, in nanoseconds if a unit of time.
+     */
+    default void summary(long count, double total, double max) {
+    }
+
+    /**
+     * @param percentile A configured percentile, e.g. {@code 0.95}.
+     * @param value      The value at the percentile, in nanoseconds if a unit of time.
+     */
+    default void percentile(double percentile, double value) {
+    }
+
+    /**
+     * @param bucket The upper bound of a histogram bucket, in nanoseconds if a unit of time.
+     * @param count  The cumulative number of recordings less than or equal to the bucket.
+     */
+    default void bucket(double bucket, double count) {
+    }
+}
@@ -33,4 +33,9 @@ public class NoopHistogram implements Histogram {
     public HistogramSnapshot takeSnapshot(long count, double total, double max) {
         return HistogramSnapshot.empty(count, total, max);
     }
+
+    @Override
+    public void visitSnapshot(long count, double total, double max, HistogramVisitor visitor) {
+        visitor.summary(count, total, max);
+    }
 }
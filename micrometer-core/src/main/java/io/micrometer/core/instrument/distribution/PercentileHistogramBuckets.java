@@ -15,6 +15,7 @@
  */
 package io.micrometer.core.instrument.distribution;
 
+import java.util.Arrays;
 import java.util.NavigableSet;
 import java.util.TreeSet;
 
@@ -29,6 +30,9 @@ public class PercentileHistogramBuckets {
     // Bucket values to use, see static block for initialization.
     private static final NavigableSet<Double> PERCENTILE_BUCKETS;
 
+    // The same bucket values in ascending order, for range lookups without boxing.
+    private static final double[] PERCENTILE_BUCKET_VALUES;
+
     // The set of buckets is generated by using powers of 4 and incrementing by one-third of the
     // previous power of 4 in between as long as the value is less than the next power of 4 minus
     // the delta.
@@ -63,6 +67,8 @@ public class PercentileHistogramBuckets {
             }
             exp += DIGITS;
         }
+
+        PERCENTILE_BUCKET_VALUES = PERCENTILE_BUCKETS.stream().mapToDouble(Double::doubleValue).toArray();
         PERCENTILE_BUCKETS.add(Double.POSITIVE_INFINITY);
     }
 
@@ -79,4 +85,19 @@ public class PercentileHistogramBuckets {
         return PERCENTILE_BUCKETS.subSet(distributionStatisticConfig.getMinimumExpectedValueAsDouble(), true,
                 distributionStatisticConfig.getMaximumExpectedValueAsDouble(), true);
     }
+
+    /**
+     * @param minimumExpectedValue The smallest bucket to include.
+     * @param maximumExpectedValue The largest bucket to include.
+     * @return The percentile buckets between the two values, inclusive, in ascending order.
+     */
+    static double[] buckets(double minimumExpectedValue, double maximumExpectedValue) {
+        int from = Arrays.binarySearch(PERCENTILE_BUCKET_VALUES, minimumExpectedValue);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        int to = Arrays.binarySearch(PERCENTILE_BUCKET_VALUES, maximumExpectedValue);
+        to = to < 0 ? -to - 1 : to + 1;
+        return from < to ? Arrays.copyOfRange(PERCENTILE_BUCKET_VALUES, from, to) : new double[0];
+    }
 }
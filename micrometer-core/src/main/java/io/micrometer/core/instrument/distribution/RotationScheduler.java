@@ -0,0 +1,135 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.util.NamedThreadFactory;
+import io.micrometer.core.util.internal.logging.WarnThenDebugLogger;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Rotates the ring buffers of time-windowed distributions ({@link TimeWindowMax} and the histograms of timers and
+ * distribution summaries) from a background thread. Without a scheduler, whichever thread records a sample when a
+ * rotation is due performs it, which includes resetting a bucket of the ring buffer. With a scheduler, recording
+ * threads don't check the clock or rotate at all. Snapshots and polls still rotate when due, so published
+ * statistics are unaffected by the tick interval.
+ * <p>
+ * Distributions use the scheduler configured for them by {@link DistributionStatisticConfig.Builder#rotationScheduler(RotationScheduler)},
+ * typically for a whole registry with {@link MeterRegistry.Config#rotationScheduler(RotationScheduler)}. Once the
+ * scheduler is closed, distributions go back to being rotated by recording threads.
+ *
+ * @since 1.6.0
+ */
+@Incubating(since = "1.6.0")
+public class RotationScheduler implements AutoCloseable {
+    private static final WarnThenDebugLogger logger = new WarnThenDebugLogger(RotationScheduler.class);
+
+    private final Queue<TimeWindow<?>> timeWindows = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService executor;
+    private final ScheduledFuture<?> ticks;
+
+    /**
+     * Checks distributions for rotations that are due every second.
+     */
+    public RotationScheduler() {
+        this(Duration.ofSeconds(1));
+    }
+
+    /**
+     * @param tickInterval How often to check distributions for rotations that are due. Rotations are delayed by up
+     *                     to this interval.
+     */
+    public RotationScheduler(Duration tickInterval) {
+        this.executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("micrometer-rotation"));
+        long tickMillis = tickInterval.toMillis();
+        this.ticks = executor.scheduleAtFixedRate(this::rotate, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return Whether recording threads should leave rotations to this scheduler. Once ticks stop for any reason,
+     * e.g. an error escaping a rotation, recording threads take over again.
+     */
+    boolean isRunning() {
+        return !ticks.isDone();
+    }
+
+    /**
+     * Rotate a distribution on every tick until it is garbage collected.
+     *
+     * @param timeWindow The distribution, which is only weakly referenced.
+     * @param rotation   Rotates the distribution if due. Must not capture the distribution.
+     * @param <T>        The type of distribution.
+     */
+    <T> void register(T timeWindow, Consumer<T> rotation) {
+        timeWindows.add(new TimeWindow<>(timeWindow, rotation));
+    }
+
+    // VisibleForTesting
+    void rotate() {
+        for (Iterator<TimeWindow<?>> iterator = timeWindows.iterator(); iterator.hasNext(); ) {
+            try {
+                if (!iterator.next().rotate()) {
+                    iterator.remove();
+                }
+            } catch (RuntimeException e) {
+                // an exception escaping a tick would cancel all later ticks, so one distribution must not stop the others
+                logger.log("Failed to rotate a time-windowed distribution.", e);
+            }
+        }
+    }
+
+    /**
+     * Stops rotating distributions from the background, which are rotated by recording threads from then on.
+     */
+    @Override
+    public void close() {
+        ticks.cancel(false);
+        executor.shutdownNow();
+        timeWindows.clear();
+    }
+
+    private static final class TimeWindow<T> extends WeakReference<T> {
+        private final Consumer<T> rotation;
+
+        TimeWindow(T timeWindow, Consumer<T> rotation) {
+            super(timeWindow);
+            this.rotation = rotation;
+        }
+
+        /**
+         * @return {@code false} if the distribution has been garbage collected.
+         */
+        boolean rotate() {
+            T timeWindow = get();
+            if (timeWindow == null) {
+                return false;
+            }
+            rotation.accept(timeWindow);
+            return true;
+        }
+    }
+}
@@ -33,26 +33,43 @@ import java.util.concurrent.atomic.AtomicLongArray;
  * @since 1.0.3
  */
 public class TimeWindowFixedBoundaryHistogram
-        extends AbstractTimeWindowHistogram<TimeWindowFixedBoundaryHistogram.FixedBoundaryHistogram, Void> {
+        extends AbstractTimeWindowHistogram<TimeWindowFixedBoundaryHistogram.FixedBoundaryHistogram,
+        TimeWindowFixedBoundaryHistogram.FixedBoundaryHistogram> {
+    private static final int STRIPES = stripes();
+
+    /**
+     * Stripes of bucket counts are spaced at least this many longs (128 bytes, two cache lines) apart.
+     */
+    private static final int STRIPE_PADDING = 16;
+
     private final double[] buckets;
+    private final boolean striped;
 
     public TimeWindowFixedBoundaryHistogram(Clock clock, DistributionStatisticConfig config, boolean supportsAggregablePercentiles) {
         super(clock, config, FixedBoundaryHistogram.class, supportsAggregablePercentiles);
 
-        NavigableSet<Double> histogramBuckets = distributionStatisticConfig.getHistogramBuckets(supportsAggregablePercentiles);
-
         Boolean percentileHistogram = distributionStatisticConfig.isPercentileHistogram();
-        if (percentileHistogram != null && percentileHistogram) {
+        if (percentileHistogram != null && percentileHistogram && !supportsAggregablePercentiles) {
+            NavigableSet<Double> histogramBuckets = distributionStatisticConfig.getHistogramBuckets(false);
             histogramBuckets.addAll(PercentileHistogramBuckets.buckets(distributionStatisticConfig));
+            this.buckets = histogramBuckets.stream().filter(Objects::nonNull).mapToDouble(Double::doubleValue).toArray();
+        } else {
+            // the same buckets as are published, so share them with other histograms of the same configuration
+            this.buckets = distributionStatisticConfig.getHistogramBucketArray(supportsAggregablePercentiles);
         }
 
-        this.buckets = histogramBuckets.stream().filter(Objects::nonNull).mapToDouble(Double::doubleValue).toArray();
+        this.striped = Boolean.TRUE.equals(distributionStatisticConfig.isStripedHistogram());
         initRingBuffer();
     }
 
+    private static int stripes() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return Math.min(Integer.highestOneBit(processors) << (Integer.bitCount(processors) == 1 ? 0 : 1), 32);
+    }
+
     @Override
     FixedBoundaryHistogram newBucket() {
-        return new FixedBoundaryHistogram();
+        return striped ? new StripedFixedBoundaryHistogram() : new FixedBoundaryHistogram();
     }
 
     @Override
@@ -71,17 +88,24 @@ public class TimeWindowFixedBoundaryHistogram
     }
 
     @Override
-    Void newAccumulatedHistogram(FixedBoundaryHistogram[] ringBuffer) {
-        return null;
+    FixedBoundaryHistogram newAccumulatedHistogram(FixedBoundaryHistogram[] ringBuffer) {
+        return new FixedBoundaryHistogram();
     }
 
     @Override
-    void accumulate() {
-        // do nothing -- we aren't using swaps for source and accumulated
+    void accumulate(FixedBoundaryHistogram bucket) {
+        FixedBoundaryHistogram accumulated = accumulatedHistogram();
+        for (int i = 0; i < buckets.length; i++) {
+            long count = bucket.count(i);
+            if (count != 0) {
+                accumulated.values.addAndGet(i, count);
+            }
+        }
     }
 
     @Override
     void resetAccumulatedHistogram() {
+        accumulatedHistogram().reset();
     }
 
     @Override
@@ -91,7 +115,26 @@ public class TimeWindowFixedBoundaryHistogram
 
     @Override
     double countAtValue(double value) {
-        return currentHistogram().countAtValue(value);
+        return accumulatedHistogram().countAtValue(value);
+    }
+
+    /**
+     * Both the values and the buckets of this histogram are sorted, so cumulative counts are computed in a single
+     * pass over the buckets instead of a search and sum per value.
+     */
+    @Override
+    void visitCountsAtValues(double[] values, HistogramVisitor visitor) {
+        FixedBoundaryHistogram accumulated = accumulatedHistogram();
+        long cumulativeCount = 0;
+        int bucket = 0;
+        for (double value : values) {
+            while (bucket < buckets.length && buckets[bucket] <= value) {
+                cumulativeCount += accumulated.count(bucket++);
+            }
+            // like countAtValue, values that aren't bucket boundaries have no count
+            boolean boundary = bucket > 0 && buckets[bucket - 1] == value;
+            visitor.bucket(value, boundary ? cumulativeCount : 0);
+        }
     }
 
     @Override
@@ -103,7 +146,7 @@ public class TimeWindowFixedBoundaryHistogram
         for (int i = 0; i < buckets.length; i++) {
             printStream.format(Locale.US, bucketFormatString,
                     buckets[i] / bucketScaling,
-                    currentHistogram().values.get(i));
+                    accumulatedHistogram().count(i));
         }
 
         printStream.write('\n');
@@ -112,12 +155,16 @@ public class TimeWindowFixedBoundaryHistogram
     class FixedBoundaryHistogram {
         /**
          * For recording efficiency, this is a normal histogram. We turn these values into
-         * cumulative counts only on calls to {@link #countAtValue(long)}.
+         * cumulative counts only on calls to {@link #countAtValue(double)}.
          */
         final AtomicLongArray values;
 
         FixedBoundaryHistogram() {
-            this.values = new AtomicLongArray(buckets.length);
+            this(buckets.length);
+        }
+
+        FixedBoundaryHistogram(int length) {
+            this.values = new AtomicLongArray(length);
         }
 
         long countAtValue(double value) {
@@ -126,10 +173,18 @@ public class TimeWindowFixedBoundaryHistogram
                 return 0;
             long count = 0;
             for (int i = 0; i <= index; i++)
-                count += values.get(i);
+                count += count(i);
             return count;
         }
 
+        /**
+         * @param index The index of a bucket.
+         * @return The number of samples recorded to the bucket, which is not cumulative.
+         */
+        long count(int index) {
+            return values.get(index);
+        }
+
         void reset() {
             for (int i = 0; i < values.length(); i++) {
                values.set(i, 0);
@@ -140,7 +195,11 @@ public class TimeWindowFixedBoundaryHistogram
         void record(long value) {
             int index = leastLessThanOrEqualTo(value);
             if (index > -1)
-                values.incrementAndGet(index);
+                increment(index);
+        }
+
+        void increment(int index) {
+            values.incrementAndGet(index);
         }
 
         /**
@@ -163,4 +222,42 @@ public class TimeWindowFixedBoundaryHistogram
             return low < buckets.length ? low : -1;
         }
     }
+
+    /**
+     * Keeps one copy of the bucket counts per stripe, and each recording thread increments the copy of the
+     * stripe it hashes to. Stripes are padded apart so that threads recording to different stripes don't
+     * contend on the same cache lines. Counts are summed across stripes when read.
+     */
+    class StripedFixedBoundaryHistogram extends FixedBoundaryHistogram {
+        private final int stride;
+
+        StripedFixedBoundaryHistogram() {
+            this(stride(buckets.length));
+        }
+
+        private StripedFixedBoundaryHistogram(int stride) {
+            super(STRIPES * stride);
+            this.stride = stride;
+        }
+
+        @Override
+        long count(int index) {
+            long count = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                count += values.get(stripe * stride + index);
+            }
+            return count;
+        }
+
+        @Override
+        void increment(int index) {
+            long threadId = Thread.currentThread().getId();
+            int stripe = (int) ((threadId * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+            values.incrementAndGet(stripe * stride + index);
+        }
+    }
+
+    private static int stride(int bucketCount) {
+        return ((bucketCount + STRIPE_PADDING - 1) / STRIPE_PADDING + 1) * STRIPE_PADDING;
+    }
 }
@@ -0,0 +1,288 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.instrument.Clock;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A histogram implementation that supports the computation of percentiles by Micrometer from log-linear buckets,
+ * as a compact alternative to {@link TimeWindowPercentileHistogram}.
+ * <p>
+ * Each power of two between the minimum and maximum expected values is split into equal sub-buckets, enough of
+ * them that the relative error of a percentile does not exceed that of the configured percentile precision. The
+ * sub-buckets of a power of two are only allocated once a value in its range is recorded, so memory use depends on
+ * the spread of the values rather than on the expected range. Values outside of the expected range are clamped
+ * to it.
+ *
+ * @since 1.6.0
+ */
+@Incubating(since = "1.6.0")
+public class TimeWindowLogLinearHistogram extends AbstractTimeWindowHistogram<TimeWindowLogLinearHistogram.LogLinearBuckets,
+        TimeWindowLogLinearHistogram.LogLinearBuckets> {
+
+    private static final double LOG2_10 = Math.log(10) / Math.log(2);
+
+    /**
+     * The largest exponent of values that are counted separately, since timers record nanoseconds as longs.
+     */
+    private static final int MAX_EXPONENT = 63;
+
+    private static final int MAX_SUB_BUCKET_BITS = 10;
+
+    private final int subBucketBits;
+    private final int subBucketMask;
+    private final int minExponent;
+    private final int maxExponent;
+
+    public TimeWindowLogLinearHistogram(Clock clock, DistributionStatisticConfig distributionStatisticConfig,
+                                        boolean supportsAggregablePercentiles) {
+        super(clock, distributionStatisticConfig, LogLinearBuckets.class, supportsAggregablePercentiles);
+
+        Integer percentilePrecision = distributionStatisticConfig.getPercentilePrecision();
+        int precision = percentilePrecision == null ? 1 : percentilePrecision;
+        // the width of a sub-bucket relative to its values is at most 2^-subBucketBits <= 10^-precision
+        this.subBucketBits = Math.max(1, Math.min(MAX_SUB_BUCKET_BITS, (int) Math.ceil(precision * LOG2_10)));
+        this.subBucketMask = (1 << subBucketBits) - 1;
+
+        //noinspection ConstantConditions
+        this.minExponent = Math.getExponent(distributionStatisticConfig.getMinimumExpectedValueAsDouble());
+        //noinspection ConstantConditions
+        this.maxExponent = Math.max(minExponent,
+                Math.min(MAX_EXPONENT, Math.getExponent(distributionStatisticConfig.getMaximumExpectedValueAsDouble())));
+
+        initRingBuffer();
+    }
+
+    @Override
+    LogLinearBuckets newBucket() {
+        return new LogLinearBuckets();
+    }
+
+    @Override
+    void recordLong(LogLinearBuckets bucket, long value) {
+        bucket.increment(index(value));
+    }
+
+    @Override
+    void recordDouble(LogLinearBuckets bucket, double value) {
+        bucket.increment(index(value));
+    }
+
+    @Override
+    void resetBucket(LogLinearBuckets bucket) {
+        bucket.reset();
+    }
+
+    @Override
+    LogLinearBuckets newAccumulatedHistogram(LogLinearBuckets[] ringBuffer) {
+        return new LogLinearBuckets();
+    }
+
+    @Override
+    void accumulate(LogLinearBuckets bucket) {
+        accumulatedHistogram().add(bucket);
+    }
+
+    @Override
+    void resetAccumulatedHistogram() {
+        accumulatedHistogram().reset();
+    }
+
+    @Override
+    double valueAtPercentile(double percentile) {
+        LogLinearBuckets accumulated = accumulatedHistogram();
+        long totalCount = accumulated.totalCount();
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        // the same rank as HdrHistogram picks for a percentile
+        long rank = Math.max(1, (long) (percentile / 100 * totalCount + 0.5));
+        long cumulativeCount = 0;
+        int lastIndex = -1;
+        for (int exponent = minExponent; exponent <= maxExponent; exponent++) {
+            AtomicLongArray counts = accumulated.counts(exponent);
+            if (counts == null) {
+                continue;
+            }
+            for (int subBucket = 0; subBucket <= subBucketMask; subBucket++) {
+                long count = counts.get(subBucket);
+                if (count != 0) {
+                    cumulativeCount += count;
+                    lastIndex = index(exponent, subBucket);
+                    if (cumulativeCount >= rank) {
+                        return midpoint(lastIndex);
+                    }
+                }
+            }
+        }
+
+        // samples recorded since the total was counted
+        return lastIndex < 0 ? 0 : midpoint(lastIndex);
+    }
+
+    @Override
+    double countAtValue(double value) {
+        LogLinearBuckets accumulated = accumulatedHistogram();
+        int lastIndex = index(value);
+        long count = 0;
+        for (int i = 0; i <= lastIndex; i++) {
+            count += accumulated.count(i);
+        }
+        return count;
+    }
+
+    @Override
+    void visitCountsAtValues(double[] values, HistogramVisitor visitor) {
+        LogLinearBuckets accumulated = accumulatedHistogram();
+        long cumulativeCount = 0;
+        int next = 0;
+        for (double value : values) {
+            int lastIndex = index(value);
+            for (; next <= lastIndex; next++) {
+                cumulativeCount += accumulated.count(next);
+            }
+            visitor.bucket(value, cumulativeCount);
+        }
+    }
+
+    @Override
+    void outputSummary(PrintStream printStream, double bucketScaling) {
+        printStream.format("%14s %10s\n\n", "Bucket", "TotalCount");
+
+        String bucketFormatString = "%14.1f %10d\n";
+
+        LogLinearBuckets accumulated = accumulatedHistogram();
+        long cumulativeCount = 0;
+        for (int i = 0; i <= index(maxExponent, subBucketMask); i++) {
+            long count = accumulated.count(i);
+            if (count != 0) {
+                cumulativeCount += count;
+                printStream.format(Locale.US, bucketFormatString, upperBound(i) / bucketScaling, cumulativeCount);
+            }
+        }
+
+        printStream.write('\n');
+    }
+
+    int index(double value) {
+        int exponent = Math.getExponent(value);
+        if (exponent < minExponent) {
+            return 0;
+        }
+        if (exponent > maxExponent) {
+            return index(maxExponent, subBucketMask);
+        }
+        // the most significant bits of the mantissa
+        int subBucket = (int) (Double.doubleToRawLongBits(value) >>> (52 - subBucketBits)) & subBucketMask;
+        return index(exponent, subBucket);
+    }
+
+    private int index(int exponent, int subBucket) {
+        return (exponent - minExponent) << subBucketBits | subBucket;
+    }
+
+    private double midpoint(int index) {
+        return Math.scalb(1 + ((index & subBucketMask) + 0.5) / (subBucketMask + 1), (index >> subBucketBits) + minExponent);
+    }
+
+    private double upperBound(int index) {
+        return Math.scalb(1 + ((index & subBucketMask) + 1.0) / (subBucketMask + 1), (index >> subBucketBits) + minExponent);
+    }
+
+    /**
+     * Counts of samples per sub-bucket, allocated one power of two at a time.
+     */
+    class LogLinearBuckets {
+        private final AtomicReferenceArray<AtomicLongArray> countsByExponent =
+                new AtomicReferenceArray<>(maxExponent - minExponent + 1);
+
+        AtomicLongArray counts(int exponent) {
+            return countsByExponent.get(exponent - minExponent);
+        }
+
+        long count(int index) {
+            AtomicLongArray counts = countsByExponent.get(index >> subBucketBits);
+            return counts == null ? 0 : counts.get(index & subBucketMask);
+        }
+
+        long totalCount() {
+            long totalCount = 0;
+            for (int i = 0; i < countsByExponent.length(); i++) {
+                AtomicLongArray counts = countsByExponent.get(i);
+                if (counts != null) {
+                    for (int subBucket = 0; subBucket <= subBucketMask; subBucket++) {
+                        totalCount += counts.get(subBucket);
+                    }
+                }
+            }
+            return totalCount;
+        }
+
+        void increment(int index) {
+            countsOrAllocate(index >> subBucketBits).incrementAndGet(index & subBucketMask);
+        }
+
+        void add(LogLinearBuckets other) {
+            for (int i = 0; i < countsByExponent.length(); i++) {
+                AtomicLongArray otherCounts = other.countsByExponent.get(i);
+                if (otherCounts != null) {
+                    AtomicLongArray counts = null;
+                    for (int subBucket = 0; subBucket <= subBucketMask; subBucket++) {
+                        long count = otherCounts.get(subBucket);
+                        if (count != 0) {
+                            if (counts == null) {
+                                counts = countsOrAllocate(i);
+                            }
+                            counts.addAndGet(subBucket, count);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Zeroes the counts, but keeps them allocated since values tend to recur in the same ranges.
+         */
+        void reset() {
+            for (int i = 0; i < countsByExponent.length(); i++) {
+                AtomicLongArray counts = countsByExponent.get(i);
+                if (counts != null) {
+                    for (int subBucket = 0; subBucket <= subBucketMask; subBucket++) {
+                        counts.set(subBucket, 0);
+                    }
+                }
+            }
+        }
+
+        private AtomicLongArray countsOrAllocate(int i) {
+            AtomicLongArray counts = countsByExponent.get(i);
+            if (counts == null) {
+                counts = new AtomicLongArray(subBucketMask + 1);
+                if (!countsByExponent.compareAndSet(i, null, counts)) {
+                    counts = countsByExponent.get(i);
+                }
+            }
+            return counts;
+        }
+    }
+}
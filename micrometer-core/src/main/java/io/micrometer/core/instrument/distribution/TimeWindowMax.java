@@ -17,15 +17,17 @@ package io.micrometer.core.instrument.distribution;
 
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.util.TimeUtils;
+import io.micrometer.core.lang.Nullable;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.DoubleSupplier;
-import java.util.function.LongSupplier;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * An implementation of a decaying maximum for a distribution based on a configurable ring buffer.
+ * <p>
+ * Each slot of the ring buffer holds the max of the samples recorded during one rotation interval, and samples
+ * are only recorded to the current slot. The max of the window is taken across all slots when polled.
  *
  * @author Jon Schneider
  */
@@ -35,27 +37,35 @@ public class TimeWindowMax {
 
     private final Clock clock;
     private final long durationBetweenRotatesMillis;
-    private AtomicLong[] ringBuffer;
-    private int currentBucket;
+    private final AtomicLongArray ringBuffer;
+    private volatile int currentBucket;
     private volatile long lastRotateTimestampMillis;
 
     @SuppressWarnings({"unused", "FieldCanBeLocal"})
     private volatile int rotating = 0; // 0 - not rotating, 1 - rotating
 
+    @Nullable
+    private final RotationScheduler rotationScheduler;
+
     @SuppressWarnings("ConstantConditions")
     public TimeWindowMax(Clock clock, DistributionStatisticConfig config) {
-        this(clock, config.getExpiry().toMillis(), config.getBufferLength());
+        this(clock, config.getExpiry().toMillis(), config.getBufferLength(), config.getRotationScheduler());
     }
 
     public TimeWindowMax(Clock clock, long rotateFrequencyMillis, int bufferLength) {
+        this(clock, rotateFrequencyMillis, bufferLength, null);
+    }
+
+    private TimeWindowMax(Clock clock, long rotateFrequencyMillis, int bufferLength, @Nullable RotationScheduler rotationScheduler) {
         this.clock = clock;
+        this.rotationScheduler = rotationScheduler;
         this.durationBetweenRotatesMillis = rotateFrequencyMillis;
         this.lastRotateTimestampMillis = clock.wallTime();
         this.currentBucket = 0;
+        this.ringBuffer = new AtomicLongArray(bufferLength);
 
-        this.ringBuffer = new AtomicLong[bufferLength];
-        for (int i = 0; i < bufferLength; i++) {
-            this.ringBuffer[i] = new AtomicLong();
+        if (rotationScheduler != null) {
+            rotationScheduler.register(this, TimeWindowMax::rotate);
         }
     }
 
@@ -66,14 +76,18 @@ public class TimeWindowMax {
      * @param timeUnit The unit of time of the incoming sample.
      */
     public void record(double sample, TimeUnit timeUnit) {
-        record(() -> (long) TimeUtils.convert(sample, timeUnit, TimeUnit.NANOSECONDS));
+        record((long) TimeUtils.convert(sample, timeUnit, TimeUnit.NANOSECONDS));
     }
 
-    private void record(LongSupplier sampleSupplier) {
-        rotate();
-        long sample = sampleSupplier.getAsLong();
-        for (AtomicLong max : ringBuffer) {
-            updateMax(max, sample);
+    private void record(long sample) {
+        if (rotationScheduler == null || !rotationScheduler.isRunning()) {
+            rotate();
+        }
+        int bucket = currentBucket;
+        long curMax = ringBuffer.get(bucket);
+        // most samples don't exceed the max, and those don't need to write at all
+        while (curMax < sample && !ringBuffer.compareAndSet(bucket, curMax, sample)) {
+            curMax = ringBuffer.get(bucket);
         }
     }
 
@@ -82,21 +96,23 @@ public class TimeWindowMax {
      * @return A max scaled to the base unit of time. For use by timer implementations.
      */
     public double poll(TimeUnit timeUnit) {
-        return poll(() -> TimeUtils.nanosToUnit(ringBuffer[currentBucket].get(), timeUnit));
-    }
-
-    private double poll(DoubleSupplier maxSupplier) {
-        rotate();
-        synchronized (this) {
-            return maxSupplier.getAsDouble();
-        }
+        return TimeUtils.nanosToUnit(pollMax(), timeUnit);
     }
 
     /**
      * @return An unscaled max. For use by distribution summary implementations.
      */
     public double poll() {
-        return poll(() -> Double.longBitsToDouble(ringBuffer[currentBucket].get()));
+        return Double.longBitsToDouble(pollMax());
+    }
+
+    private long pollMax() {
+        rotate();
+        long max = 0;
+        for (int i = 0; i < ringBuffer.length(); i++) {
+            max = Math.max(max, ringBuffer.get(i));
+        }
+        return max;
     }
 
     /**
@@ -105,17 +121,11 @@ public class TimeWindowMax {
      * @param sample The value to record.
      */
     public void record(double sample) {
-        record(() -> Double.doubleToLongBits(sample));
-    }
-
-    private void updateMax(AtomicLong max, long sample) {
-        long curMax;
-        do {
-            curMax = max.get();
-        } while (curMax < sample && !max.compareAndSet(curMax, sample));
+        // the bits of non-negative doubles are ordered the same as the doubles
+        record(Double.doubleToLongBits(sample));
     }
 
-    private void rotate() {
+    void rotate() {
         long timeSinceLastRotateMillis = clock.wallTime() - lastRotateTimestampMillis;
         if (timeSinceLastRotateMillis < durationBetweenRotatesMillis) {
             // Need to wait more for next rotation.
@@ -129,16 +139,17 @@ public class TimeWindowMax {
 
         try {
             int iterations = 0;
-            synchronized (this) {
-                do {
-                    ringBuffer[currentBucket].set(0);
-                    if (++currentBucket >= ringBuffer.length) {
-                        currentBucket = 0;
-                    }
-                    timeSinceLastRotateMillis -= durationBetweenRotatesMillis;
-                    lastRotateTimestampMillis += durationBetweenRotatesMillis;
-                } while (timeSinceLastRotateMillis >= durationBetweenRotatesMillis && ++iterations < ringBuffer.length);
-            }
+            int bucket = currentBucket;
+            do {
+                if (++bucket >= ringBuffer.length()) {
+                    bucket = 0;
+                }
+                // the oldest slot is reset before it becomes visible to recording threads as the current one
+                ringBuffer.set(bucket, 0);
+                currentBucket = bucket;
+                timeSinceLastRotateMillis -= durationBetweenRotatesMillis;
+                lastRotateTimestampMillis += durationBetweenRotatesMillis;
+            } while (timeSinceLastRotateMillis >= durationBetweenRotatesMillis && ++iterations < ringBuffer.length());
         } finally {
             rotating = 0;
         }
@@ -28,51 +28,92 @@ import java.io.PrintStream;
  * @author Jon Schneider
  * @author Trustin Heuiseung Lee
  */
-public class TimeWindowPercentileHistogram extends AbstractTimeWindowHistogram<DoubleRecorder, DoubleHistogram> {
+public class TimeWindowPercentileHistogram extends AbstractTimeWindowHistogram<TimeWindowPercentileHistogram.PercentileBucket, DoubleHistogram> {
+
+    /**
+     * Samples recorded since the last snapshot or rotation, whichever came last. Recording threads only
+     * ever write here, so they don't need to know which bucket of the ring buffer is current.
+     */
+    private final DoubleRecorder recorder;
 
     private final DoubleHistogram intervalHistogram;
 
+    private PercentileBucket[] buckets;
+
+    /**
+     * The bucket that samples drained from the recorder belong to. Only accessed while holding the lock on
+     * this histogram.
+     */
+    private PercentileBucket current;
+
+    /**
+     * Whether a bucket was reset since the accumulated histogram was last brought up to date, so that it has to
+     * be rebuilt from the remaining buckets instead of just adding the newly drained samples to it.
+     */
+    private boolean rebuildAccumulatedHistogram;
+
     public TimeWindowPercentileHistogram(Clock clock, DistributionStatisticConfig distributionStatisticConfig,
                                          boolean supportsAggregablePercentiles) {
-        super(clock, distributionStatisticConfig, DoubleRecorder.class, supportsAggregablePercentiles);
-        intervalHistogram = new DoubleHistogram(percentilePrecision(distributionStatisticConfig));
+        super(clock, distributionStatisticConfig, PercentileBucket.class, supportsAggregablePercentiles);
+        int percentilePrecision = percentilePrecision(distributionStatisticConfig);
+        recorder = new DoubleRecorder(percentilePrecision);
+        intervalHistogram = new DoubleHistogram(percentilePrecision);
         initRingBuffer();
     }
 
     @Override
-    DoubleRecorder newBucket() {
-        return new DoubleRecorder(percentilePrecision(distributionStatisticConfig));
+    PercentileBucket newBucket() {
+        return new PercentileBucket(percentilePrecision(distributionStatisticConfig));
     }
 
     @Override
-    void recordDouble(DoubleRecorder bucket, double value) {
-        bucket.recordValue(value);
+    void recordDouble(PercentileBucket bucket, double value) {
+        recorder.recordValue(value);
     }
 
     @Override
-    void recordLong(DoubleRecorder bucket, long value) {
-        bucket.recordValue(value);
+    void recordLong(PercentileBucket bucket, long value) {
+        recorder.recordValue(value);
     }
 
     @Override
-    void resetBucket(DoubleRecorder bucket) {
-        bucket.reset();
+    void resetBucket(PercentileBucket bucket) {
+        // what was recorded so far belongs to the bucket being rotated out, not to the one becoming current
+        drainInto(current);
+        bucket.histogram.reset();
+        current = bucket;
+        rebuildAccumulatedHistogram = true;
     }
 
     @Override
-    DoubleHistogram newAccumulatedHistogram(DoubleRecorder[] ringBuffer) {
+    DoubleHistogram newAccumulatedHistogram(PercentileBucket[] ringBuffer) {
+        buckets = ringBuffer;
+        current = ringBuffer[0];
         return new DoubleHistogram(percentilePrecision(distributionStatisticConfig));
     }
 
+    /**
+     * Rather than rebuilding the accumulated histogram from every bucket on each snapshot, only the samples
+     * recorded since the last one are added to it. It is rebuilt only when a bucket was reset by a rotation.
+     */
     @Override
     void accumulate() {
-        currentHistogram().getIntervalHistogramInto(intervalHistogram);
-        accumulatedHistogram().add(intervalHistogram);
+        drainInto(current);
+        DoubleHistogram accumulated = accumulatedHistogram();
+        if (rebuildAccumulatedHistogram) {
+            rebuildAccumulatedHistogram = false;
+            accumulated.reset();
+            for (PercentileBucket bucket : buckets) {
+                accumulated.add(bucket.histogram);
+            }
+        } else {
+            accumulated.add(intervalHistogram);
+        }
     }
 
-    @Override
-    void resetAccumulatedHistogram() {
-        accumulatedHistogram().reset();
+    private void drainInto(PercentileBucket bucket) {
+        recorder.getIntervalHistogramInto(intervalHistogram);
+        bucket.histogram.add(intervalHistogram);
     }
 
     @Override
@@ -93,4 +134,15 @@ public class TimeWindowPercentileHistogram extends AbstractTimeWindowHistogram<D
     void outputSummary(PrintStream out, double bucketScaling) {
         accumulatedHistogram().outputPercentileDistribution(out, bucketScaling);
     }
+
+    /**
+     * The samples recorded during one rotation interval.
+     */
+    static class PercentileBucket {
+        final DoubleHistogram histogram;
+
+        PercentileBucket(int percentilePrecision) {
+            this.histogram = new DoubleHistogram(percentilePrecision);
+        }
+    }
 }
@@ -23,7 +23,6 @@ import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.binder.BaseUnits;
 import io.micrometer.core.instrument.config.NamingConvention;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
-import io.micrometer.core.instrument.distribution.HistogramSnapshot;
 import io.micrometer.core.instrument.distribution.pause.PauseDetector;
 import io.micrometer.core.instrument.step.StepDistributionSummary;
 import io.micrometer.core.instrument.step.StepMeterRegistry;
@@ -102,20 +101,18 @@ public class LoggingMeterRegistry extends StepMeterRegistry {
                                     loggingSink.accept(print.id() + " throughput=" + print.rate(count));
                                 },
                                 timer -> {
-                                    HistogramSnapshot snapshot = timer.takeSnapshot();
-                                    long count = snapshot.count();
+                                    long count = timer.count();
                                     if (!config.logInactive() && count == 0) return;
                                     loggingSink.accept(print.id() + " throughput=" + print.unitlessRate(count) +
-                                            " mean=" + print.time(snapshot.mean(getBaseTimeUnit())) +
-                                            " max=" + print.time(snapshot.max(getBaseTimeUnit())));
+                                            " mean=" + print.time(timer.mean(getBaseTimeUnit())) +
+                                            " max=" + print.time(timer.max(getBaseTimeUnit())));
                                 },
                                 summary -> {
-                                    HistogramSnapshot snapshot = summary.takeSnapshot();
-                                    long count = snapshot.count();
+                                    long count = summary.count();
                                     if (!config.logInactive() && count == 0) return;
                                     loggingSink.accept(print.id() + " throughput=" + print.unitlessRate(count) +
-                                            " mean=" + print.value(snapshot.mean()) +
-                                            " max=" + print.value(snapshot.max()));
+                                            " mean=" + print.value(summary.mean()) +
+                                            " max=" + print.value(summary.max()));
                                 },
                                 longTaskTimer -> {
                                     int activeTasks = longTaskTimer.activeTasks();
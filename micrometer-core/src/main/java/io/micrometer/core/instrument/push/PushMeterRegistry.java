@@ -15,25 +15,55 @@
  */
 package io.micrometer.core.instrument.push;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.util.MeterPartition;
+import io.micrometer.core.instrument.util.NamedThreadFactory;
 import io.micrometer.core.instrument.util.TimeUtils;
 import io.micrometer.core.lang.Nullable;
 import io.micrometer.core.util.internal.logging.InternalLogger;
 import io.micrometer.core.util.internal.logging.InternalLoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public abstract class PushMeterRegistry extends MeterRegistry {
     private final static InternalLogger logger = InternalLoggerFactory.getInstance(PushMeterRegistry.class);
+
+    /**
+     * How long after a step boundary to publish at the earliest, so that a scheduler firing slightly ahead of the
+     * wall clock still reads the step that just completed.
+     */
+    private static final long PUBLISH_DELAY_MILLIS = 10;
+
     private final PushRegistryConfig config;
 
     @Nullable
     private ScheduledExecutorService scheduledExecutorService;
 
+    @Nullable
+    private ExecutorService publishExecutorService;
+
+    @Nullable
+    private Semaphore publishPermits;
+
     protected PushMeterRegistry(PushRegistryConfig config, Clock clock) {
         super(clock);
 
@@ -45,9 +75,13 @@ public abstract class PushMeterRegistry extends MeterRegistry {
     protected abstract void publish();
 
     /**
-     * Catch uncaught exceptions thrown from {@link #publish()}.
+     * Catch uncaught exceptions thrown from {@link #publish()}. Both scheduled publishes and the final publish on
+     * {@link #close()} go through here, so subclasses that need to bracket every publish override this method and
+     * call {@code super}.
+     *
+     * @since 1.6.0
      */
-    private void publishSafely() {
+    protected void publishSafely() {
         try {
             publish();
         } catch (Throwable e) {
@@ -55,6 +89,164 @@ public abstract class PushMeterRegistry extends MeterRegistry {
         }
     }
 
+    /**
+     * Publish each of the given batches with {@code publisher}. When {@link PushRegistryConfig#publishConcurrency()}
+     * is greater than one, batches are serialized and sent on a pool of that many threads, and a batch is only
+     * handed out once a thread is free to send it, so no more request bodies are built than can be in flight.
+     * When {@link PushRegistryConfig#publishTimeout()} is set, batches that have not started by the time it has
+     * elapsed on the registry's clock are skipped, and batches still in flight at that point are cancelled.
+     *
+     * @param batches   Batches to publish, typically a {@link MeterPartition}.
+     * @param publisher Serializes and sends one batch.
+     * @param <B>       The batch type.
+     * @throws Throwable The first exception thrown by {@code publisher}. No further batches are started after it.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    protected <B> void publishBatches(Iterable<B> batches, BatchPublisher<B> publisher) throws Throwable {
+        long timeoutNanos = config.publishTimeout().toNanos();
+        long deadline = clock.monotonicTime() + timeoutNanos;
+        Iterator<B> iterator = batches.iterator();
+        int skipped = 0;
+        int cancelled = 0;
+
+        if (config.publishConcurrency() <= 1) {
+            while (iterator.hasNext()) {
+                B batch = iterator.next();
+                if (timeoutNanos > 0 && deadline - clock.monotonicTime() <= 0) {
+                    skipped++;
+                    continue;
+                }
+                publisher.publish(batch);
+            }
+        } else {
+            Semaphore permits = publishPermits();
+            ExecutorService executor = publishExecutorService();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Future<?>> futures = new ArrayList<>();
+
+            while (iterator.hasNext() && failure.get() == null) {
+                B batch = iterator.next();
+                if (timeoutNanos <= 0) {
+                    permits.acquire();
+                } else if (!acquireBefore(permits, deadline)) {
+                    skipped++;
+                    continue;
+                }
+
+                // the permit is held until the publisher returns, even when a batch in flight is cancelled and
+                // interrupted, so that no more batches are sent at a time than permitted
+                AtomicBoolean started = new AtomicBoolean();
+                FutureTask<Void> task = new FutureTask<Void>(() -> {
+                    if (!started.compareAndSet(false, true)) {
+                        return; // cancelled before it started, which already released the permit
+                    }
+                    try {
+                        publisher.publish(batch);
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        permits.release();
+                    }
+                }, null) {
+                    @Override
+                    protected void done() {
+                        // a batch cancelled before it started never runs to release its permit
+                        if (started.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                };
+
+                try {
+                    executor.execute(task);
+                    futures.add(task);
+                } catch (RejectedExecutionException e) {
+                    // the registry was stopped mid-publish
+                    task.cancel(false);
+                    skipped++;
+                }
+            }
+            while (iterator.hasNext()) {
+                iterator.next();
+                skipped++;
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    if (timeoutNanos <= 0) {
+                        future.get();
+                    } else if (!awaitBefore(future, deadline)) {
+                        future.cancel(true);
+                        cancelled++;
+                    }
+                } catch (ExecutionException | CancellationException ignored) {
+                    // failures are collected by the tasks themselves
+                }
+            }
+
+            Throwable t = failure.get();
+            if (t != null) {
+                throw t;
+            }
+        }
+
+        if (skipped > 0 || cancelled > 0) {
+            logger.warn("publishing metrics for " + getClass().getSimpleName() + " did not complete" +
+                    (timeoutNanos > 0 ? " within " + TimeUtils.format(config.publishTimeout()) : "") + ": " +
+                    skipped + " batches skipped, " + cancelled + " batches cancelled");
+        }
+    }
+
+    /**
+     * Wait for a permit until the deadline has passed on the registry's clock, which need not advance in real time.
+     */
+    private boolean acquireBefore(Semaphore permits, long deadline) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadline - clock.monotonicTime()) > 0) {
+            if (permits.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wait for a batch to complete until the deadline has passed on the registry's clock.
+     */
+    private boolean awaitBefore(Future<?> future, long deadline) throws InterruptedException, ExecutionException {
+        long remaining;
+        while ((remaining = deadline - clock.monotonicTime()) > 0) {
+            try {
+                future.get(remaining, TimeUnit.NANOSECONDS);
+                return true;
+            } catch (TimeoutException ignored) {
+                // check the deadline again
+            }
+        }
+        return future.isDone() && !future.isCancelled();
+    }
+
+    // VisibleForTesting
+    synchronized int availablePublishPermits() {
+        return publishPermits == null ? config.publishConcurrency() : publishPermits.availablePermits();
+    }
+
+    private synchronized Semaphore publishPermits() {
+        if (publishPermits == null) {
+            publishPermits = new Semaphore(config.publishConcurrency());
+        }
+        return publishPermits;
+    }
+
+    private synchronized ExecutorService publishExecutorService() {
+        if (publishExecutorService == null) {
+            publishExecutorService = Executors.newFixedThreadPool(config.publishConcurrency(),
+                    new NamedThreadFactory(getClass().getSimpleName() + "-publish"));
+        }
+        return publishExecutorService;
+    }
+
     /**
      * @deprecated Use {@link #start(ThreadFactory)} instead.
      */
@@ -71,16 +263,35 @@ public abstract class PushMeterRegistry extends MeterRegistry {
             logger.info("publishing metrics for " + this.getClass().getSimpleName() + " every " + TimeUtils.format(config.step()));
 
             scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(threadFactory);
-            scheduledExecutorService.scheduleAtFixedRate(this::publishSafely, config.step()
-                    .toMillis(), config.step().toMillis(), TimeUnit.MILLISECONDS);
+            scheduledExecutorService.scheduleAtFixedRate(this::publishSafely, initialPublishDelayMillis(),
+                    config.step().toMillis(), TimeUnit.MILLISECONDS);
         }
     }
 
+    /**
+     * @return The delay until the first publish: just past the next step boundary, plus a random offset of up to
+     * {@link PushRegistryConfig#publishJitter()}.
+     */
+    // VisibleForTesting
+    long initialPublishDelayMillis() {
+        long stepMillis = config.step().toMillis();
+        long jitterMillis = Math.min(config.publishJitter().toMillis(), stepMillis - PUBLISH_DELAY_MILLIS);
+        long offsetMillis = jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis) : 0;
+        long untilNextStepMillis = stepMillis - clock.wallTime() % stepMillis;
+        return untilNextStepMillis + PUBLISH_DELAY_MILLIS + offsetMillis;
+    }
+
     public void stop() {
         if (scheduledExecutorService != null) {
             scheduledExecutorService.shutdown();
             scheduledExecutorService = null;
         }
+        synchronized (this) {
+            if (publishExecutorService != null) {
+                publishExecutorService.shutdown();
+                publishExecutorService = null;
+            }
+        }
     }
 
     @Override
@@ -91,4 +302,16 @@ public abstract class PushMeterRegistry extends MeterRegistry {
         stop();
         super.close();
     }
+
+    /**
+     * Serializes and sends one batch of a publish.
+     *
+     * @param <B> The batch type.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    @FunctionalInterface
+    public interface BatchPublisher<B> {
+        void publish(B batch) throws Throwable;
+    }
 }
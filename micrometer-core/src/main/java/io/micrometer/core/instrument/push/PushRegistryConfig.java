@@ -15,7 +15,9 @@
  */
 package io.micrometer.core.instrument.push;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.config.MeterRegistryConfig;
+import io.micrometer.core.instrument.config.validate.InvalidReason;
 import io.micrometer.core.instrument.config.validate.Validated;
 import io.micrometer.core.ipc.http.HttpSender;
 
@@ -91,6 +93,40 @@ public interface PushRegistryConfig extends MeterRegistryConfig {
         return getInteger(this, "batchSize").orElse(10000);
     }
 
+    /**
+     * @return The upper bound of a random offset, chosen once each time the registry is started, by which each
+     * publish is delayed past the step boundary. Spreading publishes across the step keeps instances that started
+     * together from all sending to the backend at the same moment. Must be less than the {@link #step()}. The
+     * default is zero, which publishes right after each step boundary.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    default Duration publishJitter() {
+        return getDuration(this, "publishJitter").orElse(Duration.ZERO);
+    }
+
+    /**
+     * @return The maximum number of batches that registries using
+     * {@link PushMeterRegistry#publishBatches(Iterable, PushMeterRegistry.BatchPublisher)} serialize and send at the
+     * same time. The default is 1, which sends batches one after another on the publishing thread.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    default int publishConcurrency() {
+        return getInteger(this, "publishConcurrency").orElse(1);
+    }
+
+    /**
+     * @return The time allowed for one publish to send all of its batches. Batches that have not started when it
+     * elapses are skipped, and batches still in flight are cancelled. The default is zero, which lets every publish
+     * send all of its batches however long it takes.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    default Duration publishTimeout() {
+        return getDuration(this, "publishTimeout").orElse(Duration.ZERO);
+    }
+
     @Override
     default Validated<?> validate() {
         return validate(this);
@@ -109,6 +145,16 @@ public interface PushRegistryConfig extends MeterRegistryConfig {
                 check("connectTimeout", PushRegistryConfig::connectTimeout),
                 check("readTimeout", PushRegistryConfig::readTimeout),
                 check("batchSize", PushRegistryConfig::batchSize),
+                check("publishConcurrency", PushRegistryConfig::publishConcurrency)
+                        .andThen(v -> v.invalidateWhen(c -> c < 1, "must be at least 1", InvalidReason.MALFORMED)),
+                check("publishTimeout", PushRegistryConfig::publishTimeout)
+                        .andThen(v -> v.invalidateWhen(Duration::isNegative, "must not be negative", InvalidReason.MALFORMED)),
+                // the jitter is bounded by the step, which is validated on its own
+                c -> check("step", PushRegistryConfig::step).apply(c).isValid() ?
+                        check("publishJitter", PushRegistryConfig::publishJitter).apply(c)
+                                .invalidateWhen(jitter -> jitter.isNegative() || jitter.compareTo(c.step()) >= 0,
+                                        "must be at least zero and less than the step", InvalidReason.MALFORMED) :
+                        getDuration(c, "publishJitter"),
                 check("numThreads", PushRegistryConfig::numThreads)
         );
     }
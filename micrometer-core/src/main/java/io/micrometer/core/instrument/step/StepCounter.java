@@ -18,6 +18,7 @@ package io.micrometer.core.instrument.step;
 import io.micrometer.core.instrument.AbstractMeter;
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.lang.Nullable;
 
 /**
  * Counter that reports a rate per second to a monitoring system. Note that {@link #count()}
@@ -30,8 +31,15 @@ public class StepCounter extends AbstractMeter implements Counter {
     private final StepDouble value;
 
     public StepCounter(Id id, Clock clock, long stepMillis) {
+        this(id, clock, stepMillis, null);
+    }
+
+    StepCounter(Id id, Clock clock, long stepMillis, @Nullable StepEpoch epoch) {
         super(id);
-        this.value = new StepDouble(clock, stepMillis);
+        this.value = new StepDouble(clock, stepMillis, epoch);
+        if (epoch != null) {
+            epoch.register(this, value::roll);
+        }
     }
 
     @Override
@@ -21,6 +21,7 @@ import io.micrometer.core.instrument.Measurement;
 import io.micrometer.core.instrument.Statistic;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.TimeWindowMax;
+import io.micrometer.core.lang.Nullable;
 
 import java.util.Arrays;
 import java.util.concurrent.atomic.DoubleAdder;
@@ -50,9 +51,17 @@ public class StepDistributionSummary extends AbstractDistributionSummary {
      */
     public StepDistributionSummary(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, double scale,
                                    long stepMillis, boolean supportsAggregablePercentiles) {
+        this(id, clock, distributionStatisticConfig, scale, stepMillis, supportsAggregablePercentiles, null);
+    }
+
+    StepDistributionSummary(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, double scale,
+                            long stepMillis, boolean supportsAggregablePercentiles, @Nullable StepEpoch epoch) {
         super(id, clock, distributionStatisticConfig, scale, supportsAggregablePercentiles);
-        this.countTotal = new StepTuple2<>(clock, stepMillis, 0L, 0.0, count::sumThenReset, total::sumThenReset);
+        this.countTotal = new StepTuple2<>(clock, stepMillis, epoch, 0L, 0.0, count::sumThenReset, total::sumThenReset);
         this.max = new TimeWindowMax(clock, distributionStatisticConfig);
+        if (epoch != null) {
+            epoch.register(this, countTotal::roll);
+        }
     }
 
     @Override
@@ -16,6 +16,7 @@
 package io.micrometer.core.instrument.step;
 
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.lang.Nullable;
 
 import java.util.concurrent.atomic.DoubleAdder;
 import java.util.function.Supplier;
@@ -33,6 +34,10 @@ public class StepDouble extends StepValue<Double> {
         super(clock, stepMillis);
     }
 
+    StepDouble(Clock clock, long stepMillis, @Nullable StepEpoch epoch) {
+        super(clock, stepMillis, epoch);
+    }
+
     @Override
     protected Supplier<Double> valueSupplier() {
         return current::sumThenReset;
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.step;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Meter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * The step position shared by the step meters of a {@link StepMeterRegistry}. The first meter to notice that the
+ * wall clock has crossed a step boundary rolls every registered meter over in one pass, so all of them report the
+ * same completed step. While the registry is publishing, the position is held at the step that was current when
+ * publishing started, so meters read during the publish agree with one another without consulting the clock.
+ */
+final class StepEpoch {
+    private final Clock clock;
+    private final long stepMillis;
+    private final Map<Meter, LongConsumer> rollovers = new ConcurrentHashMap<>();
+    private final AtomicInteger holds = new AtomicInteger();
+    private volatile long step;
+
+    StepEpoch(Clock clock, long stepMillis) {
+        this.clock = clock;
+        this.stepMillis = stepMillis;
+        this.step = clock.wallTime() / stepMillis;
+    }
+
+    /**
+     * @param meter    A step meter.
+     * @param rollover Moves the meter's accumulators to the given step.
+     */
+    void register(Meter meter, LongConsumer rollover) {
+        rollovers.put(meter, rollover);
+    }
+
+    void remove(Meter meter) {
+        rollovers.remove(meter);
+    }
+
+    /**
+     * @return The current step, after rolling every registered meter over to it.
+     */
+    long current() {
+        if (holds.get() > 0) {
+            return step;
+        }
+        long now = clock.wallTime() / stepMillis;
+        if (now > step) {
+            rollover(now);
+        }
+        return now;
+    }
+
+    /**
+     * Roll over to the current step and hold it until a matching {@link #release()}.
+     */
+    synchronized void hold() {
+        rollover(clock.wallTime() / stepMillis);
+        holds.incrementAndGet();
+    }
+
+    void release() {
+        holds.decrementAndGet();
+    }
+
+    private synchronized void rollover(long now) {
+        if (now <= step) {
+            return;
+        }
+        for (LongConsumer rollover : rollovers.values()) {
+            rollover.accept(now);
+        }
+        step = now;
+    }
+}
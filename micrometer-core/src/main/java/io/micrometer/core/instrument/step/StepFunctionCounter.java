@@ -18,6 +18,7 @@ package io.micrometer.core.instrument.step;
 import io.micrometer.core.instrument.AbstractMeter;
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.lang.Nullable;
 
 import java.lang.ref.WeakReference;
 import java.util.function.ToDoubleFunction;
@@ -29,20 +30,34 @@ public class StepFunctionCounter<T> extends AbstractMeter implements FunctionCou
     private StepDouble count;
 
     public StepFunctionCounter(Id id, Clock clock, long stepMillis, T obj, ToDoubleFunction<T> f) {
+        this(id, clock, stepMillis, obj, f, null);
+    }
+
+    StepFunctionCounter(Id id, Clock clock, long stepMillis, T obj, ToDoubleFunction<T> f, @Nullable StepEpoch epoch) {
         super(id);
         this.ref = new WeakReference<>(obj);
         this.f = f;
-        this.count = new StepDouble(clock, stepMillis);
+        this.count = new StepDouble(clock, stepMillis, epoch);
+        if (epoch != null) {
+            epoch.register(this, stepTime -> {
+                accumulateCount();
+                count.roll(stepTime);
+            });
+        }
     }
 
     @Override
     public double count() {
+        accumulateCount();
+        return count.poll();
+    }
+
+    private void accumulateCount() {
         T obj2 = ref.get();
         if (obj2 != null) {
             double prevLast = last;
             last = f.applyAsDouble(obj2);
             count.getCurrent().add(last - prevLast);
         }
-        return count.poll();
     }
 }
@@ -18,6 +18,7 @@ package io.micrometer.core.instrument.step;
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.FunctionTimer;
 import io.micrometer.core.instrument.util.TimeUtils;
+import io.micrometer.core.lang.Nullable;
 
 import java.lang.ref.WeakReference;
 import java.util.concurrent.TimeUnit;
@@ -52,6 +53,12 @@ public class StepFunctionTimer<T> implements FunctionTimer {
 
     public StepFunctionTimer(Id id, Clock clock, long stepMillis, T obj, ToLongFunction<T> countFunction,
                              ToDoubleFunction<T> totalTimeFunction, TimeUnit totalTimeFunctionUnit, TimeUnit baseTimeUnit) {
+        this(id, clock, stepMillis, obj, countFunction, totalTimeFunction, totalTimeFunctionUnit, baseTimeUnit, null);
+    }
+
+    StepFunctionTimer(Id id, Clock clock, long stepMillis, T obj, ToLongFunction<T> countFunction,
+                      ToDoubleFunction<T> totalTimeFunction, TimeUnit totalTimeFunctionUnit, TimeUnit baseTimeUnit,
+                      @Nullable StepEpoch epoch) {
         this.id = id;
         this.clock = clock;
         this.ref = new WeakReference<>(obj);
@@ -59,8 +66,14 @@ public class StepFunctionTimer<T> implements FunctionTimer {
         this.totalTimeFunction = totalTimeFunction;
         this.totalTimeFunctionUnit = totalTimeFunctionUnit;
         this.baseTimeUnit = baseTimeUnit;
-        this.countTotal = new StepTuple2<>(clock, stepMillis, 0L, 0.0,
+        this.countTotal = new StepTuple2<>(clock, stepMillis, epoch, 0L, 0.0,
                 count::sumThenReset, total::sumThenReset);
+        if (epoch != null) {
+            epoch.register(this, stepTime -> {
+                accumulateCountAndTotal();
+                countTotal.roll(stepTime);
+            });
+        }
     }
 
     /**
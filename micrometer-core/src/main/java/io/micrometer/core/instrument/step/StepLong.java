@@ -16,6 +16,7 @@
 package io.micrometer.core.instrument.step;
 
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.lang.Nullable;
 
 import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
@@ -27,6 +28,10 @@ public class StepLong extends StepValue<Long> {
         super(clock, stepMillis);
     }
 
+    StepLong(Clock clock, long stepMillis, @Nullable StepEpoch epoch) {
+        super(clock, stepMillis, epoch);
+    }
+
     @Override
     protected Supplier<Long> valueSupplier() {
         return current::sumThenReset;
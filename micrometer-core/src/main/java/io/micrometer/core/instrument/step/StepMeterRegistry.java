@@ -15,6 +15,7 @@
  */
 package io.micrometer.core.instrument.step;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.HistogramGauges;
@@ -25,6 +26,8 @@ import io.micrometer.core.instrument.internal.DefaultMeter;
 import io.micrometer.core.instrument.push.PushMeterRegistry;
 import io.micrometer.core.lang.Nullable;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.function.ToDoubleFunction;
 import java.util.function.ToLongFunction;
@@ -36,10 +39,72 @@ import java.util.function.ToLongFunction;
  */
 public abstract class StepMeterRegistry extends PushMeterRegistry {
     private final StepRegistryConfig config;
+    private final StepEpoch epoch;
+
+    @Nullable
+    private final UnchangedMeters unchangedMeters;
 
     public StepMeterRegistry(StepRegistryConfig config, Clock clock) {
         super(config, clock);
         this.config = config;
+        this.epoch = new StepEpoch(clock, config.step().toMillis());
+        config().onMeterRemoved(epoch::remove);
+
+        if (config.skipUnchanged()) {
+            this.unchangedMeters = new UnchangedMeters(config.heartbeatSteps());
+            config().onMeterRemoved(unchangedMeters::remove);
+        } else {
+            this.unchangedMeters = null;
+        }
+    }
+
+    /**
+     * Rolls every step meter over to the current step before publishing, and holds that step until publishing
+     * completes, so every meter reports the same completed interval even if a step boundary passes mid-publish.
+     */
+    @Override
+    protected void publishSafely() {
+        epoch.hold();
+        try {
+            super.publishSafely();
+        } finally {
+            epoch.release();
+        }
+    }
+
+    /**
+     * The meters to include in a publish. When {@link StepRegistryConfig#skipUnchanged()} is enabled, meters with
+     * nothing new to report since they were last published are left out until their heartbeat is due. Otherwise
+     * this is every meter in the registry.
+     * <p>
+     * Meters returned here are only recorded as published once they are passed to {@link #markPublished(Collection)},
+     * so call this once per {@link #publish()}.
+     *
+     * @return The meters to publish in the step that just completed.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    protected List<Meter> getMetersToPublish() {
+        List<Meter> meters = getMeters();
+        if (unchangedMeters == null) {
+            return meters;
+        }
+        return unchangedMeters.select(meters, epoch.current());
+    }
+
+    /**
+     * Record meters returned by {@link #getMetersToPublish()} as published, once they have been sent successfully.
+     * When {@link StepRegistryConfig#skipUnchanged()} is enabled, meters that were never marked are published again
+     * in the next step, even if they have not changed since.
+     *
+     * @param meters Meters that were sent successfully.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    protected void markPublished(Collection<? extends Meter> meters) {
+        if (unchangedMeters != null) {
+            unchangedMeters.published(meters);
+        }
     }
 
     @Override
@@ -49,7 +114,7 @@ public abstract class StepMeterRegistry extends PushMeterRegistry {
 
     @Override
     protected Counter newCounter(Meter.Id id) {
-        return new StepCounter(id, clock, config.step().toMillis());
+        return new StepCounter(id, clock, config.step().toMillis(), epoch);
     }
 
     @Override
@@ -62,7 +127,7 @@ public abstract class StepMeterRegistry extends PushMeterRegistry {
     @Override
     protected Timer newTimer(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector) {
         Timer timer = new StepTimer(id, clock, distributionStatisticConfig, pauseDetector, getBaseTimeUnit(),
-            this.config.step().toMillis(), false);
+            this.config.step().toMillis(), false, epoch);
         HistogramGauges.registerWithCommonFormat(timer, this);
         return timer;
     }
@@ -70,19 +135,19 @@ public abstract class StepMeterRegistry extends PushMeterRegistry {
     @Override
     protected DistributionSummary newDistributionSummary(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, double scale) {
         DistributionSummary summary = new StepDistributionSummary(id, clock, distributionStatisticConfig, scale,
-            config.step().toMillis(),false);
+            config.step().toMillis(), false, epoch);
         HistogramGauges.registerWithCommonFormat(summary, this);
         return summary;
     }
 
     @Override
     protected <T> FunctionTimer newFunctionTimer(Meter.Id id, T obj, ToLongFunction<T> countFunction, ToDoubleFunction<T> totalTimeFunction, TimeUnit totalTimeFunctionUnit) {
-        return new StepFunctionTimer<>(id, clock, config.step().toMillis(), obj, countFunction, totalTimeFunction, totalTimeFunctionUnit, getBaseTimeUnit());
+        return new StepFunctionTimer<>(id, clock, config.step().toMillis(), obj, countFunction, totalTimeFunction, totalTimeFunctionUnit, getBaseTimeUnit(), epoch);
     }
 
     @Override
     protected <T> FunctionCounter newFunctionCounter(Meter.Id id, T obj, ToDoubleFunction<T> countFunction) {
-        return new StepFunctionCounter<>(id, clock, config.step().toMillis(), obj, countFunction);
+        return new StepFunctionCounter<>(id, clock, config.step().toMillis(), obj, countFunction, epoch);
     }
 
     @Override
@@ -15,11 +15,46 @@
  */
 package io.micrometer.core.instrument.step;
 
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.instrument.config.validate.InvalidReason;
 import io.micrometer.core.instrument.config.validate.Validated;
 import io.micrometer.core.instrument.push.PushRegistryConfig;
 
+import static io.micrometer.core.instrument.config.MeterRegistryConfigValidator.check;
+import static io.micrometer.core.instrument.config.MeterRegistryConfigValidator.checkAll;
+import static io.micrometer.core.instrument.config.validate.PropertyValidator.getBoolean;
+import static io.micrometer.core.instrument.config.validate.PropertyValidator.getInteger;
 
 public interface StepRegistryConfig extends PushRegistryConfig {
+    /**
+     * @return {@code true} to leave meters with nothing new to report out of each publish: counters, timers and
+     * distribution summaries that recorded nothing during the step, and gauges and other meters whose measurements
+     * are the same as when they were last published. Such meters are still published every
+     * {@link #heartbeatSteps()} steps so that backends don't consider their series stale. Only registries that
+     * publish {@link StepMeterRegistry#getMetersToPublish()} and mark what they sent with
+     * {@link StepMeterRegistry#markPublished(java.util.Collection)} skip meters. The default is {@code false}.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    default boolean skipUnchanged() {
+        return getBoolean(this, "skipUnchanged").orElse(false);
+    }
+
+    /**
+     * @return When {@link #skipUnchanged()} is enabled, the number of steps after which a meter is published again
+     * even if it has nothing new to report. The default is 10.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    default int heartbeatSteps() {
+        return getInteger(this, "heartbeatSteps").orElse(10);
+    }
+
+    @Override
+    default Validated<?> validate() {
+        return validate(this);
+    }
+
     /**
      * Validate a provided configuration.
      *
@@ -28,6 +63,11 @@ public interface StepRegistryConfig extends PushRegistryConfig {
      * @since 1.5.0
      */
     static Validated<?> validate(StepRegistryConfig config) {
-        return PushRegistryConfig.validate(config);
+        return checkAll(config,
+                c -> PushRegistryConfig.validate(c),
+                check("skipUnchanged", StepRegistryConfig::skipUnchanged),
+                check("heartbeatSteps", StepRegistryConfig::heartbeatSteps)
+                        .andThen(v -> v.invalidateWhen(c -> c < 1, "must be at least 1", InvalidReason.MALFORMED))
+        );
     }
 }
@@ -21,6 +21,7 @@ import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.TimeWindowMax;
 import io.micrometer.core.instrument.distribution.pause.PauseDetector;
 import io.micrometer.core.instrument.util.TimeUtils;
+import io.micrometer.core.lang.Nullable;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.LongAdder;
@@ -48,10 +49,21 @@ public class StepTimer extends AbstractTimer {
     public StepTimer(final Id id, final Clock clock, final DistributionStatisticConfig distributionStatisticConfig,
         final PauseDetector pauseDetector, final TimeUnit baseTimeUnit, final long stepDurationMillis,
         final boolean supportsAggregablePercentiles
+    ) {
+        this(id, clock, distributionStatisticConfig, pauseDetector, baseTimeUnit, stepDurationMillis,
+            supportsAggregablePercentiles, null);
+    }
+
+    StepTimer(final Id id, final Clock clock, final DistributionStatisticConfig distributionStatisticConfig,
+        final PauseDetector pauseDetector, final TimeUnit baseTimeUnit, final long stepDurationMillis,
+        final boolean supportsAggregablePercentiles, @Nullable final StepEpoch epoch
     ) {
         super(id, clock, distributionStatisticConfig, pauseDetector, baseTimeUnit, supportsAggregablePercentiles);
-        countTotal = new StepTuple2<>(clock, stepDurationMillis, 0L, 0L, count::sumThenReset, total::sumThenReset);
+        countTotal = new StepTuple2<>(clock, stepDurationMillis, epoch, 0L, 0L, count::sumThenReset, total::sumThenReset);
         max = new TimeWindowMax(clock, distributionStatisticConfig);
+        if (epoch != null) {
+            epoch.register(this, countTotal::roll);
+        }
     }
 
     @Override
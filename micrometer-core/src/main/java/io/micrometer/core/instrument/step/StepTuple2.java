@@ -16,6 +16,7 @@
 package io.micrometer.core.instrument.step;
 
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.lang.Nullable;
 
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
@@ -30,6 +31,8 @@ import java.util.function.Supplier;
 public class StepTuple2<T1, T2> {
     private final Clock clock;
     private final long stepMillis;
+    @Nullable
+    private final StepEpoch epoch;
     private AtomicLong lastInitPos;
 
     private final T1 t1NoValue;
@@ -46,8 +49,18 @@ public class StepTuple2<T1, T2> {
                      T2 t2NoValue,
                      Supplier<T1> t1Supplier,
                      Supplier<T2> t2Supplier) {
+        this(clock, stepMillis, null, t1NoValue, t2NoValue, t1Supplier, t2Supplier);
+    }
+
+    StepTuple2(Clock clock, long stepMillis,
+               @Nullable StepEpoch epoch,
+               T1 t1NoValue,
+               T2 t2NoValue,
+               Supplier<T1> t1Supplier,
+               Supplier<T2> t2Supplier) {
         this.clock = clock;
         this.stepMillis = stepMillis;
+        this.epoch = epoch;
         this.t1NoValue = t1NoValue;
         this.t2NoValue = t2NoValue;
         this.t1Supplier = t1Supplier;
@@ -57,8 +70,12 @@ public class StepTuple2<T1, T2> {
         lastInitPos = new AtomicLong(clock.wallTime() / stepMillis);
     }
 
-    private void rollCount(long now) {
-        long stepTime = now / stepMillis;
+    /**
+     * Move the current values into the previous step if {@code stepTime} is a later step than the last one rolled.
+     *
+     * @param stepTime The step position, in units of the step since the epoch.
+     */
+    void roll(long stepTime) {
         long lastInit = lastInitPos.get();
         if (lastInit < stepTime && lastInitPos.compareAndSet(lastInit, stepTime)) {
             // Need to check if there was any activity during the previous step interval. If there was
@@ -69,11 +86,15 @@ public class StepTuple2<T1, T2> {
         }
     }
 
+    private long currentStep() {
+        return epoch == null ? clock.wallTime() / stepMillis : epoch.current();
+    }
+
     /**
      * @return The value for the last completed interval.
      */
     public T1 poll1() {
-        rollCount(clock.wallTime());
+        roll(currentStep());
         return t1Previous;
     }
 
@@ -81,7 +102,7 @@ public class StepTuple2<T1, T2> {
      * @return The value for the last completed interval.
      */
     public T2 poll2() {
-        rollCount(clock.wallTime());
+        roll(currentStep());
         return t2Previous;
     }
 }
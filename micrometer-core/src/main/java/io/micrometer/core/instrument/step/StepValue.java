@@ -19,6 +19,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.lang.Nullable;
 
 /**
  * Tracks 'values' for periods (steps) of time.  The previous step's value is
@@ -32,12 +33,19 @@ public abstract class StepValue<V> {
 
     private final Clock clock;
     private final long stepMillis;
+    @Nullable
+    private final StepEpoch epoch;
     private AtomicLong lastInitPos;
     private volatile V previous = noValue();
 
     public StepValue(final Clock clock, final long stepMillis) {
+        this(clock, stepMillis, null);
+    }
+
+    StepValue(final Clock clock, final long stepMillis, @Nullable final StepEpoch epoch) {
         this.clock = clock;
         this.stepMillis = stepMillis;
+        this.epoch = epoch;
         lastInitPos = new AtomicLong(clock.wallTime() / stepMillis);
     }
 
@@ -49,8 +57,12 @@ public abstract class StepValue<V> {
      */
     protected abstract V noValue();
 
-    private void rollCount(long now) {
-        final long stepTime = now / stepMillis;
+    /**
+     * Move the current value into the previous step if {@code stepTime} is a later step than the last one rolled.
+     *
+     * @param stepTime The step position, in units of the step since the epoch.
+     */
+    void roll(final long stepTime) {
         final long lastInit = lastInitPos.get();
         if (lastInit < stepTime && lastInitPos.compareAndSet(lastInit, stepTime)) {
             final V v = valueSupplier().get();
@@ -65,7 +77,7 @@ public abstract class StepValue<V> {
      * @return The value for the last completed interval.
      */
     public V poll() {
-        rollCount(clock.wallTime());
+        roll(epoch == null ? clock.wallTime() / stepMillis : epoch.current());
         return previous;
     }
 }
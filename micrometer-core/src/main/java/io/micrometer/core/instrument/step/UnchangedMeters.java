@@ -0,0 +1,157 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.step;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the step in which each meter was last published, and for meters that report a current value rather
+ * than activity over the step, the values it published, so that meters with nothing new to report can be left out
+ * of a publish until their heartbeat is due.
+ * <p>
+ * Meters are only recorded as published once the registry confirms they were sent, so a meter whose batch failed
+ * is selected again in the next step, even if it has not changed since.
+ */
+final class UnchangedMeters {
+    private final int heartbeatSteps;
+    private final Map<Meter, Published> published = new ConcurrentHashMap<>();
+
+    /**
+     * What each meter selected by the last {@link #select(List, long)} will be recorded as once it is published.
+     */
+    private final Map<Meter, Published> selected = new ConcurrentHashMap<>();
+
+    UnchangedMeters(int heartbeatSteps) {
+        this.heartbeatSteps = heartbeatSteps;
+    }
+
+    /**
+     * @param meters Every meter in the registry.
+     * @param step   The step being published.
+     * @return The meters that should be published in this step. They are not recorded as published until passed to
+     * {@link #published(Collection)}.
+     */
+    List<Meter> select(List<Meter> meters, long step) {
+        selected.clear();
+        List<Meter> selectedMeters = new ArrayList<>(meters.size());
+        for (Meter meter : meters) {
+            Published next = select(meter, step);
+            if (next != null) {
+                selected.put(meter, next);
+                selectedMeters.add(meter);
+            }
+        }
+        return selectedMeters;
+    }
+
+    /**
+     * @param meters Meters selected by the last {@link #select(List, long)} that were sent successfully.
+     */
+    void published(Collection<? extends Meter> meters) {
+        for (Meter meter : meters) {
+            Published next = selected.remove(meter);
+            if (next != null) {
+                published.put(meter, next);
+            }
+        }
+    }
+
+    void remove(Meter meter) {
+        selected.remove(meter);
+        published.remove(meter);
+    }
+
+    /**
+     * @return What the meter is recorded as once published, or {@code null} if it should be left out of this step.
+     */
+    @Nullable
+    private Published select(Meter meter, long step) {
+        Published last = published.get(meter);
+        double[] values = null;
+        boolean unchanged;
+
+        Boolean idle = idle(meter);
+        if (idle != null) {
+            unchanged = idle;
+        } else {
+            values = values(meter);
+            unchanged = last != null && Arrays.equals(values, last.values);
+        }
+
+        if (last != null && unchanged && step - last.step < heartbeatSteps) {
+            return null;
+        }
+        return new Published(step, values);
+    }
+
+    /**
+     * @return Whether a meter that reports activity over the step recorded nothing, or {@code null} for meters
+     * that report a current value.
+     */
+    @Nullable
+    private static Boolean idle(Meter meter) {
+        if (meter instanceof Counter) {
+            return ((Counter) meter).count() == 0;
+        } else if (meter instanceof Timer) {
+            return ((Timer) meter).count() == 0;
+        } else if (meter instanceof DistributionSummary) {
+            return ((DistributionSummary) meter).count() == 0;
+        } else if (meter instanceof FunctionCounter) {
+            return ((FunctionCounter) meter).count() == 0;
+        } else if (meter instanceof FunctionTimer) {
+            return ((FunctionTimer) meter).count() == 0;
+        }
+        return null;
+    }
+
+    private static double[] values(Meter meter) {
+        double[] values = new double[4];
+        int size = 0;
+        for (Measurement measurement : meter.measure()) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = measurement.getValue();
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private static final class Published {
+        final long step;
+
+        @Nullable
+        final double[] values;
+
+        Published(long step, @Nullable double[] values) {
+            this.step = step;
+            this.values = values;
+        }
+    }
+}
@@ -28,11 +28,30 @@ import java.util.List;
 public class MeterPartition extends AbstractPartition<Meter> {
 
     public MeterPartition(MeterRegistry registry, int partitionSize) {
-        super(registry.getMeters(), partitionSize);
+        this(registry.getMeters(), partitionSize);
+    }
+
+    /**
+     * @param meters        Meters to partition.
+     * @param partitionSize The maximum number of meters in each partition.
+     * @since 1.6.0
+     */
+    public MeterPartition(List<Meter> meters, int partitionSize) {
+        super(meters, partitionSize);
     }
 
     public static List<List<Meter>> partition(MeterRegistry registry, int partitionSize) {
         return new MeterPartition(registry, partitionSize);
     }
 
+    /**
+     * @param meters        Meters to partition.
+     * @param partitionSize The maximum number of meters in each partition.
+     * @return The meters in consecutive partitions of at most {@code partitionSize}.
+     * @since 1.6.0
+     */
+    public static List<List<Meter>> partition(List<Meter> meters, int partitionSize) {
+        return new MeterPartition(meters, partitionSize);
+    }
+
 }
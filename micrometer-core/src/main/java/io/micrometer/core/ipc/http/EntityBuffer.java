@@ -0,0 +1,172 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.ipc.http;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.lang.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * A growable request body. Buffers obtained from a {@link Pool} go back to it once their request has been sent, so
+ * steady-state publishing reuses the same arrays from one publish to the next instead of allocating a new body for
+ * every batch. Each {@link HttpSender} that supports pooling keeps its own pool, see {@link HttpSender#entityBufferPool()}.
+ * <p>
+ * {@link HttpSender} implementations read the body in place through {@link #array()} and {@link #size()}, or with
+ * {@link #writeTo(OutputStream)}. A pooled buffer is only valid until {@link HttpSender#send(HttpSender.Request)}
+ * returns, so senders that hand the body to another thread must copy it.
+ *
+ * @since 1.6.0
+ */
+@Incubating(since = "1.6.0")
+public final class EntityBuffer extends OutputStream {
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+
+    /**
+     * Larger buffers are left for garbage collection rather than pooled, so that one unusually large publish does
+     * not pin its memory for the life of the process.
+     */
+    private static final int MAX_POOLED_CAPACITY = 4 * 1024 * 1024;
+
+    @Nullable
+    private final Pool pool;
+    private byte[] buf;
+    private int count;
+    private boolean released;
+
+    private EntityBuffer(byte[] buf, int count, @Nullable Pool pool) {
+        this.buf = buf;
+        this.count = count;
+        this.pool = pool;
+    }
+
+    /**
+     * @return An empty buffer that is never pooled.
+     */
+    public static EntityBuffer allocate() {
+        return new EntityBuffer(new byte[INITIAL_CAPACITY], 0, null);
+    }
+
+    /**
+     * @param entity A complete request body.
+     * @return A buffer over {@code entity} that is never pooled.
+     */
+    public static EntityBuffer wrap(byte[] entity) {
+        return new EntityBuffer(entity, entity.length, null);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new OutOfMemoryError("request body is larger than the maximum array size");
+        }
+        if (capacity > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(capacity, (int) Math.min(buf.length * 2L, Integer.MAX_VALUE - 8)));
+        }
+    }
+
+    /**
+     * @return The backing array. Only the first {@link #size()} bytes are part of the body.
+     */
+    public byte[] array() {
+        return buf;
+    }
+
+    /**
+     * @return The length of the body in bytes.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param out The stream to write the body to.
+     * @throws IOException If the stream cannot be written to.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, count);
+    }
+
+    /**
+     * @return A copy of the body that stays valid after this buffer is released.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    /**
+     * Does nothing, so that a buffer can be written through a stream that closes its target, such as a
+     * {@link java.util.zip.GZIPOutputStream}. Use {@link #release()} once the body has been sent.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Return this buffer to the pool it was acquired from, if any. It must not be used afterwards. Releasing it
+     * again has no effect.
+     */
+    public void release() {
+        if (pool != null && !released && buf.length <= MAX_POOLED_CAPACITY) {
+            released = true;
+            count = 0;
+            pool.buffers.offerFirst(this);
+        }
+    }
+
+    /**
+     * A small bounded pool of request bodies.
+     */
+    public static final class Pool {
+        /**
+         * Used last-in, first-out, so that the most recently used buffer, already grown to the size of a typical
+         * batch, is handed out first.
+         */
+        private final BlockingDeque<EntityBuffer> buffers = new LinkedBlockingDeque<>(8);
+
+        /**
+         * @return An empty buffer, reused from this pool if one is available. Call {@link #release()} when the
+         * request body is no longer needed.
+         */
+        public EntityBuffer acquire() {
+            EntityBuffer buffer = buffers.pollFirst();
+            if (buffer == null) {
+                return new EntityBuffer(new byte[INITIAL_CAPACITY], 0, this);
+            }
+            buffer.released = false;
+            return buffer;
+        }
+    }
+}
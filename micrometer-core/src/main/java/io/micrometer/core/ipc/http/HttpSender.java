@@ -15,22 +15,27 @@
  */
 package io.micrometer.core.ipc.http;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.util.JsonUtils;
 import io.micrometer.core.instrument.util.StringUtils;
 import io.micrometer.core.lang.Nullable;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -72,25 +77,73 @@ public interface HttpSender {
         return new Request.Builder(uri, this);
     }
 
+    /**
+     * @return The pool that request bodies written for this sender are taken from, or {@code null} to allocate a
+     * new body for every request. A pooled body is reused as soon as {@link #send(Request)} returns, so only
+     * senders that are done with the body by then should return a pool.
+     * @since 1.6.0
+     */
+    @Incubating(since = "1.6.0")
+    @Nullable
+    default EntityBuffer.Pool entityBufferPool() {
+        return null;
+    }
+
     class Request {
         private final URL url;
+        @Nullable
         private final byte[] entity;
+        private final EntityBuffer entityBuffer;
         private final Method method;
         private final Map<String, String> requestHeaders;
+        private final boolean replayable;
 
         public Request(URL url, byte[] entity, Method method, Map<String, String> requestHeaders) {
+            this(url, entity, EntityBuffer.wrap(entity), method, requestHeaders, false);
+        }
+
+        /**
+         * @param url            The request URL.
+         * @param entity         The request body, which may be a pooled buffer that is released once the request
+         *                       has been sent.
+         * @param method         The request method.
+         * @param requestHeaders The request headers.
+         * @since 1.6.0
+         */
+        @Incubating(since = "1.6.0")
+        public Request(URL url, EntityBuffer entity, Method method, Map<String, String> requestHeaders) {
+            this(url, null, entity, method, requestHeaders, false);
+        }
+
+        private Request(URL url, @Nullable byte[] entity, EntityBuffer entityBuffer, Method method,
+                        Map<String, String> requestHeaders, boolean replayable) {
             this.url = url;
             this.entity = entity;
+            this.entityBuffer = entityBuffer;
             this.method = method;
             this.requestHeaders = requestHeaders;
+            this.replayable = replayable;
         }
 
         public URL getUrl() {
             return url;
         }
 
+        /**
+         * @return The request body. For a request built on a pooled {@link EntityBuffer}, this is a copy; prefer
+         * {@link #getEntityBuffer()}.
+         */
         public byte[] getEntity() {
-            return entity;
+            return entity != null ? entity : entityBuffer.toByteArray();
+        }
+
+        /**
+         * @return The request body, to be read in place. It is only valid until the request has been sent.
+         * @since 1.6.0
+         */
+        @Incubating(since = "1.6.0")
+        public EntityBuffer getEntityBuffer() {
+            return entityBuffer;
         }
 
         public Method getMethod() {
@@ -101,6 +154,15 @@ public interface HttpSender {
             return requestHeaders;
         }
 
+        /**
+         * @return Whether the request may be stored and sent again later, e.g. by a {@link SpoolingHttpSender}.
+         * @since 1.6.0
+         */
+        @Incubating(since = "1.6.0")
+        public boolean isReplayable() {
+            return replayable;
+        }
+
         public static Builder build(String uri, HttpSender sender) {
             return new Builder(uri, sender);
         }
@@ -109,6 +171,7 @@ public interface HttpSender {
         public String toString() {
             StringBuilder printed = new StringBuilder(method.toString()).append(" ")
                     .append(url.toString()).append("\n");
+            byte[] entity = getEntity();
             if (entity.length == 0) {
                 printed.append("<no request body>");
             } else if ("application/json".equals(requestHeaders.get("Content-Type"))) {
@@ -119,6 +182,40 @@ public interface HttpSender {
             return printed.toString();
         }
 
+        /**
+         * Writes a request body as text. The body is encoded as UTF-8, and compressed if requested, as it is
+         * written, so the full body is never held as a {@link String}.
+         *
+         * @since 1.6.0
+         */
+        @Incubating(since = "1.6.0")
+        @FunctionalInterface
+        public interface ContentWriter {
+            void writeTo(Writer writer) throws IOException;
+
+            /**
+             * @param elements  The elements of the body, such as one serialized meter each.
+             * @param delimiter Written between elements.
+             * @param prefix    Written before the first element.
+             * @param suffix    Written after the last element.
+             * @return A writer for the same body as {@code elements.collect(Collectors.joining(delimiter, prefix, suffix))}.
+             */
+            static ContentWriter joining(Stream<String> elements, String delimiter, String prefix, String suffix) {
+                return writer -> {
+                    writer.write(prefix);
+                    Iterator<String> iterator = elements.iterator();
+                    if (iterator.hasNext()) {
+                        writer.write(iterator.next());
+                        while (iterator.hasNext()) {
+                            writer.write(delimiter);
+                            writer.write(iterator.next());
+                        }
+                    }
+                    writer.write(suffix);
+                };
+            }
+        }
+
         public static class Builder {
             private static final String APPLICATION_JSON = "application/json";
             private static final String TEXT_PLAIN = "text/plain";
@@ -127,8 +224,14 @@ public interface HttpSender {
             private final HttpSender sender;
 
             private byte[] entity = new byte[0];
+            @Nullable
+            private ContentWriter contentWriter;
+            private boolean compressContent;
+            @Nullable
+            private EntityBuffer entityBuffer;
             private Method method;
             private Map<String, String> requestHeaders = new LinkedHashMap<>();
+            private boolean replayable;
 
             Builder(String uri, HttpSender sender) {
                 try {
@@ -151,6 +254,20 @@ public interface HttpSender {
                 return this;
             }
 
+            /**
+             * Mark the request as one that may be stored and sent again later if it can't be delivered now, such as
+             * a batch of metrics. Requests that change the backend's configuration, like creating a database or an
+             * index template, should not be replayed.
+             *
+             * @return This request builder.
+             * @since 1.6.0
+             */
+            @Incubating(since = "1.6.0")
+            public final Builder replayable() {
+                replayable = true;
+                return this;
+            }
+
             /**
              * If user and password are non-empty, set basic authentication on the request.
              *
@@ -177,6 +294,18 @@ public interface HttpSender {
                 return withContent(APPLICATION_JSON, content);
             }
 
+            /**
+             * Set the request body as JSON content type, written when the request is sent.
+             *
+             * @param content Writes the request body.
+             * @return This request builder.
+             * @since 1.6.0
+             */
+            @Incubating(since = "1.6.0")
+            public final Builder withJsonContent(ContentWriter content) {
+                return withContent(APPLICATION_JSON, content);
+            }
+
             /**
              * Set the request body as plain text content type.
              *
@@ -187,6 +316,18 @@ public interface HttpSender {
                 return withContent(TEXT_PLAIN, content);
             }
 
+            /**
+             * Set the request body as plain text content type, written when the request is sent.
+             *
+             * @param content Writes the request body.
+             * @return This request builder.
+             * @since 1.6.0
+             */
+            @Incubating(since = "1.6.0")
+            public final Builder withPlainText(ContentWriter content) {
+                return withContent(TEXT_PLAIN, content);
+            }
+
             /**
              * Set the request body.
              *
@@ -208,6 +349,26 @@ public interface HttpSender {
             public final Builder withContent(String type, byte[] content) {
                 withHeader("Content-Type", type);
                 entity = content;
+                contentWriter = null;
+                entityBuffer = null;
+                return this;
+            }
+
+            /**
+             * Set the request body, written as UTF-8 into an {@link EntityBuffer} when the request is sent. If
+             * the request is compressed, the body is compressed as it is written. The writer runs again on each send,
+             * so a writer over a {@link Stream} can only be sent once.
+             *
+             * @param type    The value of the "Content-Type" header to add.
+             * @param content Writes the request body.
+             * @return This request builder.
+             * @since 1.6.0
+             */
+            @Incubating(since = "1.6.0")
+            public final Builder withContent(String type, ContentWriter content) {
+                withHeader("Content-Type", type);
+                contentWriter = content;
+                entityBuffer = null;
                 return this;
             }
 
@@ -249,7 +410,8 @@ public interface HttpSender {
              */
             public final Builder compress() throws IOException {
                 withHeader("Content-Encoding", "gzip");
-                this.entity = gzip(entity);
+                compressContent = true;
+                entityBuffer = null;
                 return this;
             }
 
@@ -267,21 +429,64 @@ public interface HttpSender {
                 return this;
             }
 
-            private static byte[] gzip(byte[] data) throws IOException {
-                ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length);
-                try (GZIPOutputStream out = new GZIPOutputStream(bos)) {
-                    out.write(data);
+            /**
+             * @return The request body as a buffer, or {@code null} if the body is an uncompressed array. A
+             * body that has to be written or compressed is written once, and kept until the request is sent.
+             */
+            @Nullable
+            private EntityBuffer entityBuffer() throws IOException {
+                if (entityBuffer != null) {
+                    return entityBuffer;
+                }
+                if (contentWriter == null && !compressContent) {
+                    return null;
+                }
+
+                EntityBuffer.Pool pool = sender.entityBufferPool();
+                EntityBuffer buffer = pool == null ? EntityBuffer.allocate() : pool.acquire();
+                try {
+                    OutputStream out = compressContent ? new GZIPOutputStream(buffer) : buffer;
+                    if (contentWriter != null) {
+                        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                            contentWriter.writeTo(writer);
+                        }
+                    } else {
+                        try (OutputStream o = out) {
+                            o.write(entity);
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    buffer.release();
+                    throw e;
                 }
-                return bos.toByteArray();
+                entityBuffer = buffer;
+                return buffer;
+            }
+
+            private Request request(@Nullable EntityBuffer body) {
+                return body == null ? new Request(url, entity, EntityBuffer.wrap(entity), method, requestHeaders, replayable) :
+                        new Request(url, null, body, method, requestHeaders, replayable);
             }
 
             public final Builder print() {
-                System.out.println(new Request(url, entity, method, requestHeaders));
+                try {
+                    System.out.println(request(entityBuffer()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
                 return this;
             }
 
             public Response send() throws Throwable {
-                return sender.send(new Request(url, entity, method, requestHeaders));
+                EntityBuffer body = entityBuffer();
+                try {
+                    return sender.send(request(body));
+                } finally {
+                    if (body != null) {
+                        body.release();
+                        entityBuffer = null;
+                    }
+                }
             }
         }
     }
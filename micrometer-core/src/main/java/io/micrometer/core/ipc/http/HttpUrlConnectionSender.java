@@ -39,6 +39,7 @@ public class HttpUrlConnectionSender implements HttpSender {
     private final int connectTimeoutMs;
     private final int readTimeoutMs;
     private final Proxy proxy;
+    private final EntityBuffer.Pool entityBufferPool = new EntityBuffer.Pool();
 
     /**
      * Creates a sender with the specified timeouts but uses the default proxy settings.
@@ -73,6 +74,11 @@ public class HttpUrlConnectionSender implements HttpSender {
         this.proxy = null;
     }
 
+    @Override
+    public EntityBuffer.Pool entityBufferPool() {
+        return entityBufferPool;
+    }
+
     @Override
     public Response send(Request request) throws IOException {
         HttpURLConnection con = null;
@@ -94,7 +100,7 @@ public class HttpUrlConnectionSender implements HttpSender {
             if (method != Method.GET) {
                 con.setDoOutput(true);
                 try (OutputStream os = con.getOutputStream()) {
-                    os.write(request.getEntity());
+                    request.getEntityBuffer().writeTo(os);
                     os.flush();
                 }
             }
@@ -15,8 +15,11 @@
  */
 package io.micrometer.core.ipc.http;
 
+import io.micrometer.core.lang.Nullable;
 import okhttp3.*;
+import okio.BufferedSink;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -31,6 +34,7 @@ public class OkHttpSender implements HttpSender {
     private static final MediaType MEDIA_TYPE_TEXT_PLAIN = MediaType.get("text/plain; charset=utf-8");
 
     private final OkHttpClient client;
+    private final EntityBuffer.Pool entityBufferPool = new EntityBuffer.Pool();
 
     public OkHttpSender(OkHttpClient client) {
         this.client = client;
@@ -40,6 +44,11 @@ public class OkHttpSender implements HttpSender {
         this(new OkHttpClient());
     }
 
+    @Override
+    public EntityBuffer.Pool entityBufferPool() {
+        return entityBufferPool;
+    }
+
     @Override
     public Response send(Request request) throws Throwable {
         okhttp3.Request.Builder requestBuilder = new okhttp3.Request.Builder().url(request.getUrl());
@@ -48,18 +57,17 @@ public class OkHttpSender implements HttpSender {
             requestBuilder.addHeader(requestHeader.getKey(), requestHeader.getValue());
         }
 
-        byte[] entity = request.getEntity();
+        EntityBuffer entity = request.getEntityBuffer();
         String requestMethod = request.getMethod().toString();
-        if (entity.length > 0) {
+        if (entity.size() > 0) {
             String contentType = request.getRequestHeaders().get("Content-Type");
             MediaType mediaType = contentType != null
                     ? MediaType.get(contentType + "; charset=utf-8")
                     : MEDIA_TYPE_APPLICATION_JSON;
-            RequestBody body = RequestBody.create(entity, mediaType);
-            requestBuilder.method(requestMethod, body);
+            requestBuilder.method(requestMethod, new EntityBufferRequestBody(entity, mediaType));
         } else {
             if (okhttp3.internal.http.HttpMethod.requiresRequestBody(requestMethod)) {
-                RequestBody body = RequestBody.create(entity, MEDIA_TYPE_TEXT_PLAIN);
+                RequestBody body = RequestBody.create(new byte[0], MEDIA_TYPE_TEXT_PLAIN);
                 requestBuilder.method(requestMethod, body);
             } else {
                 requestBuilder.method(requestMethod, null);
@@ -69,4 +77,34 @@ public class OkHttpSender implements HttpSender {
         okhttp3.Response response = client.newCall(requestBuilder.build()).execute();
         return new Response(response.code(), response.body() == null ? null : response.body().string());
     }
+
+    /**
+     * Writes the body to the connection's sink straight from the {@link EntityBuffer}, without copying it into an
+     * exactly sized array first.
+     */
+    private static class EntityBufferRequestBody extends RequestBody {
+        private final EntityBuffer entity;
+        private final MediaType mediaType;
+
+        EntityBufferRequestBody(EntityBuffer entity, MediaType mediaType) {
+            this.entity = entity;
+            this.mediaType = mediaType;
+        }
+
+        @Nullable
+        @Override
+        public MediaType contentType() {
+            return mediaType;
+        }
+
+        @Override
+        public long contentLength() {
+            return entity.size();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            sink.write(entity.array(), 0, entity.size());
+        }
+    }
 }
@@ -28,6 +28,7 @@ import reactor.util.function.Tuple2;
  */
 public class ReactorNettySender implements HttpSender {
     private final HttpClient httpClient;
+    private final EntityBuffer.Pool entityBufferPool = new EntityBuffer.Pool();
 
     public ReactorNettySender(HttpClient httpClient) {
         this.httpClient = httpClient;
@@ -37,6 +38,15 @@ public class ReactorNettySender implements HttpSender {
         this(HttpClient.create());
     }
 
+    /**
+     * Bodies are copied into a Netty buffer before they are sent, so the pooled buffer is free to be reused as soon
+     * as this sender returns.
+     */
+    @Override
+    public EntityBuffer.Pool entityBufferPool() {
+        return entityBufferPool;
+    }
+
     @Override
     public Response send(Request request) {
         Tuple2<Integer, String> response = httpClient
@@ -44,7 +54,11 @@ public class ReactorNettySender implements HttpSender {
                 .uri(request.getUrl().toString())
                 .send((httpClientRequest, nettyOutbound) -> {
                     request.getRequestHeaders().forEach(httpClientRequest::addHeader);
-                    return nettyOutbound.sendByteArray(Mono.just(request.getEntity()));
+                    EntityBuffer entity = request.getEntityBuffer();
+                    // copied, since Netty may still be writing the body from its event loop after block() gives up;
+                    // the buffer comes from the channel's (pooled) allocator and is released by Netty once written
+                    return nettyOutbound.send(Mono.just(nettyOutbound.alloc().buffer(entity.size())
+                            .writeBytes(entity.array(), 0, entity.size())));
                 })
                 .responseSingle((r, body) -> Mono.just(r.status().code()).zipWith(body.asString().defaultIfEmpty("")))
                 .block();
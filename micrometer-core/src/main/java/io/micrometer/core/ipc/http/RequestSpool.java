@@ -0,0 +1,244 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.ipc.http;
+
+import io.micrometer.core.lang.Nullable;
+import io.micrometer.core.util.internal.logging.InternalLogger;
+import io.micrometer.core.util.internal.logging.InternalLoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A directory of requests that could not be sent, one file per request, named by a sequence number so that the
+ * oldest request sorts first. Files are written under a temporary name, synced and moved into place, so a crash
+ * never leaves a partially written request to be replayed. When the spool would exceed its size cap, the oldest
+ * requests are evicted.
+ * <p>
+ * Requests are stored with their headers, which may carry credentials, so on file systems with POSIX permissions
+ * the directory and files are created accessible by their owner only.
+ */
+final class RequestSpool {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(RequestSpool.class);
+
+    private static final String SUFFIX = ".request";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final FileAttribute<?>[] fileAttributes;
+    private final Deque<Path> files = new ArrayDeque<>();
+    private long bytes;
+    private long nextSequence;
+
+    RequestSpool(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            this.fileAttributes = new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))};
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            this.fileAttributes = new FileAttribute<?>[0];
+            Files.createDirectories(directory);
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX + TMP_SUFFIX)) {
+            // left behind by a crash while spooling
+            for (Path tmp : stream) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(existing::add);
+        }
+        Collections.sort(existing);
+        for (Path file : existing) {
+            files.addLast(file);
+            bytes += Files.size(file);
+            nextSequence = Math.max(nextSequence, sequence(file) + 1);
+        }
+        evict(0);
+    }
+
+    /**
+     * @param request A request to replay later.
+     * @return {@code false} if the request is larger than the whole spool.
+     */
+    synchronized boolean append(HttpSender.Request request) throws IOException {
+        byte[] record = serialize(request);
+        if (record.length > maxBytes) {
+            return false;
+        }
+        evict(record.length);
+
+        Path file = directory.resolve(String.format("%019d", nextSequence++) + SUFFIX);
+        Path tmp = directory.resolve(file.getFileName() + TMP_SUFFIX);
+        try {
+            write(tmp, record);
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        files.addLast(file);
+        bytes += record.length;
+        return true;
+    }
+
+    /**
+     * @return The oldest spooled request, or {@code null} if the spool is empty. Requests that can't be read are
+     * discarded.
+     */
+    @Nullable
+    synchronized Entry oldest() {
+        Path file;
+        while ((file = files.peekFirst()) != null) {
+            try (InputStream in = Files.newInputStream(file)) {
+                return new Entry(file, deserialize(new DataInputStream(in)));
+            } catch (IOException | RuntimeException e) {
+                logger.warn("discarding unreadable spooled request " + file, e);
+                delete(file);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param entry A request returned by {@link #oldest()} that no longer needs to be replayed. Nothing happens if
+     *              it has since been evicted.
+     */
+    synchronized void remove(Entry entry) {
+        if (files.contains(entry.file)) {
+            delete(entry.file);
+        }
+    }
+
+    synchronized int size() {
+        return files.size();
+    }
+
+    private void write(Path file, byte[] record) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                fileAttributes)) {
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            // on disk before it is moved into place, or a crash could leave an empty file under the final name
+            channel.force(true);
+        }
+    }
+
+    private void evict(long incomingBytes) {
+        Path file;
+        while (bytes + incomingBytes > maxBytes && (file = files.peekFirst()) != null) {
+            logger.warn("spool " + directory + " is full, evicting the oldest spooled request " + file);
+            delete(file);
+        }
+    }
+
+    private void delete(Path file) {
+        files.remove(file);
+        try {
+            bytes -= Files.size(file);
+            Files.delete(file);
+        } catch (IOException e) {
+            logger.warn("unable to delete spooled request " + file, e);
+        }
+        if (files.isEmpty()) {
+            bytes = 0;
+        }
+    }
+
+    private static long sequence(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static byte[] serialize(HttpSender.Request request) throws IOException {
+        EntityBuffer entity = request.getEntityBuffer();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(entity.size() + 512);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(request.getMethod().name());
+        out.writeUTF(request.getUrl().toString());
+        out.writeInt(request.getRequestHeaders().size());
+        for (Map.Entry<String, String> header : request.getRequestHeaders().entrySet()) {
+            out.writeUTF(header.getKey());
+            out.writeUTF(header.getValue());
+        }
+        out.writeInt(entity.size());
+        entity.writeTo(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static HttpSender.Request deserialize(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("unsupported spool format version " + version);
+        }
+        HttpSender.Method method = HttpSender.Method.valueOf(in.readUTF());
+        URL url = new URL(in.readUTF());
+        int headerCount = in.readInt();
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(in.readUTF(), in.readUTF());
+        }
+        byte[] entity = new byte[in.readInt()];
+        in.readFully(entity);
+        return new HttpSender.Request(url, entity, method, headers);
+    }
+
+    static final class Entry {
+        final Path file;
+        final HttpSender.Request request;
+
+        Entry(Path file, HttpSender.Request request) {
+            this.file = file;
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.ipc.http;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.instrument.util.NamedThreadFactory;
+import io.micrometer.core.lang.Nullable;
+import io.micrometer.core.util.internal.logging.InternalLogger;
+import io.micrometer.core.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An {@link HttpSender} that keeps requests which could not be delivered in a local spool directory and replays
+ * them once the backend is reachable again, so that a push registry doesn't lose the data published during an
+ * outage.
+ * <p>
+ * Only requests marked {@link Request.Builder#replayable()}, which registries use for the requests that publish
+ * metrics, are spooled. A replayable request is spooled when the delegate throws, or when the backend responds with
+ * 408, 429 or a server error. Each subsequent successful send schedules a replay of up to {@code replayPerSend}
+ * spooled requests, oldest first, so the backend isn't flooded as it recovers. Replays run on a background thread
+ * by default, so they never hold up a publish. When the spool would grow past its size cap, the oldest requests are
+ * discarded. Spooled requests survive a restart of the application.
+ * <p>
+ * Requests are written to disk as they were sent, including their headers. Where the file system supports POSIX
+ * permissions, the spool directory and files are created accessible by their owner only. Elsewhere, point the
+ * spool at a directory that is only readable by the application when requests carry credentials.
+ *
+ * @since 1.6.0
+ */
+@Incubating(since = "1.6.0")
+public class SpoolingHttpSender implements HttpSender {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(SpoolingHttpSender.class);
+
+    private final HttpSender delegate;
+    private final RequestSpool spool;
+    private final int replayPerSend;
+    private final Executor replayExecutor;
+    private final AtomicBoolean replaying = new AtomicBoolean();
+
+    /**
+     * @param delegate      Sends requests to the backend.
+     * @param directory     The spool directory, which is created if it doesn't exist. Use a separate directory for
+     *                      each registry.
+     * @param maxSpoolBytes The maximum total size of spooled requests.
+     * @param replayPerSend The maximum number of spooled requests replayed after each successful send.
+     */
+    public SpoolingHttpSender(HttpSender delegate, Path directory, long maxSpoolBytes, int replayPerSend) {
+        this(delegate, directory, maxSpoolBytes, replayPerSend, new ThreadPoolExecutor(0, 1, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory("spooling-http-sender-replay")));
+    }
+
+    /**
+     * @param delegate       Sends requests to the backend.
+     * @param directory      The spool directory, which is created if it doesn't exist. Use a separate directory for
+     *                       each registry.
+     * @param maxSpoolBytes  The maximum total size of spooled requests.
+     * @param replayPerSend  The maximum number of spooled requests replayed after each successful send.
+     * @param replayExecutor Runs replays. At most one replay is submitted at a time.
+     */
+    public SpoolingHttpSender(HttpSender delegate, Path directory, long maxSpoolBytes, int replayPerSend,
+                              Executor replayExecutor) {
+        if (maxSpoolBytes <= 0) {
+            throw new IllegalArgumentException("maxSpoolBytes must be positive");
+        }
+        if (replayPerSend <= 0) {
+            throw new IllegalArgumentException("replayPerSend must be positive");
+        }
+        this.delegate = delegate;
+        this.replayPerSend = replayPerSend;
+        this.replayExecutor = replayExecutor;
+        try {
+            this.spool = new RequestSpool(directory, maxSpoolBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("unable to open spool directory " + directory, e);
+        }
+    }
+
+    @Nullable
+    @Override
+    public EntityBuffer.Pool entityBufferPool() {
+        // bodies are spooled before send returns
+        return delegate.entityBufferPool();
+    }
+
+    @Override
+    public Response send(Request request) throws Throwable {
+        Response response;
+        try {
+            response = delegate.send(request);
+        } catch (Throwable t) {
+            spool(request);
+            throw t;
+        }
+
+        if (isRetryable(response)) {
+            spool(request);
+        } else if (response.isSuccessful()) {
+            scheduleReplay();
+        }
+        return response;
+    }
+
+    /**
+     * @return The number of requests waiting to be replayed.
+     */
+    public int spooled() {
+        return spool.size();
+    }
+
+    private void spool(Request request) {
+        if (!request.isReplayable()) {
+            return;
+        }
+        try {
+            if (!spool.append(request)) {
+                logger.warn("request to " + request.getUrl() + " is larger than the spool and will not be replayed");
+            }
+        } catch (IOException e) {
+            logger.warn("unable to spool request to " + request.getUrl(), e);
+        }
+    }
+
+    private void scheduleReplay() {
+        if (spool.size() == 0 || !replaying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            replayExecutor.execute(this::replay);
+        } catch (RejectedExecutionException e) {
+            replaying.set(false);
+        }
+    }
+
+    private void replay() {
+        try {
+            for (int i = 0; i < replayPerSend; i++) {
+                RequestSpool.Entry entry = spool.oldest();
+                if (entry == null) {
+                    return;
+                }
+
+                Response response;
+                try {
+                    response = delegate.send(entry.request);
+                } catch (Throwable t) {
+                    logger.debug("unable to replay spooled request to " + entry.request.getUrl(), t);
+                    return;
+                }
+                if (isRetryable(response)) {
+                    return;
+                }
+                if (!response.isSuccessful()) {
+                    logger.warn("discarding spooled request to " + entry.request.getUrl() + " rejected with status " +
+                            response.code() + ": " + response.body());
+                }
+                spool.remove(entry);
+            }
+        } finally {
+            replaying.set(false);
+        }
+    }
+
+    private static boolean isRetryable(Response response) {
+        int code = response.code();
+        return code == 408 || code == 429 || code >= 500;
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class CachedClockTest {
+
+    @Test
+    void wallTimeFollowsDelegateOnEachTick() {
+        MockClock delegate = new MockClock();
+        try (CachedClock clock = new CachedClock(delegate, Duration.ofMillis(1))) {
+            assertThat(clock.wallTime()).isEqualTo(delegate.wallTime());
+
+            delegate.add(Duration.ofSeconds(1));
+            await().atMost(Duration.ofSeconds(5)).until(() -> clock.wallTime() == delegate.wallTime());
+        }
+    }
+
+    @Test
+    void monotonicTimeIsReadFromDelegate() {
+        MockClock delegate = new MockClock();
+        try (CachedClock clock = new CachedClock(delegate, Duration.ofHours(1))) {
+            delegate.add(Duration.ofMillis(5));
+            assertThat(clock.monotonicTime()).isEqualTo(delegate.monotonicTime());
+        }
+    }
+}
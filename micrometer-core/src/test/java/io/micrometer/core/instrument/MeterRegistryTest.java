@@ -16,6 +16,7 @@
 package io.micrometer.core.instrument;
 
 import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.cumulative.CumulativeCounter;
 import io.micrometer.core.instrument.config.MeterFilterReply;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.pause.PauseDetector;
@@ -25,8 +26,23 @@ import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
 import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 
 /**
  * Tests for {@link MeterRegistry}.
@@ -196,4 +212,239 @@ class MeterRegistryTest {
 
         assertThat(registry.get("my.gauge").gauge().value()).isEqualTo(1d);
     }
+
+    @Test
+    void concurrentRegistrationOfSameIdReturnsSameMeter() throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Timer>> registrations = IntStream.range(0, threads)
+                    .mapToObj(i -> (Callable<Timer>) () -> {
+                        start.await();
+                        return Timer.builder("my.timer").publishPercentiles(0.95).register(registry);
+                    })
+                    .collect(Collectors.toList());
+
+            List<Future<Timer>> timers = registrations.stream().map(executor::submit).collect(Collectors.toList());
+            start.countDown();
+
+            Timer first = timers.get(0).get();
+            for (Future<Timer> timer : timers) {
+                assertThat(timer.get()).isSameAs(first);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(registry.getMeters()).hasSize(2);
+        registry.remove(registry.get("my.timer").timer());
+        assertThat(registry.getMeters()).isEmpty();
+    }
+
+    @Test
+    void concurrentRegistrationOfDistinctIds() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Counter>> counters = IntStream.range(0, 1000)
+                    .mapToObj(i -> executor.submit(() -> registry.counter("my.counter", "k", Integer.toString(i))))
+                    .collect(Collectors.toList());
+            for (Future<Counter> counter : counters) {
+                counter.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(registry.find("my.counter").counters()).hasSize(1000);
+    }
+
+    @Test
+    void listenerRegisteringTheIdBeingRegisteredDoesNotDeadlock() {
+        AtomicInteger added = new AtomicInteger();
+        registry.config().onMeterAdded(meter -> {
+            if (added.incrementAndGet() == 1) {
+                registry.counter("my.counter");
+            }
+        });
+
+        Counter counter = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> registry.counter("my.counter"));
+        assertThat(registry.find("my.counter").counters()).containsExactly(counter);
+    }
+
+    @Test
+    void listenersRegisteringEachOthersIdsConcurrentlyDoNotDeadlock() throws Exception {
+        CountDownLatch bothAdding = new CountDownLatch(2);
+        Set<Thread> adding = ConcurrentHashMap.newKeySet();
+        registry.config().onMeterAdded(meter -> {
+            if (!adding.add(Thread.currentThread())) {
+                return;
+            }
+            try {
+                // each thread registers the id the other one is registering, while its own registration is pending
+                bothAdding.countDown();
+                awaitUninterruptibly(bothAdding);
+                registry.counter(meter.getId().getName().equals("x") ? "y" : "x");
+            } finally {
+                adding.remove(Thread.currentThread());
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Counter> x = executor.submit(() -> registry.counter("x"));
+            Future<Counter> y = executor.submit(() -> registry.counter("y"));
+
+            assertThat(x.get(5, TimeUnit.SECONDS)).isNotNull();
+            assertThat(y.get(5, TimeUnit.SECONDS)).isNotNull();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(registry.find("x").counter()).isNotNull();
+        assertThat(registry.find("y").counter()).isNotNull();
+    }
+
+    @Test
+    void closeClosesMeterRegisteredConcurrently() throws Exception {
+        Set<Meter> closedMeters = ConcurrentHashMap.newKeySet();
+        MeterRegistry registry = new SimpleMeterRegistry() {
+            @Override
+            protected Counter newCounter(Meter.Id id) {
+                return new CumulativeCounter(id) {
+                    @Override
+                    public void close() {
+                        closedMeters.add(this);
+                    }
+                };
+            }
+        };
+        CountDownLatch registering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        registry.config().onMeterAdded(meter -> {
+            registering.countDown();
+            awaitUninterruptibly(release);
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Counter> counter = executor.submit(() -> registry.counter("my.counter"));
+            assertThat(registering.await(5, TimeUnit.SECONDS)).isTrue();
+
+            Thread closing = new Thread(registry::close);
+            closing.start();
+            awaitBlocked(closing);
+            release.countDown();
+            closing.join(5000);
+
+            assertThat(registry.isClosed()).isTrue();
+            assertThat(closedMeters).containsExactly(counter.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void removeWaitsForConcurrentRegistrationOfTheSameId() throws Exception {
+        CountDownLatch registering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        registry.config().onMeterAdded(meter -> {
+            registering.countDown();
+            awaitUninterruptibly(release);
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Counter> counter = executor.submit(() -> registry.counter("my.counter"));
+            assertThat(registering.await(5, TimeUnit.SECONDS)).isTrue();
+
+            AtomicReference<Meter> removed = new AtomicReference<>();
+            Thread removing = new Thread(() -> removed.set(registry.remove(
+                    new Meter.Id("my.counter", Tags.empty(), null, null, Meter.Type.COUNTER))));
+            removing.start();
+            awaitBlocked(removing);
+            release.countDown();
+            removing.join(5000);
+
+            assertThat(removed.get()).isSameAs(counter.get(5, TimeUnit.SECONDS));
+            assertThat(registry.find("my.counter").counter()).isNull();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.BLOCKED && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(thread.getState()).isEqualTo(Thread.State.BLOCKED);
+    }
+
+    @Test
+    void repeatedLookupsSkipMeterFilters() {
+        AtomicInteger mapCalls = new AtomicInteger();
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public Meter.Id map(Meter.Id id) {
+                mapCalls.incrementAndGet();
+                return id.withName("another.name");
+            }
+        });
+
+        Counter counter = registry.counter("name", "k", "v");
+        assertThat(registry.counter("name", "k", "v")).isSameAs(counter);
+        assertThat(mapCalls).hasValue(1);
+    }
+
+    @Test
+    void addingMeterFilterInvalidatesPreFilterLookups() {
+        Counter counter = registry.counter("name");
+        registry.config().meterFilter(MeterFilter.commonTags(Tags.of("k", "v")));
+
+        Counter mapped = registry.counter("name");
+        assertThat(mapped).isNotSameAs(counter);
+        assertThat(mapped.getId().getTag("k")).isEqualTo("v");
+    }
+
+    @Test
+    void removeMeterEvictsPreFilterLookups() {
+        registry.config().meterFilter(MeterFilter.renameTag("name", "k", "k2"));
+
+        Counter counter = registry.counter("name", "k", "v");
+        registry.remove(counter);
+
+        Counter recreated = registry.counter("name", "k", "v");
+        assertThat(recreated).isNotSameAs(counter);
+        assertThat(registry.find("name").counters()).containsExactly(recreated);
+    }
+
+    @Test
+    void preFilterLookupsOfCollapsedTagsAreBounded() {
+        registry.config().meterFilter(MeterFilter.ignoreTags("uri"));
+
+        for (int i = 0; i < 1000; i++) {
+            registry.counter("requests", "uri", "/" + i).increment();
+        }
+
+        assertThat(registry.find("requests").counters()).hasSize(1);
+        assertThat(registry.get("requests").counter().count()).isEqualTo(1000);
+        assertThat(registry.preFilterIdCacheSize()).isLessThanOrEqualTo(8);
+    }
+
+    @Test
+    void deniedIdCanBeRequestedAsAnotherMeterType() {
+        registry.config().meterFilter(MeterFilter.denyNameStartsWith("denied"));
+
+        assertThat(registry.counter("denied.meter")).isInstanceOf(NoopCounter.class);
+        assertThat(registry.timer("denied.meter")).isInstanceOf(NoopTimer.class);
+    }
 }
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link TagInterner}.
+ */
+class TagInternerTest {
+    private final TagInterner interner = new TagInterner(16);
+
+    @Test
+    void internStringReturnsPooledInstance() {
+        String first = new String("uri");
+        String second = new String("uri");
+
+        assertThat(interner.intern(first)).isSameAs(first);
+        assertThat(interner.intern(second)).isSameAs(first);
+    }
+
+    @Test
+    void internTagReturnsPooledInstance() {
+        Tag first = interner.intern(Tag.of(new String("method"), new String("GET")));
+        Tag second = interner.intern(Tag.of(new String("method"), new String("GET")));
+
+        assertThat(second).isSameAs(first);
+        assertThat(interner.intern(Tag.of("method", "POST"))).isNotSameAs(first).isEqualTo(Tag.of("method", "POST"));
+    }
+
+    @Test
+    void internTagsPreservesOrderAndEquality() {
+        Tags tags = Tags.of("status", "200", "method", "GET", "uri", "/api");
+        Tags interned = interner.intern(tags);
+
+        assertThat(interned).isEqualTo(tags).hasSameHashCodeAs(tags);
+        assertThat(interned).containsExactlyElementsOf(tags);
+    }
+
+    @Test
+    void registryInternsTagsOfRegisteredMeters() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().tagInterner(interner);
+
+        Counter first = registry.counter("requests", "uri", new String("/api"), "status", "200");
+        Counter second = registry.counter("requests", "uri", new String("/api"), "status", "500");
+
+        // tags are sorted by key, so status comes before uri
+        assertThat(second.getId().getTags().get(0)).isNotEqualTo(first.getId().getTags().get(0));
+        assertThat(second.getId().getTags().get(0).getKey()).isSameAs(first.getId().getTags().get(0).getKey());
+        assertThat(second.getId().getTags().get(1)).isSameAs(first.getId().getTags().get(1));
+        assertThat(registry.counter("requests", "uri", "/api", "status", "200")).isSameAs(first);
+    }
+}
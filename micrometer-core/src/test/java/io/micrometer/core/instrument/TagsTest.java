@@ -216,6 +216,24 @@ class TagsTest {
         assertTags(merged, "t1", "v3", "t2", "v2");
     }
 
+    @Test
+    void andWhenTagsInterleaveShouldMergeInSortedOrder() {
+        Tags source = Tags.of("t1", "v1", "t3", "v3", "t5", "v5");
+        Tags merged = source.and(Tags.of("t4", "v4", "t2", "v2", "t3", "v6"));
+        assertTags(merged, "t1", "v1", "t2", "v2", "t3", "v6", "t4", "v4", "t5", "v5");
+    }
+
+    @Test
+    void hashCodeShouldBeConsistentRegardlessOfConstruction() {
+        Tags tags = Tags.of("t1", "v1", "t2", "v2");
+        Tags merged = Tags.of("t2", "v2").and("t1", "v1");
+        Tags concatenated = Tags.concat(Collections.singletonList(Tag.of("t1", "v1")), "t2", "v2");
+
+        assertThat(merged).isEqualTo(tags).hasSameHashCodeAs(tags);
+        assertThat(concatenated).isEqualTo(tags).hasSameHashCodeAs(tags);
+        assertThat(tags.hashCode()).isEqualTo(tags.hashCode());
+    }
+
     @Test
     void iteratorShouldIterateTags() {
         Tags tags = Tags.of("t1", "v1");
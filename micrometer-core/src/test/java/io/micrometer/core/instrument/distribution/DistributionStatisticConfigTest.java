@@ -35,4 +35,31 @@ class DistributionStatisticConfigTest {
         assertThat(merged.getPercentiles()).containsExactly(0.90);
         assertThat(merged.getExpiry()).isEqualTo(Duration.ofMinutes(2));
     }
+
+    @Test
+    void histogramBucketArrayMatchesHistogramBuckets() {
+        DistributionStatisticConfig config = DistributionStatisticConfig.builder()
+                .percentilesHistogram(true)
+                .serviceLevelObjectives(7.0, 3.0, 1_000_000.0)
+                .minimumExpectedValue(2.0)
+                .maximumExpectedValue(5_000_000.0)
+                .build()
+                .merge(DistributionStatisticConfig.DEFAULT);
+
+        for (boolean supportsAggregablePercentiles : new boolean[]{true, false}) {
+            assertThat(config.getHistogramBucketArray(supportsAggregablePercentiles))
+                    .containsExactly(config.getHistogramBuckets(supportsAggregablePercentiles).stream()
+                            .mapToDouble(Double::doubleValue).toArray());
+        }
+    }
+
+    @Test
+    void histogramBucketArrayIsSharedBetweenEqualConfigs() {
+        DistributionStatisticConfig c1 = DistributionStatisticConfig.builder().percentilesHistogram(true).build()
+                .merge(DistributionStatisticConfig.DEFAULT);
+        DistributionStatisticConfig c2 = DistributionStatisticConfig.builder().percentilesHistogram(true).build()
+                .merge(DistributionStatisticConfig.DEFAULT);
+
+        assertThat(c1.getHistogramBucketArray(true)).isSameAs(c2.getHistogramBucketArray(true));
+    }
 }
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RotationSchedulerTest {
+
+    @Test
+    void recordingLeavesRotationToScheduler() {
+        MockClock clock = new MockClock();
+        try (RotationScheduler scheduler = new RotationScheduler(Duration.ofHours(1))) {
+            TimeWindowMax max = new TimeWindowMax(clock, DistributionStatisticConfig.builder()
+                    .rotationScheduler(scheduler)
+                    .build()
+                    .merge(DistributionStatisticConfig.DEFAULT));
+
+            max.record(10);
+            clock.add(DistributionStatisticConfig.DEFAULT.getExpiry().multipliedBy(DistributionStatisticConfig.DEFAULT.getBufferLength()));
+
+            // left in the expired slot, since the scheduler is responsible for rotating
+            max.record(5);
+            scheduler.rotate();
+            assertThat(max.poll()).isZero();
+        }
+    }
+
+    @Test
+    void recordingThreadsRotateOnceSchedulerIsClosed() {
+        MockClock clock = new MockClock();
+        RotationScheduler scheduler = new RotationScheduler(Duration.ofHours(1));
+        TimeWindowMax max = new TimeWindowMax(clock, DistributionStatisticConfig.builder()
+                .rotationScheduler(scheduler)
+                .build()
+                .merge(DistributionStatisticConfig.DEFAULT));
+        scheduler.close();
+
+        max.record(10);
+        clock.add(DistributionStatisticConfig.DEFAULT.getExpiry().multipliedBy(DistributionStatisticConfig.DEFAULT.getBufferLength()));
+        max.record(5);
+        assertThat(max.poll()).isEqualTo(5);
+    }
+
+    @Test
+    void failingRotationDoesNotStopOtherRotations() {
+        MockClock clock = new MockClock();
+        try (RotationScheduler scheduler = new RotationScheduler(Duration.ofHours(1))) {
+            TimeWindowMax max = new TimeWindowMax(clock, DistributionStatisticConfig.builder()
+                    .rotationScheduler(scheduler)
+                    .build()
+                    .merge(DistributionStatisticConfig.DEFAULT));
+            scheduler.register(max, timeWindow -> {
+                throw new IllegalStateException("rotation failed");
+            });
+            TimeWindowMax later = new TimeWindowMax(clock, DistributionStatisticConfig.builder()
+                    .rotationScheduler(scheduler)
+                    .build()
+                    .merge(DistributionStatisticConfig.DEFAULT));
+
+            max.record(10);
+            later.record(10);
+            clock.add(DistributionStatisticConfig.DEFAULT.getExpiry().multipliedBy(DistributionStatisticConfig.DEFAULT.getBufferLength()));
+            max.record(5);
+            later.record(5);
+
+            scheduler.rotate();
+            assertThat(max.poll()).isZero();
+            assertThat(later.poll()).isZero();
+            assertThat(scheduler.isRunning()).isTrue();
+        }
+    }
+
+    @Test
+    void isNotRunningOnceTicksStop() {
+        RotationScheduler scheduler = new RotationScheduler(Duration.ofHours(1));
+        assertThat(scheduler.isRunning()).isTrue();
+        scheduler.close();
+        assertThat(scheduler.isRunning()).isFalse();
+    }
+
+    @Test
+    void registryOption() {
+        MockClock clock = new MockClock();
+        try (RotationScheduler scheduler = new RotationScheduler(Duration.ofHours(1))) {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+            registry.config().rotationScheduler(scheduler);
+
+            Timer timer = Timer.builder("my.timer")
+                    .publishPercentileHistogram()
+                    .serviceLevelObjectives(Duration.ofMillis(10))
+                    .distributionStatisticExpiry(Duration.ofMinutes(1))
+                    .distributionStatisticBufferLength(3)
+                    .register(registry);
+            clock.add(Duration.ofMinutes(1));
+
+            // left in the expired bucket, since the registry's scheduler is responsible for rotating the histogram
+            timer.record(5, TimeUnit.MILLISECONDS);
+            scheduler.rotate();
+            assertThat(timer.takeSnapshot().histogramCounts()[0].count()).isZero();
+        }
+    }
+}
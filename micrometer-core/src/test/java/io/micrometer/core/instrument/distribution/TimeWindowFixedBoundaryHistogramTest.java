@@ -19,6 +19,11 @@ import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.MockClock;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 class TimeWindowFixedBoundaryHistogramTest {
@@ -69,4 +74,127 @@ class TimeWindowFixedBoundaryHistogramTest {
             );
         }
     }
+
+    @Test
+    void bucketCountsMatchCountAtValue() {
+        try (TimeWindowFixedBoundaryHistogram histogram = new TimeWindowFixedBoundaryHistogram(new MockClock(),
+                DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .serviceLevelObjectives(5_000_000.0)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), true)) {
+
+            for (long value = 1; value < 1_000_000_000L; value *= 3) {
+                histogram.recordLong(value);
+            }
+
+            CountAtBucket[] counts = histogram.takeSnapshot(0, 0, 0).histogramCounts();
+            assertThat(counts).hasSize(277);
+            for (CountAtBucket count : counts) {
+                assertThat(count.count()).isEqualTo(histogram.countAtValue(count.bucket()));
+            }
+        }
+    }
+
+    @Test
+    void bucketCountsAreReusedUntilSamplesChange() {
+        try (TimeWindowFixedBoundaryHistogram histogram = new TimeWindowFixedBoundaryHistogram(new MockClock(),
+                DistributionStatisticConfig.builder()
+                        .serviceLevelObjectives(3.0, 6, 7)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            histogram.recordDouble(3);
+            CountAtBucket[] counts = histogram.takeSnapshot(0, 0, 0).histogramCounts();
+            CountAtBucket[] reused = histogram.takeSnapshot(0, 0, 0).histogramCounts();
+            assertThat(reused).isNotSameAs(counts).containsExactly(counts);
+            assertThat(reused[0]).isSameAs(counts[0]);
+
+            // snapshots handed out earlier must not be able to corrupt later ones
+            counts[0] = new CountAtBucket(3.0, 42);
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()[0]).isEqualTo(new CountAtBucket(3.0, 1));
+
+            histogram.recordDouble(6);
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(3.0, 1),
+                    new CountAtBucket(6.0, 2),
+                    new CountAtBucket(7.0, 2));
+        }
+    }
+
+    @Test
+    void stripedHistogramCountsSamplesFromAllThreads() throws InterruptedException {
+        try (TimeWindowFixedBoundaryHistogram histogram = new TimeWindowFixedBoundaryHistogram(new MockClock(),
+                DistributionStatisticConfig.builder()
+                        .serviceLevelObjectives(3.0, 6, 7)
+                        .stripedHistogram(true)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            assertThat(histogram.newBucket()).isInstanceOf(TimeWindowFixedBoundaryHistogram.StripedFixedBoundaryHistogram.class);
+
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int t = 0; t < 8; t++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        histogram.recordDouble(3);
+                        histogram.recordDouble(7);
+                    }
+                });
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(3.0, 8000),
+                    new CountAtBucket(6.0, 8000),
+                    new CountAtBucket(7.0, 16000));
+        }
+    }
+
+    @Test
+    void samplesExpireOneRotationIntervalAtATime() {
+        MockClock clock = new MockClock();
+        try (TimeWindowFixedBoundaryHistogram histogram = new TimeWindowFixedBoundaryHistogram(clock,
+                DistributionStatisticConfig.builder()
+                        .serviceLevelObjectives(5.0, 50.0, 500.0)
+                        .expiry(Duration.ofSeconds(4))
+                        .bufferLength(4)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            histogram.recordLong(10);
+            histogram.recordLong(20);
+
+            clock.add(1, TimeUnit.SECONDS);
+            histogram.recordLong(1);
+
+            clock.add(1, TimeUnit.SECONDS);
+            histogram.recordLong(100);
+
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(5.0, 1),
+                    new CountAtBucket(50.0, 3),
+                    new CountAtBucket(500.0, 4));
+
+            // the first interval's samples expire
+            clock.add(2, TimeUnit.SECONDS);
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(5.0, 1),
+                    new CountAtBucket(50.0, 1),
+                    new CountAtBucket(500.0, 2));
+
+            clock.add(1, TimeUnit.SECONDS);
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(5.0, 0),
+                    new CountAtBucket(50.0, 0),
+                    new CountAtBucket(500.0, 1));
+
+            clock.add(10, TimeUnit.SECONDS);
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(5.0, 0),
+                    new CountAtBucket(50.0, 0),
+                    new CountAtBucket(500.0, 0));
+        }
+    }
 }
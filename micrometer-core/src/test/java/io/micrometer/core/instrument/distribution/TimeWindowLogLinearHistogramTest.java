@@ -0,0 +1,108 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import io.micrometer.core.instrument.MockClock;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TimeWindowLogLinearHistogramTest {
+
+    @Test
+    void percentilesAreWithinPrecision() {
+        for (int precision = 1; precision <= 3; precision++) {
+            try (TimeWindowLogLinearHistogram histogram = new TimeWindowLogLinearHistogram(new MockClock(),
+                    DistributionStatisticConfig.builder()
+                            .percentiles(0.5, 0.9, 0.99)
+                            .percentilePrecision(precision)
+                            .build()
+                            .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+                Random random = new Random(1);
+                double[] values = new double[10_000];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = Math.exp(14 + 2 * random.nextGaussian());
+                    histogram.recordDouble(values[i]);
+                }
+                Arrays.sort(values);
+
+                for (ValueAtPercentile valueAtPercentile : histogram.takeSnapshot(0, 0, 0).percentileValues()) {
+                    double expected = values[(int) Math.ceil(valueAtPercentile.percentile() * values.length) - 1];
+                    assertThat(valueAtPercentile.value()).isCloseTo(expected, within(expected * Math.pow(10, -precision)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void histogramsAreCumulative() {
+        try (TimeWindowLogLinearHistogram histogram = new TimeWindowLogLinearHistogram(new MockClock(),
+                DistributionStatisticConfig.builder()
+                        .serviceLevelObjectives(3.0, 6, 7)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            histogram.recordDouble(3);
+            histogram.recordDouble(6);
+
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(3.0, 1),
+                    new CountAtBucket(6.0, 2),
+                    new CountAtBucket(7.0, 2));
+        }
+    }
+
+    @Test
+    void valuesOutsideOfExpectedRangeAreClamped() {
+        try (TimeWindowLogLinearHistogram histogram = new TimeWindowLogLinearHistogram(new MockClock(),
+                DistributionStatisticConfig.builder()
+                        .percentiles(0.0, 1.0)
+                        .minimumExpectedValue(10.0)
+                        .maximumExpectedValue(1000.0)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            histogram.recordDouble(0);
+            histogram.recordDouble(Double.MAX_VALUE);
+
+            ValueAtPercentile[] percentiles = histogram.takeSnapshot(0, 0, 0).percentileValues();
+            assertThat(percentiles[0].value()).isBetween(8.0, 10.0);
+            assertThat(percentiles[1].value()).isBetween(512.0, 1024.0);
+        }
+    }
+
+    @Test
+    void samplesExpireWithTheRingBuffer() {
+        MockClock clock = new MockClock();
+        try (TimeWindowLogLinearHistogram histogram = new TimeWindowLogLinearHistogram(clock,
+                DistributionStatisticConfig.builder()
+                        .percentiles(0.5)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            histogram.recordDouble(100);
+            assertThat(histogram.takeSnapshot(0, 0, 0).percentileValues()[0].value()).isCloseTo(100, within(10.0));
+
+            clock.add(DistributionStatisticConfig.DEFAULT.getExpiry());
+            assertThat(histogram.takeSnapshot(0, 0, 0).percentileValues()[0].value()).isZero();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import io.micrometer.core.instrument.MockClock;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeWindowMaxTest {
+
+    @Test
+    void maxDecaysOneRotationAtATime() {
+        MockClock clock = new MockClock();
+        TimeWindowMax max = new TimeWindowMax(clock, 60, 3);
+
+        max.record(10);
+        clock.add(60, TimeUnit.MILLISECONDS);
+        max.record(5);
+        assertThat(max.poll()).isEqualTo(10);
+
+        clock.add(60, TimeUnit.MILLISECONDS);
+        assertThat(max.poll()).isEqualTo(10);
+
+        clock.add(60, TimeUnit.MILLISECONDS);
+        assertThat(max.poll()).isEqualTo(5);
+
+        clock.add(60, TimeUnit.MILLISECONDS);
+        assertThat(max.poll()).isZero();
+    }
+
+    @Test
+    void smallerSamplesDoNotReplaceMax() {
+        TimeWindowMax max = new TimeWindowMax(new MockClock(), 60, 3);
+
+        max.record(3, TimeUnit.SECONDS);
+        max.record(1, TimeUnit.SECONDS);
+        assertThat(max.poll(TimeUnit.SECONDS)).isEqualTo(3);
+    }
+}
@@ -19,6 +19,8 @@ import io.micrometer.core.instrument.MockClock;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static io.micrometer.core.instrument.util.TimeUtils.millisToUnit;
@@ -54,6 +56,46 @@ class TimeWindowPercentileHistogramTest {
         }
     }
 
+    @Test
+    void visitedStatisticsMatchSnapshot() {
+        try (TimeWindowPercentileHistogram histogram = new TimeWindowPercentileHistogram(new MockClock(),
+                DistributionStatisticConfig.builder()
+                        .percentiles(0.5, 0.9)
+                        .serviceLevelObjectives(3.0, 6, 7)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            for (int i = 1; i <= 10; i++) {
+                histogram.recordDouble(i);
+            }
+
+            HistogramSnapshot snapshot = histogram.takeSnapshot(10, 55, 10);
+            List<ValueAtPercentile> percentiles = new ArrayList<>();
+            List<CountAtBucket> buckets = new ArrayList<>();
+            histogram.visitSnapshot(10, 55, 10, new HistogramVisitor() {
+                @Override
+                public void summary(long count, double total, double max) {
+                    assertThat(count).isEqualTo(10);
+                    assertThat(total).isEqualTo(55);
+                    assertThat(max).isEqualTo(10);
+                }
+
+                @Override
+                public void percentile(double percentile, double value) {
+                    percentiles.add(new ValueAtPercentile(percentile, value));
+                }
+
+                @Override
+                public void bucket(double bucket, double count) {
+                    buckets.add(new CountAtBucket(bucket, count));
+                }
+            });
+
+            assertThat(percentiles).containsExactly(snapshot.percentileValues());
+            assertThat(buckets).containsExactly(snapshot.histogramCounts());
+        }
+    }
+
     @Test
     void sampleValueAboveMaximumExpectedValue() {
         try (TimeWindowPercentileHistogram histogram = new TimeWindowPercentileHistogram(new MockClock(), DistributionStatisticConfig.builder()
@@ -15,24 +15,42 @@
  */
 package io.micrometer.core.instrument.push;
 
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.config.validate.ValidationException;
 import io.micrometer.core.instrument.step.StepMeterRegistry;
 import io.micrometer.core.instrument.step.StepRegistryConfig;
 import io.micrometer.core.instrument.util.NamedThreadFactory;
+import io.micrometer.core.ipc.http.HttpSender;
+import io.micrometer.core.ipc.http.HttpUrlConnectionSender;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import ru.lanwen.wiremock.ext.WiremockResolver;
 
 import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Tests for {@link PushMeterRegistry}.
  */
+@ExtendWith(WiremockResolver.class)
 class PushMeterRegistryTest {
 
     static ThreadFactory threadFactory = new NamedThreadFactory("PushMeterRegistryTest");
@@ -73,12 +91,213 @@ class PushMeterRegistryTest {
         assertThatCode(() -> pushMeterRegistry.close()).doesNotThrowAnyException();
     }
 
+    @Test
+    void publishBatchesSendsUpToPublishConcurrencyRequestsAtATime(@WiremockResolver.Wiremock WireMockServer server) throws Throwable {
+        server.stubFor(post(anyUrl()).willReturn(aResponse().withFixedDelay(200)));
+        PushMeterRegistry registry = new ThrowingPushMeterRegistry(publishConfig(4, Duration.ofSeconds(10)), latch);
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        HttpSender sender = new HttpUrlConnectionSender();
+        registry.publishBatches(batches(8), batch -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                sender.post(server.baseUrl()).withPlainText(batch.toString()).send();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+
+        assertThat(maxInFlight.get()).isEqualTo(4);
+        server.verify(8, postRequestedFor(anyUrl()));
+        registry.close();
+    }
+
+    @Test
+    void publishBatchesStopsAtPublishTimeout(@WiremockResolver.Wiremock WireMockServer server) throws Throwable {
+        server.stubFor(post(anyUrl()).willReturn(aResponse().withFixedDelay(2000)));
+        PushMeterRegistry registry = new ThrowingPushMeterRegistry(publishConfig(2, Duration.ofMillis(300)), Clock.SYSTEM, latch);
+
+        AtomicInteger started = new AtomicInteger();
+        HttpSender sender = new HttpUrlConnectionSender();
+        long start = System.nanoTime();
+        registry.publishBatches(batches(8), batch -> {
+            started.incrementAndGet();
+            sender.post(server.baseUrl()).withPlainText(batch.toString()).send();
+        });
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1500));
+        assertThat(started.get()).isEqualTo(2);
+        registry.close();
+    }
+
+    @Test
+    void publishBatchesHoldsPermitsOfCancelledBatchesUntilTheyReturn() throws Throwable {
+        PushMeterRegistry registry = new ThrowingPushMeterRegistry(publishConfig(2, Duration.ofMillis(100)), Clock.SYSTEM, latch);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch returned = new CountDownLatch(2);
+        registry.publishBatches(batches(2), batch -> {
+            try {
+                // ignores the interrupt of being cancelled, as a blocking write may
+                while (true) {
+                    try {
+                        release.await();
+                        break;
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            } finally {
+                returned.countDown();
+            }
+        });
+
+        // both batches were cancelled at the publish timeout but are still being sent
+        assertThat(registry.availablePublishPermits()).isZero();
+
+        release.countDown();
+        assertThat(returned.await(1, TimeUnit.SECONDS)).isTrue();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (registry.availablePublishPermits() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(registry.availablePublishPermits()).isEqualTo(2);
+        registry.close();
+    }
+
+    @Test
+    void publishBatchesOnThePublishingThreadSkipsBatchesAfterPublishTimeout() throws Throwable {
+        MockClock clock = new MockClock();
+        PushMeterRegistry registry = new ThrowingPushMeterRegistry(publishConfig(1, Duration.ofMillis(100)), clock, latch);
+
+        AtomicInteger published = new AtomicInteger();
+        registry.publishBatches(batches(3), batch -> {
+            published.incrementAndGet();
+            clock.add(Duration.ofMillis(150));
+        });
+
+        assertThat(published.get()).isEqualTo(1);
+    }
+
+    @Test
+    void publishBatchesWithoutPublishTimeoutPublishesEveryBatchHoweverLongItTakes() throws Throwable {
+        MockClock clock = new MockClock();
+        PushMeterRegistry registry = new ThrowingPushMeterRegistry(config, clock, latch);
+
+        AtomicInteger published = new AtomicInteger();
+        registry.publishBatches(batches(3), batch -> {
+            published.incrementAndGet();
+            clock.add(config.step().multipliedBy(2));
+        });
+
+        assertThat(published.get()).isEqualTo(3);
+    }
+
+    @Test
+    void publishBatchesRethrowsTheFirstFailure() {
+        PushMeterRegistry registry = new ThrowingPushMeterRegistry(publishConfig(2, Duration.ofSeconds(10)), latch);
+
+        assertThatThrownBy(() -> registry.publishBatches(batches(4), batch -> {
+            throw new IllegalStateException("batch " + batch);
+        })).isInstanceOf(IllegalStateException.class);
+        registry.close();
+    }
+
+    @Test
+    void firstPublishIsJustPastTheNextStepBoundary() {
+        MockClock clock = new MockClock();
+        clock.add(Duration.ofSeconds(15));
+        PushMeterRegistry registry = new ThrowingPushMeterRegistry(jitterConfig(Duration.ZERO), clock, latch);
+
+        // the step boundary is 45 seconds away
+        assertThat(registry.initialPublishDelayMillis()).isEqualTo(45_000 - 1 + 10);
+    }
+
+    @Test
+    void firstPublishIsOffsetByUpToThePublishJitter() {
+        MockClock clock = new MockClock();
+        PushMeterRegistry registry = new ThrowingPushMeterRegistry(jitterConfig(Duration.ofSeconds(30)), clock, latch);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(registry.initialPublishDelayMillis()).isBetween(60_000L - 1 + 10, 90_000L - 1 + 10);
+        }
+    }
+
+    @Test
+    void publishJitterMustBeLessThanTheStep() {
+        assertThatThrownBy(() -> new ThrowingPushMeterRegistry(jitterConfig(Duration.ofMinutes(1)), latch))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> new ThrowingPushMeterRegistry(jitterConfig(Duration.ofSeconds(-1)), latch))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void publishJitterIsKeptWithinTheStep() {
+        MockClock clock = new MockClock();
+        PushMeterRegistry registry = new ThrowingPushMeterRegistry(jitterConfig(Duration.ofMinutes(1).minusMillis(1)), clock, latch);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(registry.initialPublishDelayMillis()).isLessThan(2 * 60_000L);
+        }
+    }
+
+    private static StepRegistryConfig jitterConfig(Duration publishJitter) {
+        return new StepRegistryConfig() {
+            @Override
+            public Duration publishJitter() {
+                return publishJitter;
+            }
+
+            @Override
+            public String prefix() {
+                return "test";
+            }
+
+            @Override
+            public String get(String key) {
+                return null;
+            }
+        };
+    }
+
+    private static List<List<Integer>> batches(int n) {
+        return IntStream.range(0, n).mapToObj(Collections::singletonList).collect(toList());
+    }
+
+    private static StepRegistryConfig publishConfig(int publishConcurrency, Duration publishTimeout) {
+        return new StepRegistryConfig() {
+            @Override
+            public int publishConcurrency() {
+                return publishConcurrency;
+            }
+
+            @Override
+            public Duration publishTimeout() {
+                return publishTimeout;
+            }
+
+            @Override
+            public String prefix() {
+                return "test";
+            }
+
+            @Override
+            public String get(String key) {
+                return null;
+            }
+        };
+    }
+
     static class ThrowingPushMeterRegistry extends StepMeterRegistry {
 
         final CountDownLatch countDownLatch;
 
         public ThrowingPushMeterRegistry(StepRegistryConfig config, CountDownLatch countDownLatch) {
-            super(config, new MockClock());
+            this(config, new MockClock(), countDownLatch);
+        }
+
+        public ThrowingPushMeterRegistry(StepRegistryConfig config, Clock clock, CountDownLatch countDownLatch) {
+            super(config, clock);
             this.countDownLatch = countDownLatch;
         }
 
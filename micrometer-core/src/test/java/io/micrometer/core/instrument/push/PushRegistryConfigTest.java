@@ -19,6 +19,7 @@ import io.micrometer.core.instrument.config.validate.Validated;
 import io.micrometer.core.instrument.config.validate.ValidationException;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,6 +50,7 @@ class PushRegistryConfigTest {
         props.put("push.readTimeout", "1w");
         props.put("push.batchSize", "Z");
         props.put("push.step", "up");
+        props.put("push.publishConcurrency", "0");
 
         // overall not valid
         assertThat(config.validate().isValid()).isFalse();
@@ -56,17 +58,58 @@ class PushRegistryConfigTest {
         // can iterate over failures to display messages
         List<Validated.Invalid<?>> failures = config.validate().failures();
 
-        assertThat(failures.size()).isEqualTo(5);
+        assertThat(failures.size()).isEqualTo(6);
         assertThat(failures.stream().map(Validated.Invalid::getMessage))
                 .containsOnly(
                         "must be a valid duration",
                         "must contain a valid time unit",
-                        "must be an integer"
+                        "must be an integer",
+                        "must be at least 1"
                 );
 
         assertThatThrownBy(config::batchSize).isInstanceOf(ValidationException.class);
     }
 
+    @Test
+    void publishTimeoutDefaultsToNoneAndMustNotBeNegative() {
+        assertThat(config.publishTimeout()).isZero();
+
+        props.put("push.publishTimeout", "0s");
+        assertThat(config.validate().isValid()).isTrue();
+
+        PushRegistryConfig negativeTimeout = new PushRegistryConfig() {
+            @Override
+            public Duration publishTimeout() {
+                return Duration.ofSeconds(-1);
+            }
+
+            @Override
+            public String prefix() {
+                return "push";
+            }
+
+            @Override
+            public String get(String key) {
+                return null;
+            }
+        };
+        assertThat(negativeTimeout.validate().failures().stream().map(Validated.Invalid::getMessage))
+                .containsExactly("must not be negative");
+    }
+
+    @Test
+    void publishJitterDefaultsToZeroAndMustBeLessThanTheStep() {
+        assertThat(config.publishJitter()).isZero();
+
+        props.put("push.step", "10s");
+        props.put("push.publishJitter", "10s");
+        assertThat(config.validate().failures().stream().map(Validated.Invalid::getMessage))
+                .containsExactly("must be at least zero and less than the step");
+
+        props.put("push.publishJitter", "9s");
+        assertThat(config.validate().isValid()).isTrue();
+    }
+
     @Test
     void valid() {
         props.put("push.numThreads", "1");
@@ -74,6 +117,9 @@ class PushRegistryConfigTest {
         props.put("push.readTimeout", "1s");
         props.put("push.batchSize", "3");
         props.put("push.step", "1s");
+        props.put("push.publishConcurrency", "4");
+        props.put("push.publishTimeout", "500ms");
+        props.put("push.publishJitter", "200ms");
 
         assertThat(config.validate().isValid()).isTrue();
     }
@@ -20,13 +20,19 @@ import io.micrometer.core.instrument.*;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import static java.time.Duration.ofMillis;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.SoftAssertions.assertSoftly;
 
@@ -39,6 +45,7 @@ import static org.assertj.core.api.SoftAssertions.assertSoftly;
  */
 class StepMeterRegistryTest {
     private AtomicInteger publishes = new AtomicInteger();
+    private Runnable onPublish = () -> {};
     private MockClock clock = new MockClock();
 
     private StepRegistryConfig config = new StepRegistryConfig() {
@@ -57,6 +64,7 @@ class StepMeterRegistryTest {
         @Override
         protected void publish() {
             publishes.incrementAndGet();
+            onPublish.run();
         }
 
         @Override
@@ -161,4 +169,143 @@ class StepMeterRegistryTest {
             softly.assertThat(timerStep1Length6.max(MILLISECONDS)).isEqualTo(0L);
         });
     }
+
+    @Test
+    void stepMetersRollOverTogether() {
+        Counter first = registry.counter("first");
+        Counter second = registry.counter("second");
+        first.increment();
+        second.increment();
+
+        clock.add(config.step());
+        assertThat(first.count()).isEqualTo(1);
+
+        // recorded after the boundary, so it belongs to the new step even though second hasn't been read yet
+        second.increment();
+        assertThat(second.count()).isEqualTo(1);
+    }
+
+    @Test
+    void publishReadsTheStepThatWasCurrentWhenPublishingStarted() {
+        Timer timer = registry.timer("my.timer");
+        timer.record(1, SECONDS);
+        clock.add(config.step());
+
+        AtomicLong count = new AtomicLong();
+        AtomicReference<Double> totalTime = new AtomicReference<>();
+        onPublish = () -> {
+            count.set(timer.count());
+            clock.add(config.step());
+            totalTime.set(timer.totalTime(SECONDS));
+        };
+        registry.close();
+
+        assertThat(count.get()).isEqualTo(1);
+        assertThat(totalTime.get()).isEqualTo(1.0);
+        assertThat(timer.count()).isEqualTo(0);
+    }
+
+    @Test
+    void skipUnchangedLeavesOutIdleAndUnchangedMetersUntilTheirHeartbeat() {
+        List<List<String>> published = new ArrayList<>();
+        StepMeterRegistry registry = skipUnchangedRegistry(published, new AtomicBoolean(true));
+
+        Counter counter = registry.counter("counter");
+        AtomicInteger gauge = registry.gauge("gauge", new AtomicInteger(1));
+
+        counter.increment();
+        clock.add(config.step());
+        registry.publishSafely();
+        assertThat(published.get(0)).containsExactlyInAnyOrder("counter", "gauge");
+
+        clock.add(config.step());
+        registry.publishSafely();
+        assertThat(published.get(1)).isEmpty();
+
+        clock.add(config.step());
+        registry.publishSafely();
+        assertThat(published.get(2)).describedAs("heartbeat").containsExactlyInAnyOrder("counter", "gauge");
+
+        gauge.set(2);
+        clock.add(config.step());
+        registry.publishSafely();
+        assertThat(published.get(3)).containsExactly("gauge");
+
+        counter.increment();
+        clock.add(config.step());
+        registry.publishSafely();
+        assertThat(published.get(4)).containsExactly("counter");
+    }
+
+    @Test
+    void skipUnchangedPublishesMetersAgainUntilTheyAreSent() {
+        List<List<String>> published = new ArrayList<>();
+        AtomicBoolean sent = new AtomicBoolean(false);
+        StepMeterRegistry registry = skipUnchangedRegistry(published, sent);
+
+        Counter counter = registry.counter("counter");
+        registry.gauge("gauge", new AtomicInteger(1));
+
+        counter.increment();
+        clock.add(config.step());
+        registry.publishSafely();
+        assertThat(published.get(0)).containsExactlyInAnyOrder("counter", "gauge");
+
+        sent.set(true);
+        clock.add(config.step());
+        registry.publishSafely();
+        assertThat(published.get(1)).describedAs("never sent").containsExactlyInAnyOrder("counter", "gauge");
+
+        clock.add(config.step());
+        registry.publishSafely();
+        assertThat(published.get(2)).isEmpty();
+    }
+
+    private StepMeterRegistry skipUnchangedRegistry(List<List<String>> published, AtomicBoolean sent) {
+        StepRegistryConfig skipUnchangedConfig = new StepRegistryConfig() {
+            @Override
+            public String prefix() {
+                return "test";
+            }
+
+            @Override
+            public String get(String key) {
+                switch (key) {
+                    case "test.skipUnchanged":
+                        return "true";
+                    case "test.heartbeatSteps":
+                        return "2";
+                    default:
+                        return null;
+                }
+            }
+        };
+        return new StepMeterRegistry(skipUnchangedConfig, clock) {
+            @Override
+            protected void publish() {
+                List<Meter> meters = getMetersToPublish();
+                published.add(meters.stream()
+                        .map(meter -> meter.getId().getName())
+                        .collect(Collectors.toList()));
+                if (sent.get()) {
+                    markPublished(meters);
+                }
+            }
+
+            @Override
+            protected TimeUnit getBaseTimeUnit() {
+                return TimeUnit.SECONDS;
+            }
+        };
+    }
+
+    @Test
+    void allMetersArePublishedByDefault() {
+        registry.counter("counter");
+        registry.gauge("gauge", 1);
+        clock.add(config.step());
+
+        assertThat(((StepMeterRegistry) registry).getMetersToPublish()).hasSize(2);
+        assertThat(((StepMeterRegistry) registry).getMetersToPublish()).hasSize(2);
+    }
 }
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.ipc.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityBufferTest {
+    private final EntityBuffer.Pool pool = new EntityBuffer.Pool();
+
+    @Test
+    void growsToHoldTheBody() throws IOException {
+        EntityBuffer buffer = pool.acquire();
+        byte[] body = new byte[100_000];
+        Arrays.fill(body, (byte) 'x');
+        buffer.write('[');
+        buffer.write(body);
+        buffer.write(']');
+
+        assertThat(buffer.size()).isEqualTo(100_002);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(out);
+        assertThat(out.toByteArray()).isEqualTo(buffer.toByteArray());
+        assertThat(out.toByteArray()[100_001]).isEqualTo((byte) ']');
+        buffer.release();
+    }
+
+    @Test
+    void releasedBuffersAreReusedEmpty() throws IOException {
+        EntityBuffer buffer = pool.acquire();
+        buffer.write("body".getBytes(StandardCharsets.UTF_8));
+        byte[] array = buffer.array();
+        buffer.release();
+        buffer.release();
+
+        EntityBuffer reused = pool.acquire();
+        EntityBuffer other = pool.acquire();
+        assertThat(reused).isSameAs(buffer);
+        assertThat(reused.size()).isZero();
+        assertThat(reused.array()).isSameAs(array);
+        assertThat(other).isNotSameAs(buffer);
+        reused.release();
+        other.release();
+    }
+
+    @Test
+    void wrappedArraysAreNeverPooled() {
+        byte[] entity = "body".getBytes(StandardCharsets.UTF_8);
+        EntityBuffer wrapped = EntityBuffer.wrap(entity);
+        assertThat(wrapped.array()).isSameAs(entity);
+        assertThat(wrapped.size()).isEqualTo(4);
+        wrapped.release();
+
+        EntityBuffer acquired = pool.acquire();
+        assertThat(acquired).isNotSameAs(wrapped);
+        acquired.release();
+    }
+
+    @Test
+    void poolsAreNotShared() {
+        EntityBuffer buffer = pool.acquire();
+        buffer.release();
+
+        assertThat(new EntityBuffer.Pool().acquire()).isNotSameAs(buffer);
+        assertThat(pool.acquire()).isSameAs(buffer);
+    }
+
+    @Test
+    void requestBodyBuffersAreReturnedToTheSendersPoolAfterSending() throws Throwable {
+        EntityBuffer[] sent = new EntityBuffer[1];
+        HttpSender sender = new HttpSender() {
+            @Override
+            public EntityBuffer.Pool entityBufferPool() {
+                return pool;
+            }
+
+            @Override
+            public Response send(Request request) {
+                sent[0] = request.getEntityBuffer();
+                assertThat(new String(request.getEntity(), StandardCharsets.UTF_8)).isEqualTo("[1,2]");
+                return new HttpSender.Response(200, null);
+            }
+        };
+
+        sender.post("https://micrometer.io/").withJsonContent(writer -> writer.write("[1,2]")).send();
+
+        EntityBuffer next = pool.acquire();
+        assertThat(next).isSameAs(sent[0]);
+        assertThat(next.size()).isZero();
+        next.release();
+    }
+
+    @Test
+    void requestBodiesAreNotPooledForSendersWithoutAPool() throws Throwable {
+        List<EntityBuffer> sent = new ArrayList<>();
+        HttpSender sender = request -> {
+            sent.add(request.getEntityBuffer());
+            return new HttpSender.Response(200, null);
+        };
+
+        sender.post("https://micrometer.io/").withJsonContent(writer -> writer.write("[1,2]")).send();
+        sender.post("https://micrometer.io/").withJsonContent(writer -> writer.write("[3,4]")).send();
+
+        assertThat(sent.get(1)).isNotSameAs(sent.get(0));
+    }
+}
@@ -15,9 +15,16 @@
  */
 package io.micrometer.core.ipc.http;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.Test;
 
@@ -43,4 +50,70 @@ class RequestTest {
         assertThat(requestHeaders).containsEntry("Content-Encoding", "gzip");
     }
 
+    @Test
+    void contentWriterProducesTheSameBodyAsStringContent() throws Throwable {
+        AtomicReference<HttpSender.Request> sent = new AtomicReference<>();
+        AtomicReference<byte[]> entity = new AtomicReference<>();
+        HttpSender sender = request -> {
+            sent.set(request);
+            // pooled request bodies are only valid while the request is being sent
+            entity.set(request.getEntity());
+            return new HttpSender.Response(200, null);
+        };
+
+        sender.post("https://micrometer.io/")
+                .withJsonContent(HttpSender.Request.ContentWriter.joining(Stream.of("{\"a\":1}", "{\"b\":\"\u00e9\"}"), ",", "[", "]"))
+                .send();
+
+        assertThat(new String(entity.get(), StandardCharsets.UTF_8)).isEqualTo("[{\"a\":1},{\"b\":\"\u00e9\"}]");
+        assertThat(sent.get().getRequestHeaders()).containsEntry("Content-Type", "application/json");
+    }
+
+    @Test
+    void contentWriterOfNoElementsWritesPrefixAndSuffix() throws Throwable {
+        AtomicReference<HttpSender.Request> sent = new AtomicReference<>();
+        AtomicReference<byte[]> entity = new AtomicReference<>();
+        HttpSender sender = request -> {
+            sent.set(request);
+            // pooled request bodies are only valid while the request is being sent
+            entity.set(request.getEntity());
+            return new HttpSender.Response(200, null);
+        };
+
+        sender.post("https://micrometer.io/").withPlainText(HttpSender.Request.ContentWriter.joining(Stream.empty(), "\n", "[", "]")).send();
+
+        assertThat(entity.get()).isEqualTo("[]".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void contentWriterIsCompressedAsItIsWritten() throws Throwable {
+        AtomicReference<HttpSender.Request> sent = new AtomicReference<>();
+        AtomicReference<byte[]> entity = new AtomicReference<>();
+        HttpSender sender = request -> {
+            sent.set(request);
+            // pooled request bodies are only valid while the request is being sent
+            entity.set(request.getEntity());
+            return new HttpSender.Response(200, null);
+        };
+
+        sender.post("https://micrometer.io/")
+                .withPlainText(writer -> writer.write("line1\nline2"))
+                .compress()
+                .send();
+
+        assertThat(sent.get().getRequestHeaders()).containsEntry("Content-Encoding", "gzip");
+        assertThat(gunzip(entity.get())).isEqualTo("line1\nline2");
+    }
+
+    private static String gunzip(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
 }
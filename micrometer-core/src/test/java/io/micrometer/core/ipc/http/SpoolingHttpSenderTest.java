@@ -0,0 +1,233 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.ipc.http;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import ru.lanwen.wiremock.ext.WiremockResolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for {@link SpoolingHttpSender}.
+ */
+@ExtendWith(WiremockResolver.class)
+class SpoolingHttpSenderTest {
+    private final HttpSender http = new HttpUrlConnectionSender(Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+    @Test
+    void replaysRequestsThatFailedDuringAnOutageOnceTheBackendRecovers(
+            @WiremockResolver.Wiremock WireMockServer server, @TempDir Path spool) throws Throwable {
+        SpoolingHttpSender sender = new SpoolingHttpSender(http, spool, 1 << 20, 10, Runnable::run);
+
+        server.stubFor(post(anyUrl()).willReturn(aResponse().withStatus(503)));
+        sender.post(server.baseUrl() + "/api").replayable().withPlainText("first").send();
+        sender.post(server.baseUrl() + "/api").replayable().withPlainText("second").send();
+        assertThat(sender.spooled()).isEqualTo(2);
+
+        server.resetRequests();
+        server.stubFor(post(anyUrl()).willReturn(aResponse().withStatus(200)));
+        sender.post(server.baseUrl() + "/api").replayable().withPlainText("third").send();
+
+        assertThat(bodies(server)).containsExactly("third", "first", "second");
+        assertThat(sender.spooled()).isZero();
+    }
+
+    @Test
+    void replaysAtMostReplayPerSendRequestsAfterEachSuccessfulSend(
+            @WiremockResolver.Wiremock WireMockServer server, @TempDir Path spool) throws Throwable {
+        SpoolingHttpSender sender = new SpoolingHttpSender(http, spool, 1 << 20, 1, Runnable::run);
+
+        server.stubFor(post(anyUrl()).willReturn(aResponse().withStatus(429)));
+        sender.post(server.baseUrl() + "/api").replayable().withPlainText("first").send();
+        sender.post(server.baseUrl() + "/api").replayable().withPlainText("second").send();
+
+        server.resetRequests();
+        server.stubFor(post(anyUrl()).willReturn(aResponse().withStatus(200)));
+        sender.post(server.baseUrl() + "/api").replayable().withPlainText("third").send();
+
+        assertThat(bodies(server)).containsExactly("third", "first");
+        assertThat(sender.spooled()).isEqualTo(1);
+    }
+
+    @Test
+    void clientErrorsAreNotSpooled(@WiremockResolver.Wiremock WireMockServer server, @TempDir Path spool) throws Throwable {
+        SpoolingHttpSender sender = new SpoolingHttpSender(http, spool, 1 << 20, 10, Runnable::run);
+
+        server.stubFor(post(anyUrl()).willReturn(aResponse().withStatus(400)));
+        sender.post(server.baseUrl() + "/api").replayable().withPlainText("malformed").send();
+
+        assertThat(sender.spooled()).isZero();
+    }
+
+    @Test
+    void requestsThatCannotBeSentAreSpooledAndTheFailureRethrown(@TempDir Path spool) {
+        SpoolingHttpSender sender = new SpoolingHttpSender(request -> {
+            throw new ConnectException("Connection refused");
+        }, spool, 1 << 20, 10, Runnable::run);
+
+        assertThatThrownBy(() -> sender.post("http://localhost:1/api").replayable().withPlainText("body").send())
+                .isInstanceOf(ConnectException.class);
+        assertThat(sender.spooled()).isEqualTo(1);
+    }
+
+    @Test
+    void oldestRequestsAreEvictedWhenTheSpoolIsFull(@TempDir Path spool) throws Throwable {
+        List<String> sent = new ArrayList<>();
+        SpoolingHttpSender failing = new SpoolingHttpSender(request -> new HttpSender.Response(503, null),
+                spool, 250, 10, Runnable::run);
+        for (int i = 1; i <= 5; i++) {
+            failing.post("http://localhost/api").replayable().withPlainText("request" + i).send();
+        }
+        assertThat(failing.spooled()).isLessThan(5);
+
+        SpoolingHttpSender recovered = new SpoolingHttpSender(request -> {
+            sent.add(new String(request.getEntity()));
+            return new HttpSender.Response(200, null);
+        }, spool, 250, 10, Runnable::run);
+        recovered.post("http://localhost/api").replayable().withPlainText("request6").send();
+
+        assertThat(sent).first().isEqualTo("request6");
+        assertThat(sent).endsWith("request4", "request5");
+        assertThat(sent).doesNotContain("request1");
+    }
+
+    @Test
+    void spooledRequestsSurviveARestart(@TempDir Path spool) throws Throwable {
+        new SpoolingHttpSender(request -> new HttpSender.Response(503, null), spool, 1 << 20, 10, Runnable::run)
+                .post("http://localhost/api")
+                .replayable()
+                .withHeader("X-Api-Key", "secret")
+                .withJsonContent("{\"a\":1}")
+                .compress()
+                .send();
+
+        List<HttpSender.Request> replayed = new ArrayList<>();
+        SpoolingHttpSender restarted = new SpoolingHttpSender(request -> {
+            replayed.add(new HttpSender.Request(request.getUrl(), request.getEntity(), request.getMethod(),
+                    request.getRequestHeaders()));
+            return new HttpSender.Response(200, null);
+        }, spool, 1 << 20, 10, Runnable::run);
+        assertThat(restarted.spooled()).isEqualTo(1);
+
+        restarted.post("http://localhost/api").replayable().withPlainText("next").send();
+
+        HttpSender.Request request = replayed.get(1);
+        assertThat(request.getMethod()).isEqualTo(HttpSender.Method.POST);
+        assertThat(request.getUrl().toString()).isEqualTo("http://localhost/api");
+        assertThat(request.getRequestHeaders())
+                .containsEntry("X-Api-Key", "secret")
+                .containsEntry("Content-Type", "application/json")
+                .containsEntry("Content-Encoding", "gzip");
+        assertThat(request.getEntity()).isNotEmpty();
+    }
+
+    @Test
+    void requestsThatAreNotReplayableAreNotSpooled(@TempDir Path spool) throws Throwable {
+        SpoolingHttpSender sender = new SpoolingHttpSender(request -> new HttpSender.Response(503, null),
+                spool, 1 << 20, 10, Runnable::run);
+
+        sender.put("http://localhost/_template/metrics_template").withJsonContent("{}").send();
+
+        assertThat(sender.spooled()).isZero();
+    }
+
+    @Test
+    void spoolIsOnlyAccessibleByItsOwner(@TempDir Path parent) throws Throwable {
+        assumeTrue(parent.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path spool = parent.resolve("spool");
+
+        SpoolingHttpSender sender = new SpoolingHttpSender(request -> new HttpSender.Response(503, null),
+                spool, 1 << 20, 10, Runnable::run);
+        sender.post("http://localhost/api").replayable().withHeader("X-Api-Key", "secret").withPlainText("body").send();
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(spool))).isEqualTo("rwx------");
+        try (Stream<Path> files = Files.list(spool)) {
+            assertThat(files.map(file -> {
+                try {
+                    return PosixFilePermissions.toString(Files.getPosixFilePermissions(file));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })).containsExactly("rw-------");
+        }
+    }
+
+    @Test
+    void replaysDoNotHoldUpSends(@TempDir Path spool) throws Throwable {
+        CountDownLatch replayStarted = new CountDownLatch(1);
+        CountDownLatch releaseReplay = new CountDownLatch(1);
+        AtomicBoolean backendUp = new AtomicBoolean();
+        SpoolingHttpSender sender = new SpoolingHttpSender(request -> {
+            if (!backendUp.get()) {
+                return new HttpSender.Response(503, null);
+            }
+            if (new String(request.getEntity()).equals("spooled")) {
+                replayStarted.countDown();
+                releaseReplay.await();
+            }
+            return new HttpSender.Response(200, null);
+        }, spool, 1 << 20, 10);
+
+        sender.post("http://localhost/api").replayable().withPlainText("spooled").send();
+        backendUp.set(true);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            sender.post("http://localhost/api").replayable().withPlainText("first").send();
+            assertThat(replayStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            // sent while the replay is still in flight
+            sender.post("http://localhost/api").replayable().withPlainText("second").send();
+        });
+
+        releaseReplay.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sender.spooled() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(sender.spooled()).isZero();
+    }
+
+    private static List<String> bodies(WireMockServer server) {
+        return server.findAll(postRequestedFor(anyUrl())).stream()
+                .map(LoggedRequest::getBodyAsString)
+                .collect(toList());
+    }
+}